@@ -0,0 +1,125 @@
+package de.shop.bestellverwaltung.rest;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.service.ArtikelService;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.util.H2Datenbank;
+
+
+/**
+ * Zuordnung der Artikel zu den Bestellpositionen wie in BestellungResource.createBestellung:
+ * urspruengliche verschachtelte Schleife, Zuordnung ueber eine Map und einschliesslich der DB-Abfrage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZuordnungArtikelBenchmark {
+	private static final String ARTIKEL_URI = "http://localhost:8080/shop/rest/artikel/";
+
+	@Param({ "5", "50", "500" })
+	private int anzahlPositionen;
+
+	private EntityManager em;
+	private final ArtikelService as = new ArtikelService();
+
+	private List<Bestellposition> bestellpositionen;
+	private List<Long> artikelIds;
+	private Map<Long, Artikel> artikelMap;
+	private List<Artikel> artikelListe;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		em = H2Datenbank.getEntityManagerFactory().createEntityManager();
+		final Field emField = ArtikelService.class.getDeclaredField("em");
+		emField.setAccessible(true);
+		emField.set(as, em);
+
+		final List<Artikel> alleArtikel = em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL, Artikel.class)
+				                            .getResultList();
+		bestellpositionen = new ArrayList<>(anzahlPositionen);
+		for (int i = 0; i < anzahlPositionen; i++) {
+			final Bestellposition bp = new Bestellposition();
+			bp.setArtikelUri(URI.create(ARTIKEL_URI + alleArtikel.get(i % alleArtikel.size()).getId()));
+			bp.setAnzahl(Long.valueOf(1));
+			bestellpositionen.add(bp);
+		}
+		artikelIds = artikelIds(bestellpositionen);
+		artikelMap = as.findArtikelMapByIds(artikelIds);
+		artikelListe = new ArrayList<>(artikelMap.values());
+	}
+
+	@TearDown
+	public void tearDown() {
+		em.close();
+		H2Datenbank.schliessen();
+	}
+
+	@Benchmark
+	public List<Bestellposition> verschachtelteSchleife() {
+		int i = 0;
+		final List<Bestellposition> neueBestellpositionen = new ArrayList<>(bestellpositionen.size());
+		for (Bestellposition bp : bestellpositionen) {
+			final long artikelId = artikelIds.get(i++);
+			for (Artikel artikel : artikelListe) {
+				if (artikel.getId().longValue() == artikelId) {
+					bp.setArtikel(artikel);
+					neueBestellpositionen.add(bp);
+					break;
+				}
+			}
+		}
+		return neueBestellpositionen;
+	}
+
+	@Benchmark
+	public List<Bestellposition> zuordnenArtikel() {
+		return BestellungResource.zuordnenArtikel(bestellpositionen, artikelMap);
+	}
+
+	@Benchmark
+	public List<Bestellposition> ladenUndZuordnen() {
+		// Neuer Persistenzkontext wie bei jedem Request
+		em.clear();
+		final Map<Long, Artikel> gefundeneArtikel = as.findArtikelMapByIds(artikelIds(bestellpositionen));
+		return BestellungResource.zuordnenArtikel(bestellpositionen, gefundeneArtikel);
+	}
+
+	/**
+	 * Artikel-IDs aus den Artikel-URLs extrahieren wie in BestellungResource.createBestellung
+	 */
+	private static List<Long> artikelIds(Collection<Bestellposition> bestellpositionen) {
+		final List<Long> ids = new ArrayList<>(bestellpositionen.size());
+		for (Bestellposition bp : bestellpositionen) {
+			final String artikelUriStr = bp.getArtikelUri().toString();
+			ids.add(Long.valueOf(artikelUriStr.substring(artikelUriStr.lastIndexOf('/') + 1)));
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,105 @@
+package de.shop.bestellverwaltung.service;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.util.H2Datenbank;
+
+
+/**
+ * Neue Bestellung fuer einen Kunden mit wenigen bzw. vielen vorhandenen Bestellungen anlegen wie in
+ * BestellungService.createBestellung: der Kunde wird ohne seine Bestellungen geladen und die Bestellung
+ * nur ueber den Fremdschluessel eingefuegt. Beim Setup wird geprueft, dass die Bestellungen des Kunden
+ * dabei nicht geladen werden.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BestellungAnlegenBenchmark {
+	private static final Long KUNDE_ID = Long.valueOf(2);
+	private static final String BESTELLUNGEN_ROLLE = AbstractKunde.class.getName() + ".bestellungen";
+
+	@Param({ "10", "5000" })
+	private int anzahlBestellungen;
+
+	private EntityManager em;
+	private Statistics statistics;
+	private Artikel artikel;
+
+	@Setup
+	public void setup() {
+		em = H2Datenbank.getEntityManagerFactory().createEntityManager();
+		statistics = em.unwrap(Session.class).getSessionFactory().getStatistics();
+		artikel = em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL, Artikel.class)
+				    .setMaxResults(1)
+				    .getSingleResult();
+
+		em.getTransaction().begin();
+		for (int i = 0; i < anzahlBestellungen; i++) {
+			em.persist(neueBestellung(em.getReference(AbstractKunde.class, KUNDE_ID)));
+		}
+		em.getTransaction().commit();
+
+		// Der Aufwand fuer eine neue Bestellung darf nicht von der Anzahl der vorhandenen Bestellungen
+		// abhaengen: die Bestellungen des Kunden duerfen nicht geladen werden
+		final CollectionStatistics bestellungen = statistics.getCollectionStatistics(BESTELLUNGEN_ROLLE);
+		final long geladen = bestellungen.getLoadCount() + bestellungen.getFetchCount();
+		anlegen();
+		if (bestellungen.getLoadCount() + bestellungen.getFetchCount() != geladen) {
+			throw new IllegalStateException("Beim Anlegen einer Bestellung wurden die Bestellungen des Kunden geladen");
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		em.close();
+		H2Datenbank.schliessen();
+	}
+
+	@Benchmark
+	public Bestellung anlegen() {
+		// Neuer Persistenzkontext wie bei jedem Request
+		em.clear();
+		em.getTransaction().begin();
+		final AbstractKunde kunde = em.find(AbstractKunde.class, KUNDE_ID);
+		final Bestellung bestellung = neueBestellung(kunde);
+		em.persist(bestellung);
+		em.getTransaction().commit();
+		return bestellung;
+	}
+
+	private Bestellung neueBestellung(AbstractKunde kunde) {
+		final List<Bestellposition> bestellpositionen = new ArrayList<>(1);
+		bestellpositionen.add(new Bestellposition(artikel, Long.valueOf(1)));
+		final Bestellung bestellung = new Bestellung(bestellpositionen);
+		bestellung.setKunde(kunde);
+		return bestellung;
+	}
+}
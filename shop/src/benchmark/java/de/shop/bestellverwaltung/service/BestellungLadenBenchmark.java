@@ -0,0 +1,162 @@
+package de.shop.bestellverwaltung.service;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.bestellverwaltung.service.BestellungService.FetchType;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.util.H2Datenbank;
+
+
+/**
+ * Bestellhistorie eines Kunden und einzelne Bestellung laden wie in KundeResource.findBestellungenByKundeId
+ * und BestellungResource.findBestellungById, zum Vergleich die Bestellhistorie ueber die Bestellungen des Kunden.
+ * Beim Setup wird die Anzahl der SQL-Anweisungen je Anwendungsfall geprueft: bei mehr als der erwarteten
+ * Anzahl scheitert der Benchmark und wegen -foe auch der Maven-Aufruf.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BestellungLadenBenchmark {
+	private static final Long KUNDE_ID = Long.valueOf(2);
+	private static final int ANZAHL_POSITIONEN = 3;
+
+	// Hoechstzahl der SQL-Anweisungen: Kunde und Bestellungen mit Bestellpositionen
+	private static final long MAX_SQL_BESTELLHISTORIE = 2;
+	// Bestellung mit Kunde, Bestellpositionen und Artikeln; dazu die Adresse des Kunden
+	private static final long MAX_SQL_BESTELLUNG = 2;
+
+	@Param({ "50" })
+	private int anzahlBestellungen;
+
+	private EntityManager em;
+	private final BestellungService bs = new BestellungService();
+	private Statistics statistics;
+	private Long bestellungId;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		em = H2Datenbank.getEntityManagerFactory().createEntityManager();
+		final Field emField = BestellungService.class.getDeclaredField("em");
+		emField.setAccessible(true);
+		emField.set(bs, em);
+		statistics = em.unwrap(Session.class).getSessionFactory().getStatistics();
+
+		bestellungId = anlegenBestellungen();
+
+		em.clear();
+		long anzahl = statistics.getPrepareStatementCount();
+		bestellhistorie();
+		pruefen("Bestellhistorie", statistics.getPrepareStatementCount() - anzahl, MAX_SQL_BESTELLHISTORIE);
+
+		em.clear();
+		anzahl = statistics.getPrepareStatementCount();
+		bestellung();
+		pruefen("Bestellung", statistics.getPrepareStatementCount() - anzahl, MAX_SQL_BESTELLUNG);
+	}
+
+	@TearDown
+	public void tearDown() {
+		em.close();
+		H2Datenbank.schliessen();
+	}
+
+	@Benchmark
+	public List<Bestellung> bestellhistorie() {
+		// Neuer Persistenzkontext wie bei jedem Request
+		em.clear();
+		final AbstractKunde kunde = em.find(AbstractKunde.class, KUNDE_ID);
+		final List<Bestellung> bestellungen = bs.findBestellungenByKundeId(kunde.getId());
+		return serialisieren(bestellungen);
+	}
+
+	@Benchmark
+	public List<Bestellung> bestellhistorieUeberKunde() {
+		em.clear();
+		final AbstractKunde kunde = em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_ID_FETCH_BESTELLUNGEN,
+				                                        AbstractKunde.class)
+				                      .setParameter(AbstractKunde.PARAM_KUNDE_ID, KUNDE_ID)
+				                      .getSingleResult();
+		final List<Bestellung> bestellungen = bs.findBestellungenByKunde(kunde);
+		return serialisieren(bestellungen);
+	}
+
+	@Benchmark
+	public Bestellung bestellung() {
+		em.clear();
+		final Bestellung bestellung = bs.findBestellungById(bestellungId, FetchType.MIT_BESTELLPOSITIONEN);
+		// URLs fuer Kunde und Artikel wie in UriHelperBestellung und UriHelperBestellposition
+		bestellung.getKunde().getId();
+		for (Bestellposition bp : bestellung.getBestellpositionen()) {
+			bp.getArtikel().getId();
+		}
+		return bestellung;
+	}
+
+	/**
+	 * Bestellungen mit Bestellpositionen fuer den Kunden anlegen
+	 * @return ID der zuletzt angelegten Bestellung
+	 */
+	private Long anlegenBestellungen() {
+		final List<Artikel> artikel = em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL, Artikel.class)
+				                        .getResultList();
+		em.getTransaction().begin();
+		final AbstractKunde kunde = em.find(AbstractKunde.class, KUNDE_ID);
+		Bestellung bestellung = null;
+		for (int i = 0; i < anzahlBestellungen; i++) {
+			final List<Bestellposition> bestellpositionen = new ArrayList<>(ANZAHL_POSITIONEN);
+			for (int j = 0; j < ANZAHL_POSITIONEN; j++) {
+				bestellpositionen.add(new Bestellposition(artikel.get((i + j) % artikel.size()), Long.valueOf(1)));
+			}
+			bestellung = new Bestellung(bestellpositionen);
+			bestellung.setKunde(kunde);
+			kunde.addBestellung(bestellung);
+			em.persist(bestellung);
+		}
+		em.getTransaction().commit();
+		return bestellung == null ? null : bestellung.getId();
+	}
+
+	/**
+	 * Bei der Serialisierung nach JSON werden die Bestellpositionen jeder Bestellung gelesen
+	 */
+	private static List<Bestellung> serialisieren(List<Bestellung> bestellungen) {
+		for (Bestellung bestellung : bestellungen) {
+			bestellung.getBestellpositionen().size();
+		}
+		return bestellungen;
+	}
+
+	private static void pruefen(String anwendungsfall, long anzahl, long max) {
+		if (anzahl > max) {
+			throw new IllegalStateException(anwendungsfall + ": " + anzahl + " SQL-Anweisungen statt hoechstens "
+					                        + max);
+		}
+	}
+}
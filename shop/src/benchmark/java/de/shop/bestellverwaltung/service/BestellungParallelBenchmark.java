@@ -0,0 +1,97 @@
+package de.shop.bestellverwaltung.service;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.util.H2Datenbank;
+
+
+/**
+ * Durchsatz beim Anlegen von Bestellungen mit 32 parallelen Schreibern, jeweils mit eigenem EntityManager
+ * und eigener Transaktion je Bestellung. Die IDs fuer Bestellung und Bestellpositionen werden blockweise
+ * aus den Sequenzen reserviert, so dass nur jede 100. Bestellung eine Sequenz abfragt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(32)
+public class BestellungParallelBenchmark {
+	private static final Long KUNDE_ID = Long.valueOf(2);
+	private static final int ANZAHL_POSITIONEN = 3;
+
+	@TearDown
+	public void tearDown() {
+		H2Datenbank.schliessen();
+	}
+
+	@Benchmark
+	public Bestellung anlegen(Schreiber schreiber) {
+		final EntityManager em = schreiber.em;
+		// Neuer Persistenzkontext wie bei jedem Request
+		em.clear();
+		em.getTransaction().begin();
+		final List<Bestellposition> bestellpositionen = new ArrayList<>(ANZAHL_POSITIONEN);
+		for (int i = 0; i < ANZAHL_POSITIONEN; i++) {
+			bestellpositionen.add(new Bestellposition(em.getReference(Artikel.class, schreiber.artikelIds.get(i)),
+					                                  Long.valueOf(1)));
+		}
+		final Bestellung bestellung = new Bestellung(bestellpositionen);
+		bestellung.setKunde(em.getReference(AbstractKunde.class, KUNDE_ID));
+		em.persist(bestellung);
+		em.getTransaction().commit();
+		return bestellung;
+	}
+
+	/**
+	 * Ein Schreiber je Thread
+	 */
+	@State(Scope.Thread)
+	public static class Schreiber {
+		private EntityManager em;
+		private List<Long> artikelIds;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			em = H2Datenbank.getEntityManagerFactory().createEntityManager();
+			artikelIds = new ArrayList<>(ANZAHL_POSITIONEN);
+			for (Artikel artikel : em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL, Artikel.class)
+					                 .setMaxResults(ANZAHL_POSITIONEN)
+					                 .getResultList()) {
+				artikelIds.add(artikel.getId());
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			// Beim Schliessen der EntityManagerFactory werden auch die EntityManager geschlossen
+			if (em.isOpen()) {
+				em.close();
+			}
+		}
+	}
+}
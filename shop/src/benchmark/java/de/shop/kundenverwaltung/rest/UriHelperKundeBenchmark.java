@@ -0,0 +1,108 @@
+package de.shop.kundenverwaltung.rest;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.jboss.resteasy.specimpl.PathSegmentImpl;
+import org.jboss.resteasy.specimpl.UriInfoImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.domain.Privatkunde;
+
+
+/**
+ * URIs fuer Kunden mit UriHelperKunde und der UriInfo von RESTEasy erzeugen: mit den URL-Vorlagen
+ * von UriHelperKunde und zum Vergleich mit einem UriBuilder je Kunde, jeweils fuer 1 und fuer 10.000 Kunden
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriHelperKundeBenchmark {
+	private static final URI BASE_URI = URI.create("http://localhost:8080/shop/rest/");
+	private static final String PATH = "/kunden/2";
+	private static final int ANZAHL_KUNDEN = 10_000;
+
+	private final UriHelperKunde uriHelperKunde = new UriHelperKunde();
+	private UriInfo uriInfo;
+	private AbstractKunde kunde;
+	private List<AbstractKunde> kunden;
+
+	@Setup
+	public void setup() {
+		uriInfo = new UriInfoImpl(BASE_URI.resolve(PATH.substring(1)), BASE_URI, PATH, null,
+				                  PathSegmentImpl.parseSegments(PATH, false));
+		kunde = new Privatkunde();
+		kunde.setId(Long.valueOf(2));
+		
+		kunden = new ArrayList<>(ANZAHL_KUNDEN);
+		for (int i = 1; i <= ANZAHL_KUNDEN; i++) {
+			final AbstractKunde k = new Privatkunde();
+			k.setId(Long.valueOf(i));
+			kunden.add(k);
+		}
+	}
+
+	@Benchmark
+	public AbstractKunde updateUriKunde() {
+		uriHelperKunde.updateUriKunde(kunde, uriInfo);
+		return kunde;
+	}
+
+	@Benchmark
+	public URI getUriKunde() {
+		return uriHelperKunde.getUriKunde(kunde, uriInfo);
+	}
+
+	@Benchmark
+	public URI getUriKundeMitUriBuilder() {
+		return uriBuilder(kunde);
+	}
+
+	@Benchmark
+	public List<AbstractKunde> updateUriKunden() {
+		for (AbstractKunde k : kunden) {
+			uriHelperKunde.updateUriKunde(k, uriInfo);
+		}
+		return kunden;
+	}
+
+	@Benchmark
+	public List<AbstractKunde> updateUriKundenMitUriBuilder() {
+		for (AbstractKunde k : kunden) {
+			k.setBestellungenUri(uriInfo.getBaseUriBuilder()
+			                            .path(KundeResource.class)
+			                            .path(KundeResource.class, "findBestellungenByKundeId")
+			                            .build(k.getId()));
+		}
+		return kunden;
+	}
+
+	/**
+	 * Bisherige Implementierung von UriHelperKunde.getUriKunde
+	 */
+	private URI uriBuilder(AbstractKunde k) {
+		final UriBuilder ub = uriInfo.getBaseUriBuilder()
+		                             .path(KundeResource.class)
+		                             .path(KundeResource.class, "findKundeById");
+		return ub.build(k.getId());
+	}
+}
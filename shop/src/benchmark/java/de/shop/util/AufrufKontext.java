@@ -0,0 +1,92 @@
+package de.shop.util;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.interceptor.InvocationContext;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+
+
+/**
+ * InvocationContext ohne Container fuer die Benchmarks der Interceptoren:
+ * der Aufruf von ArtikelSuche.findArtikelByIds erfolgt direkt und nicht per Reflection
+ */
+class AufrufKontext implements InvocationContext {
+	private final ArtikelSuche target;
+	private final Method method;
+	private Object[] parameters;
+	private final Map<String, Object> contextData = new HashMap<>();
+
+	AufrufKontext(int anzahlArtikel) throws NoSuchMethodException {
+		final List<Artikel> artikel = new ArrayList<>(anzahlArtikel);
+		for (long i = 1; i <= anzahlArtikel; i++) {
+			final Artikel a = new Artikel();
+			a.setId(i);
+			a.setArtikelBezeichnung("Artikel " + i);
+			a.setPreis(BigDecimal.TEN);
+			a.setVerfuegbar(true);
+			artikel.add(a);
+		}
+		target = new ArtikelSuche(artikel);
+		method = ArtikelSuche.class.getMethod("findArtikelByIds", List.class, Locale.class);
+		parameters = new Object[] { Arrays.asList(1L, 2L, 3L), Locale.GERMAN };
+	}
+
+	@Override
+	public Object getTarget() {
+		return target;
+	}
+
+	@Override
+	public Method getMethod() {
+		return method;
+	}
+
+	@Override
+	public Object[] getParameters() {
+		return parameters;
+	}
+
+	@Override
+	public void setParameters(Object[] parameters) {
+		this.parameters = parameters;
+	}
+
+	@Override
+	public Map<String, Object> getContextData() {
+		return contextData;
+	}
+
+	@Override
+	public Object getTimer() {
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object proceed() {
+		return target.findArtikelByIds((List<Long>) parameters[0], (Locale) parameters[1]);
+	}
+
+	/**
+	 * Bean, dessen Methode durch den Interceptor aufgerufen wird
+	 */
+	public static class ArtikelSuche {
+		private final List<Artikel> artikel;
+
+		public ArtikelSuche(List<Artikel> artikel) {
+			this.artikel = artikel;
+		}
+
+		public List<Artikel> findArtikelByIds(List<Long> ids, Locale locale) {
+			return artikel;
+		}
+	}
+}
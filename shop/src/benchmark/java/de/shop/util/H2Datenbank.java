@@ -0,0 +1,121 @@
+package de.shop.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+
+/**
+ * Eingebettete H2-Datenbank fuer die Benchmarks. Die Tabellen generiert Hibernate, die Testdaten stammen
+ * aus den SQL-Skripten in src/main/resources/sql. Diese Skripte sind fuer Oracle geschrieben und werden
+ * beim Laden angepasst: DROP nur falls vorhanden, ohne CACHE und Datumswerte im ISO-Format.
+ */
+public final class H2Datenbank {
+	public static final String PERSISTENCE_UNIT = "de.shop.benchmark";
+
+	private static final String URL = "jdbc:h2:mem:shop;MODE=Oracle;DB_CLOSE_DELAY=-1";
+	private static final String USER = "sa";
+	private static final String PASSWORD = "";
+
+	private static final String[] SKRIPTE = {
+		"sql/01_enum.sql",
+		"sql/02_index.sql",
+		"sql/10_sequenz.sql",
+		"sql/20_kunde.sql",
+		"sql/21_adresse.sql",
+		"sql/22_kunde_hobby.sql",
+		"sql/30_artikel.sql",
+		"sql/40_bestellung.sql",
+		"sql/41_bestellposition.sql"
+	};
+
+	private static final String KOMMENTAR = "--";
+	private static final Pattern DROP = Pattern.compile("^DROP (TABLE|SEQUENCE) ", Pattern.CASE_INSENSITIVE);
+	private static final Pattern CACHE = Pattern.compile("\\s+CACHE\\s*$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern DATUM = Pattern.compile("'(\\d{2})\\.(\\d{2})\\.(\\d{4})");
+
+	private static EntityManagerFactory emf;
+
+	private H2Datenbank() {
+	}
+
+	/**
+	 * EntityManagerFactory fuer die H2-Datenbank; beim ersten Aufruf werden die Tabellen angelegt und
+	 * die Testdaten geladen
+	 */
+	public static synchronized EntityManagerFactory getEntityManagerFactory() {
+		if (emf != null) {
+			return emf;
+		}
+
+		final Map<String, String> properties = new HashMap<>();
+		properties.put("javax.persistence.jdbc.url", URL);
+		emf = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, properties);
+
+		try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
+			 Statement stmt = conn.createStatement()) {
+			for (String skript : SKRIPTE) {
+				laden(skript, stmt);
+			}
+		}
+		catch (SQLException | IOException e) {
+			emf.close();
+			emf = null;
+			throw new IllegalStateException("Die Testdaten konnten nicht geladen werden", e);
+		}
+		return emf;
+	}
+
+	public static synchronized void schliessen() {
+		if (emf != null) {
+			emf.close();
+			emf = null;
+		}
+	}
+
+	/**
+	 * Ein SQL-Skript ausfuehren: jede SQL-Anweisung in genau 1 Zeile, Kommentare durch -- am Zeilenanfang
+	 */
+	private static void laden(String skript, Statement stmt) throws IOException, SQLException {
+		final InputStream is = H2Datenbank.class.getClassLoader().getResourceAsStream(skript);
+		if (is == null) {
+			throw new IOException("Das SQL-Skript " + skript + " ist nicht im Classpath");
+		}
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.ISO_8859_1))) {
+			String zeile;
+			while ((zeile = reader.readLine()) != null) {
+				zeile = zeile.trim();
+				if (zeile.isEmpty() || zeile.startsWith(KOMMENTAR)) {
+					continue;
+				}
+				if (zeile.endsWith(";")) {
+					zeile = zeile.substring(0, zeile.length() - 1);
+				}
+				stmt.execute(anpassen(zeile));
+			}
+		}
+	}
+
+	/**
+	 * SQL-Anweisung fuer Oracle an H2 anpassen
+	 */
+	private static String anpassen(String sql) {
+		String h2Sql = DROP.matcher(sql).replaceFirst("DROP $1 IF EXISTS ");
+		h2Sql = CACHE.matcher(h2Sql).replaceFirst("");
+		// dd.MM.yyyy -> yyyy-MM-dd
+		return DATUM.matcher(h2Sql).replaceAll("'$3-$2-$1");
+	}
+}
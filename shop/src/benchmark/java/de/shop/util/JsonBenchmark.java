@@ -0,0 +1,102 @@
+package de.shop.util;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectWriter;
+import org.codehaus.jackson.type.TypeReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+
+/**
+ * Serialisierung mit Jackson wie durch resteasy-jackson-provider: Kunden mit @JsonTypeInfo fuer Privat- und
+ * Firmenkunden sowie Bestellungen mit Bestellpositionen. Die Objekte stammen aus der H2-Datenbank.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+	private static final Long PRIVATKUNDE_ID = Long.valueOf(2);
+	private static final Long FIRMENKUNDE_ID = Long.valueOf(4);
+	private static final Long BESTELLUNG_ID = Long.valueOf(5);
+
+	private final ObjectMapper mapper = new ObjectMapperProvider().getObjectMapper();
+	private ObjectWriter kundenWriter;
+
+	private AbstractKunde privatkunde;
+	private AbstractKunde firmenkunde;
+	private List<AbstractKunde> kunden;
+	private Bestellung bestellung;
+	private byte[] privatkundeJson;
+
+	@Setup
+	public void setup() throws IOException {
+		final EntityManager em = H2Datenbank.getEntityManagerFactory().createEntityManager();
+		try {
+			privatkunde = em.find(AbstractKunde.class, PRIVATKUNDE_ID);
+			firmenkunde = em.find(AbstractKunde.class, FIRMENKUNDE_ID);
+			kunden = new ArrayList<>(em.createNamedQuery(AbstractKunde.FIND_KUNDEN, AbstractKunde.class)
+					                   .getResultList());
+			bestellung = em.find(Bestellung.class, BESTELLUNG_ID);
+		}
+		finally {
+			em.close();
+		}
+
+		// Collection<AbstractKunde> als Rueckgabetyp einer JAX-RS-Methode
+		kundenWriter = mapper.writerWithType(new TypeReference<List<AbstractKunde>>() { });
+		privatkundeJson = mapper.writeValueAsBytes(privatkunde);
+	}
+
+	@TearDown
+	public void tearDown() {
+		H2Datenbank.schliessen();
+	}
+
+	@Benchmark
+	public byte[] privatkunde() throws IOException {
+		return mapper.writeValueAsBytes(privatkunde);
+	}
+
+	@Benchmark
+	public byte[] firmenkunde() throws IOException {
+		return mapper.writeValueAsBytes(firmenkunde);
+	}
+
+	@Benchmark
+	public byte[] kunden() throws IOException {
+		return kundenWriter.writeValueAsBytes(kunden);
+	}
+
+	@Benchmark
+	public byte[] bestellung() throws IOException {
+		return mapper.writeValueAsBytes(bestellung);
+	}
+
+	@Benchmark
+	public AbstractKunde privatkundeDeserialisieren() throws IOException {
+		return mapper.readValue(privatkundeJson, AbstractKunde.class);
+	}
+}
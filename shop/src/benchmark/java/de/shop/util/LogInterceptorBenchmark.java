@@ -0,0 +1,91 @@
+package de.shop.util;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+import javax.interceptor.InvocationContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * LogInterceptor.log mit und ohne Level DEBUG sowie mit Abtastrate im Vergleich zum direkten Methodenaufruf.
+ * Protokolliert wird mit java.util.logging in einen Handler, der die Ausgabe verwirft.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.jboss.logging.provider=jdk")
+public class LogInterceptorBenchmark {
+	private static final int ANZAHL_ARTIKEL = 3;
+
+	@Param({ "false", "true" })
+	private boolean debug;
+
+	// Anteil der protokollierten Aufrufe bei Level DEBUG
+	@Param({ "1.0", "0.01" })
+	private double abtastrate;
+
+	private final LogInterceptor interceptor = new LogInterceptor();
+	private InvocationContext ctx;
+	private java.util.logging.Logger logger;
+	private Handler handler;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		final Config config = new Config();
+		config.setLogAbtastrate(abtastrate);
+		final Field configField = LogInterceptor.class.getDeclaredField("config");
+		configField.setAccessible(true);
+		configField.set(interceptor, config);
+
+		logger = java.util.logging.Logger.getLogger(AufrufKontext.ArtikelSuche.class.getName());
+		logger.setUseParentHandlers(false);
+		logger.setLevel(debug ? Level.FINE : Level.INFO);
+		handler = new StreamHandler(new OutputStream() {
+			@Override
+			public void write(int b) {
+				// Ausgabe verwerfen
+			}
+		}, new SimpleFormatter());
+		handler.setLevel(Level.ALL);
+		logger.addHandler(handler);
+
+		ctx = new AufrufKontext(ANZAHL_ARTIKEL);
+	}
+
+	@TearDown
+	public void tearDown() {
+		logger.removeHandler(handler);
+		handler.close();
+	}
+
+	@Benchmark
+	public Object ohneInterceptor() throws Exception {
+		return ctx.proceed();
+	}
+
+	@Benchmark
+	public Object log() throws Exception {
+		return interceptor.log(ctx);
+	}
+}
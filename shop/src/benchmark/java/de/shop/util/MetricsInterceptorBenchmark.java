@@ -0,0 +1,67 @@
+package de.shop.util;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Zusaetzliche Dauer durch MetricsInterceptor je Aufruf, auch bei parallelen Aufrufen derselben Methode.
+ * Vorgabe: deutlich unter 1 Mikrosekunde.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsInterceptorBenchmark {
+	private static final int ANZAHL_ARTIKEL = 3;
+	private static final int THREADS = 4;
+
+	private final MetricsInterceptor interceptor = new MetricsInterceptor();
+	private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+	private AufrufKontext ctx;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		final Method postConstruct = MetricsRegistry.class.getDeclaredMethod("postConstruct");
+		postConstruct.setAccessible(true);
+		postConstruct.invoke(metricsRegistry);
+
+		final Field registryField = MetricsInterceptor.class.getDeclaredField("metricsRegistry");
+		registryField.setAccessible(true);
+		registryField.set(interceptor, metricsRegistry);
+
+		ctx = new AufrufKontext(ANZAHL_ARTIKEL);
+	}
+
+	@Benchmark
+	public Object ohneInterceptor() throws Exception {
+		return ctx.proceed();
+	}
+
+	@Benchmark
+	public Object messen() throws Exception {
+		return interceptor.messen(ctx);
+	}
+
+	@Benchmark
+	@Threads(THREADS)
+	public Object messenParallel() throws Exception {
+		return interceptor.messen(ctx);
+	}
+}
@@ -0,0 +1,94 @@
+package de.shop.util;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+
+/**
+ * Grosse Liste lesen wie bei GET /kunden/{id}/bestellungen, jeweils in einer eigenen Transaktion:
+ * wie bisher mit Snapshots und Flush beim Commit sowie wie bei @Transactional(readOnly = true) ohne
+ * Snapshots und ohne Flush. Den Speicherbedarf zeigt der Aufruf mit "-prof gc" (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionalReadOnlyBenchmark {
+	private static final Long KUNDE_ID = Long.valueOf(2);
+	private static final int ANZAHL_BESTELLUNGEN = 2000;
+	private static final int ANZAHL_POSITIONEN = 3;
+
+	@Param({ "false", "true" })
+	private boolean readOnly;
+
+	private EntityManager em;
+
+	@Setup
+	public void setup() {
+		em = H2Datenbank.getEntityManagerFactory().createEntityManager();
+		final List<Artikel> artikel = em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL, Artikel.class)
+				                        .getResultList();
+		em.getTransaction().begin();
+		final AbstractKunde kunde = em.getReference(AbstractKunde.class, KUNDE_ID);
+		for (int i = 0; i < ANZAHL_BESTELLUNGEN; i++) {
+			final List<Bestellposition> bestellpositionen = new ArrayList<>(ANZAHL_POSITIONEN);
+			for (int j = 0; j < ANZAHL_POSITIONEN; j++) {
+				bestellpositionen.add(new Bestellposition(artikel.get((i + j) % artikel.size()), Long.valueOf(1)));
+			}
+			final Bestellung bestellung = new Bestellung(bestellpositionen);
+			bestellung.setKunde(kunde);
+			em.persist(bestellung);
+		}
+		em.getTransaction().commit();
+	}
+
+	@TearDown
+	public void tearDown() {
+		em.close();
+		H2Datenbank.schliessen();
+	}
+
+	@Benchmark
+	public List<Bestellung> bestellhistorie() {
+		// Neuer Persistenzkontext je Transaktion wie bei JTA
+		em.clear();
+		em.getTransaction().begin();
+		final Session session = em.unwrap(Session.class);
+		// wie TransactionalInterceptor
+		session.setDefaultReadOnly(readOnly);
+		session.setFlushMode(readOnly ? FlushMode.MANUAL : FlushMode.AUTO);
+
+		final List<Bestellung> bestellungen =
+				em.createNamedQuery(Bestellung.FIND_BESTELLUNGEN_BY_KUNDE_ID_FETCH_BESTELLPOSITIONEN, Bestellung.class)
+				  .setParameter(Bestellung.PARAM_KUNDE_ID, KUNDE_ID)
+				  .getResultList();
+		em.getTransaction().commit();
+		return bestellungen;
+	}
+}
@@ -0,0 +1,114 @@
+package de.shop.util;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+
+/**
+ * ValidatorProvider.getValidator fuer konfigurierte Locales und Fallbacks sowie die schnelle Pruefung eines
+ * Nachnamens wie in KundeService.validateNachname im Vergleich zu Validator.validateValue
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorProviderBenchmark {
+	private static final Pattern NACHNAME_PATTERN = Pattern.compile(AbstractKunde.NACHNAME_PATTERN);
+
+	@Benchmark
+	public Validator getValidator(Locales locales) {
+		return locales.validatorProvider.getValidator(locales.locale);
+	}
+
+	@Benchmark
+	public boolean nachnameSchnellePruefung(Nachnamen nachnamen) {
+		final String nachname = nachnamen.nachname;
+		return nachname != null
+			   && nachname.length() >= AbstractKunde.NACHNAME_LENGTH_MIN
+			   && nachname.length() <= AbstractKunde.NACHNAME_LENGTH_MAX
+			   && NACHNAME_PATTERN.matcher(nachname).matches();
+	}
+
+	@Benchmark
+	public Set<ConstraintViolation<AbstractKunde>> nachnameBeanValidation(Nachnamen nachnamen) {
+		return nachnamen.validator.validateValue(AbstractKunde.class, "nachname", nachnamen.nachname);
+	}
+
+	/**
+	 * ValidatorProvider wie im Container mit den Locales de und en und der Default-Locale de
+	 */
+	static ValidatorProvider createValidatorProvider() throws ReflectiveOperationException {
+		final Config config = new Config();
+		config.setLocales(Arrays.asList(Locale.GERMAN, Locale.ENGLISH));
+		config.setDefaultLocale(Locale.GERMAN);
+
+		final ValidatorProvider validatorProvider = new ValidatorProvider();
+		final Field configField = ValidatorProvider.class.getDeclaredField("config");
+		configField.setAccessible(true);
+		configField.set(validatorProvider, config);
+		final Method init = ValidatorProvider.class.getDeclaredMethod("init");
+		init.setAccessible(true);
+		try {
+			init.invoke(validatorProvider);
+		}
+		catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		return validatorProvider;
+	}
+
+	@State(Scope.Benchmark)
+	public static class Locales {
+		// de: konfiguriert, de_DE: Fallback auf de, fr: Fallback auf die Default-Locale
+		@Param({ "de", "de_DE", "fr" })
+		private String localeStr;
+
+		private ValidatorProvider validatorProvider;
+		private Locale locale;
+
+		@Setup
+		public void setup() throws ReflectiveOperationException {
+			validatorProvider = createValidatorProvider();
+			final String[] teile = localeStr.split("_");
+			locale = teile.length == 1 ? new Locale(teile[0]) : new Locale(teile[0], teile[1]);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Nachnamen {
+		@Param({ "Alpha", "von Delta-Epsilon" })
+		private String nachname;
+
+		private Validator validator;
+
+		@Setup
+		public void setup() throws ReflectiveOperationException {
+			validator = createValidatorProvider().getValidator(Locale.GERMAN);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package de.shop.artikelverwaltung.domain;
 
+import static de.shop.util.Constants.ERSTE_VERSION;
+import static de.shop.util.Constants.ID_BLOCK_STAMMDATEN;
 import static de.shop.util.Constants.KEINE_ID;
 import static de.shop.util.Constants.MIN_ID;
 import static javax.persistence.TemporalType.TIMESTAMP;
@@ -9,6 +11,8 @@ import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.util.Date;
 
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -18,8 +22,11 @@ import javax.persistence.NamedQuery;
 import javax.persistence.PostPersist;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.QueryHint;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
+import javax.persistence.Version;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -29,21 +36,25 @@ import org.codehaus.jackson.annotate.JsonIgnore;
 import org.jboss.logging.Logger;
 
 import de.shop.util.IdGroup;
+import de.shop.util.QueryCache;
 
 
 
 @Entity
 @Table(name = "artikel")
+@Cacheable
 @NamedQueries({
 	@NamedQuery(name  = Artikel.FIND_VERFUEGBARE_ARTIKEL,
             	query = "SELECT      a"
             	        + " FROM     Artikel a"
 						+ " WHERE    a.verfuegbar = TRUE"
-                        + " ORDER BY a.id ASC"),
+                        + " ORDER BY a.id ASC",
+            	hints = { @QueryHint(name = QueryCache.CACHEABLE, value = "true"),
+            	          @QueryHint(name = QueryCache.REGION, value = QueryCache.REGION_ARTIKEL) }),
 	@NamedQuery(name  = Artikel.FIND_ARTIKEL_BY_SUCHBEGRIFF,
             	query = "SELECT      a"
                         + " FROM     Artikel a"
-						+ " WHERE    a.artikelBezeichnung LIKE :" + Artikel.PARAM_SUCHBEGRIFF
+						+ " WHERE    LOWER(a.artikelBezeichnung) LIKE :" + Artikel.PARAM_SUCHBEGRIFF + " ESCAPE '\\'"
 						+ "          AND a.verfuegbar = TRUE"
 			 	        + " ORDER BY a.id ASC"),
    	@NamedQuery(name  = Artikel.FIND_ARTIKEL_MAX_PREIS,
@@ -54,7 +65,17 @@ import de.shop.util.IdGroup;
 	@NamedQuery(name = Artikel.FIND_ARTIKEL_BY_BEZEICHNUNG,
 				query = "SELECT		 a"
 						+ " FROM	 Artikel a"
-						+ " WHERE    a.artikelBezeichnung = :" + Artikel.PARAM_BEZEICHNUNG)
+						+ " WHERE    a.artikelBezeichnung = :" + Artikel.PARAM_BEZEICHNUNG),
+	@NamedQuery(name  = Artikel.FIND_ARTIKEL_BY_IDS,
+				query = "SELECT      a"
+						+ " FROM     Artikel a"
+						+ " WHERE    a.id IN :" + Artikel.PARAM_IDS),
+	@NamedQuery(name  = Artikel.FIND_VERFUEGBARE_ARTIKEL_UEBERSICHT,
+				query = "SELECT      NEW de.shop.artikelverwaltung.domain.ArtikelUebersicht"
+						+ "          (a.id, a.artikelBezeichnung, a.preis)"
+						+ " FROM     Artikel a"
+						+ " WHERE    a.verfuegbar = TRUE"
+						+ " ORDER BY a.id ASC")
 })
 public class Artikel implements Serializable  {
 	
@@ -66,8 +87,11 @@ public class Artikel implements Serializable  {
 	public static final String FIND_ARTIKEL_BY_SUCHBEGRIFF = PREFIX + "findArtikelBySuchbegriff";
 	public static final String FIND_ARTIKEL_MAX_PREIS = PREFIX + "findArtikelByMaxPreis";
 	public static final String FIND_ARTIKEL_BY_BEZEICHNUNG = PREFIX + "findArtikelByBezeichnung";
-	
+	public static final String FIND_ARTIKEL_BY_IDS = PREFIX + "findArtikelByIds";
+	public static final String FIND_VERFUEGBARE_ARTIKEL_UEBERSICHT = PREFIX + "findVerfuegbareArtikelUebersicht";
+
 	public static final String PARAM_BEZEICHNUNG = "bezeichnung";
+	public static final String PARAM_IDS = "ids";
 	public static final String PARAM_PREIS = "preis";
 	public static final String PARAM_SUCHBEGRIFF = "suchbegriff";
 	
@@ -76,11 +100,17 @@ public class Artikel implements Serializable  {
 	public static final int PREIS_MINIMUM = 0;
 	
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "artikel_seq")
+	@SequenceGenerator(name = "artikel_seq", sequenceName = "artikel_seq",
+	                   allocationSize = ID_BLOCK_STAMMDATEN)
 	@Column(nullable = false, updatable = false)
 	@Min(value = MIN_ID, message = "{artikelverwaltung.artikel.id.min}", groups = IdGroup.class)
 	private Long id = KEINE_ID;
 	
+	@Version
+	@Basic(optional = false)
+	private int version = ERSTE_VERSION;
+	
 	@Column(length = ARTIKELBEZEICHNUNG_LENGTH_MAX, nullable = false)
 	@NotNull(message = "{artikelverwaltung.artikel.artikelbezeichnung.notNull}")
 	@Size(min = ARTIKELBEZEICHNUNG_LENGTH_MIN, max = ARTIKELBEZEICHNUNG_LENGTH_MAX,
@@ -110,6 +140,12 @@ public class Artikel implements Serializable  {
 	public void setId(Long id) {
 		this.id = id;
 	}
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
 	public String getArtikelBezeichnung() {
 		return artikelBezeichnung;
 	}
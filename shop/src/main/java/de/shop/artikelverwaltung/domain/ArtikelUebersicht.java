@@ -0,0 +1,42 @@
+package de.shop.artikelverwaltung.domain;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import de.shop.util.Uebersicht;
+
+
+/**
+ * Unveraenderliche Projektion eines Artikels fuer Listen
+ */
+public class ArtikelUebersicht implements Uebersicht, Serializable {
+	private static final long serialVersionUID = 7315592806841129563L;
+
+	private final Long id;
+	private final String artikelBezeichnung;
+	private final BigDecimal preis;
+
+	public ArtikelUebersicht(Long id, String artikelBezeichnung, BigDecimal preis) {
+		this.id = id;
+		this.artikelBezeichnung = artikelBezeichnung;
+		this.preis = preis;
+	}
+
+	@Override
+	public Long getId() {
+		return id;
+	}
+
+	public String getArtikelBezeichnung() {
+		return artikelBezeichnung;
+	}
+
+	public BigDecimal getPreis() {
+		return preis;
+	}
+
+	@Override
+	public String toString() {
+		return "ArtikelUebersicht [id=" + id + ", artikelBezeichnung=" + artikelBezeichnung + ", preis=" + preis + "]";
+	}
+}
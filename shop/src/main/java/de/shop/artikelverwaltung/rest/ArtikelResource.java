@@ -4,6 +4,7 @@ import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import java.lang.invoke.MethodHandles;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -21,17 +22,25 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.jboss.logging.Logger;
 
 import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.domain.ArtikelUebersicht;
+import de.shop.artikelverwaltung.service.ArtikelCache;
 import de.shop.artikelverwaltung.service.ArtikelService;
+import de.shop.util.ConditionalGet;
 import de.shop.util.LocaleHelper;
 import de.shop.util.Log;
+import de.shop.util.Metrics;
 import de.shop.util.NotFoundException;
+import de.shop.util.ObjectMapperProvider;
 import de.shop.util.Transactional;
+import de.shop.util.UebersichtOutput;
+import de.shop.util.UriVorlage;
 
 @Path("/artikel")
 @Produces(APPLICATION_JSON)
@@ -39,6 +48,7 @@ import de.shop.util.Transactional;
 @RequestScoped
 @Transactional
 @Log
+@Metrics
 public class ArtikelResource {
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
@@ -48,12 +58,21 @@ public class ArtikelResource {
 	@Context
 	private HttpHeaders headers;
 	
+	@Context
+	private Request request;
+	
 	@Inject
 	private UriHelperArtikel uriHelperArtikel;
 	
 	@Inject
 	private ArtikelService as;
 	
+	@Inject
+	private ArtikelCache artikelCache;
+	
+	@Inject
+	private ObjectMapperProvider objectMapperProvider;
+	
 	@PostConstruct
 	private void postConstruct() {
 		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
@@ -66,7 +85,8 @@ public class ArtikelResource {
 	
 	@GET
 	@Path("{id:[1-9][0-9]*}")
-	public Artikel findArtikelById(@PathParam("id") Long id, @Context UriInfo uriInfo) {
+	@Transactional(readOnly = true)
+	public Response findArtikelById(@PathParam("id") Long id, @Context UriInfo uriInfo) {
 
 		final Locale locale = localeHelper.getLocale(headers);
 		final Artikel artikel = as.findArtikelById(id, locale);
@@ -75,12 +95,18 @@ public class ArtikelResource {
 			throw new NotFoundException(msg);
 		}
 		
-		return artikel;
+		// Der Artikel stammt aus dem Artikel-Cache: der Zeitstempel ist ohne DB-Zugriff verfuegbar
+		final Response nichtGeaendert = ConditionalGet.nichtGeaendert(request, artikel.getAktualisiert());
+		if (nichtGeaendert != null) {
+			return nichtGeaendert;
+		}
+		return ConditionalGet.ok(artikel, artikel.getAktualisiert());
 	}
 	
 	@GET
+	@Transactional(readOnly = true)
 	public List<Artikel> findArtikelBySuchbegriff(@QueryParam("suchbegriff") 
-		@DefaultValue("") String suchbegriff) {
+		@DefaultValue("") String suchbegriff, @QueryParam("limit") @DefaultValue("0") int limit) {
 		final Locale locale = localeHelper.getLocale(headers);
 		
 		List<Artikel> artikelliste = null;
@@ -91,7 +117,8 @@ public class ArtikelResource {
 			}
 		}
 		else {
-			artikelliste = as.findArtikelBySuchbegriff(suchbegriff, locale);
+			// Treffer sortiert nach Relevanz
+			artikelliste = as.findArtikelBySuchbegriff(suchbegriff, limit, locale);
 			if (artikelliste.isEmpty()) {
 				throw new NotFoundException("Unter dem Suchbegriff " + suchbegriff + " wurde kein Artikel gefunden.");
 			}
@@ -99,6 +126,34 @@ public class ArtikelResource {
 		return artikelliste;
 	}
 	
+	/**
+	 * Mit der URL /artikel/uebersicht die verfuegbaren Artikel als Projektionen mit URL ermitteln
+	 */
+	@GET
+	@Path("uebersicht")
+	@Transactional(readOnly = true)
+	public Response findVerfuegbareArtikelUebersicht(@Context UriInfo uriInfo) {
+		final List<ArtikelUebersicht> artikel = as.findVerfuegbareArtikelUebersicht();
+		if (artikel.isEmpty()) {
+			throw new NotFoundException("Keine Artikel vorhanden.");
+		}
+		
+		final UriVorlage uriVorlage = uriHelperArtikel.getUriVorlageArtikel(uriInfo);
+		final UebersichtOutput<ArtikelUebersicht> output =
+				new UebersichtOutput<>(artikel, uriVorlage, objectMapperProvider.getObjectMapper());
+		return Response.ok(output, APPLICATION_JSON).build();
+	}
+	
+	/**
+	 * Treffer, Fehlgriffe und Groesse des Artikel-Caches
+	 */
+	@GET
+	@Path("cache")
+	@Transactional(readOnly = true)
+	public Map<String, Long> getCacheStatistik() {
+		return artikelCache.getStatistik();
+	}
+	
 	@POST
 	@Consumes(APPLICATION_JSON)
 	@Produces
@@ -115,7 +170,16 @@ public class ArtikelResource {
 	public Response updateArtikel(Artikel artikel) {
 		final Locale locale = localeHelper.getLocale(headers);
 		
-		as.updateArtikel(artikel, locale);
+		// If-Match mit dem ETag aus GET /artikel/{id}; der vorhandene Artikel stammt aus dem Artikel-Cache
+		final Artikel vorhandenerArtikel = as.findArtikelById(artikel.getId(), locale);
+		if (vorhandenerArtikel == null) {
+			throw new NotFoundException("Kein Artikel gefunden mit der ID " + artikel.getId());
+		}
+		ConditionalGet.pruefenIfMatch(request, vorhandenerArtikel.getAktualisiert());
+		
+		if (as.updateArtikel(artikel, locale) == null) {
+			throw new NotFoundException("Kein Artikel gefunden mit der ID " + artikel.getId());
+		}
 		
 		return Response.noContent().build();
 	}
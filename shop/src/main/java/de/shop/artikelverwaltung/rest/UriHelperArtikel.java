@@ -3,20 +3,24 @@ package de.shop.artikelverwaltung.rest;
 import java.net.URI;
 
 import javax.enterprise.context.ApplicationScoped;
-import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import de.shop.artikelverwaltung.domain.Artikel;
-
+import de.shop.util.UriVorlage;
+import de.shop.util.UriVorlagen;
+
 
 @ApplicationScoped
 public class UriHelperArtikel {
+	private final UriVorlagen artikelVorlagen = new UriVorlagen(ArtikelResource.class, "findArtikelById");
+	
 	public URI getUriArtikel(Artikel artikel, UriInfo uriInfo) {
-		final UriBuilder ub = uriInfo.getBaseUriBuilder()
-		                             .path(ArtikelResource.class)
-		                             .path(ArtikelResource.class, "findArtikelById");
-		final URI uri = ub.build(artikel.getId());
+		final URI uri = artikelVorlagen.getUri(uriInfo, artikel.getId());
 		return uri;
 	}
-	
+	
+	public UriVorlage getUriVorlageArtikel(UriInfo uriInfo) {
+		return artikelVorlagen.getUriVorlage(uriInfo);
+	}
+	
 }
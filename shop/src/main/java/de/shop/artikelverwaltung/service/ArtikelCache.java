@@ -0,0 +1,286 @@
+package de.shop.artikelverwaltung.service;
+
+import static javax.enterprise.event.TransactionPhase.AFTER_SUCCESS;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+
+/**
+ * Katalog der verfuegbaren Artikel im Hauptspeicher. Der Katalog ist ein unveraenderlicher Schnappschuss,
+ * der nach einer Aenderung mit einer einzigen Abfrage neu geladen wird.
+ * Der Katalog enthaelt immer alle verfuegbaren Artikel und ist deshalb nicht in der Groesse begrenzt:
+ * findVerfuegbareArtikel und der Suchindex ueber die Artikelbezeichnungen brauchen das vollstaendige
+ * Sortiment, und dessen Umfang haengt nicht von der Last ab. Nicht mehr verfuegbare Artikel, die ueber
+ * ihre ID gesucht werden, wachsen dagegen mit der Zeit und landen in einem LRU-Cache mit hoechstens
+ * NICHT_VERFUEGBAR_MAX Eintraegen.
+ * Die gecachten Artikel sind detached und werden von mehreren Threads gemeinsam genutzt:
+ * sie duerfen deshalb nur gelesen und nicht veraendert werden.
+ */
+@ApplicationScoped
+public class ArtikelCache implements Serializable {
+	private static final long serialVersionUID = 8011916417318446839L;
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final int NICHT_VERFUEGBAR_MAX = 1000;
+	
+	@Inject
+	private ArtikelCacheLader lader;
+	
+	@Inject
+	private ArtikelCacheInitialisierung initialisierung;
+	
+	private transient volatile Katalog katalog;
+	
+	// Ein Neuaufbau ist angestossen, hat aber noch nicht begonnen: weitere Aenderungen loesen keinen weiteren aus
+	private final AtomicBoolean aufbauGeplant = new AtomicBoolean();
+	
+	private final Lock aufbau = new ReentrantLock();
+	
+	private final Map<Long, Artikel> nichtVerfuegbar = new LinkedHashMap<Long, Artikel>(64, 0.75f, true) {
+		private static final long serialVersionUID = -4397431522785271137L;
+
+		@Override
+		protected boolean removeEldestEntry(Entry<Long, Artikel> eldest) {
+			return size() > NICHT_VERFUEGBAR_MAX;
+		}
+	};
+	
+	// Wird bei jeder Aenderung erhoeht, damit ein parallel geladener, veralteter Katalog verworfen wird
+	private final AtomicLong generation = new AtomicLong();
+	
+	private final AtomicLong treffer = new AtomicLong();
+	private final AtomicLong fehlgriffe = new AtomicLong();
+	private final AtomicLong ladevorgaenge = new AtomicLong();
+	
+	/**
+	 * Unveraenderlicher Schnappschuss der verfuegbaren Artikel
+	 */
+	private static final class Katalog {
+		private final List<Artikel> verfuegbar;
+		private final Map<Long, Artikel> byId;
+		private final Map<String, Artikel> byBezeichnung;
+		private final ArtikelSuchindex suchindex;
+		
+		private Katalog(List<Artikel> artikel) {
+			verfuegbar = Collections.unmodifiableList(new ArrayList<>(artikel));
+			final Map<Long, Artikel> ids = new HashMap<>(artikel.size() * 2);
+			final Map<String, Artikel> bezeichnungen = new HashMap<>(artikel.size() * 2);
+			for (Artikel a : artikel) {
+				ids.put(a.getId(), a);
+				bezeichnungen.put(a.getArtikelBezeichnung(), a);
+			}
+			byId = Collections.unmodifiableMap(ids);
+			byBezeichnung = Collections.unmodifiableMap(bezeichnungen);
+			suchindex = new ArtikelSuchindex(verfuegbar);
+		}
+	}
+	
+	/**
+	 * Alle verfuegbaren Artikel sortiert nach der ID
+	 * @return unveraenderliche Liste
+	 */
+	public List<Artikel> findVerfuegbareArtikel() {
+		return getKatalog().verfuegbar;
+	}
+	
+	/**
+	 * Einen Artikel anhand der ID suchen, egal ob er verfuegbar ist oder nicht
+	 * @return Artikel oder null, falls kein Artikel mit dieser ID existiert
+	 */
+	public Artikel findArtikelById(Long id) {
+		Artikel artikel = getKatalog().byId.get(id);
+		if (artikel != null) {
+			treffer.incrementAndGet();
+			return artikel;
+		}
+		
+		synchronized (nichtVerfuegbar) {
+			artikel = nichtVerfuegbar.get(id);
+		}
+		if (artikel != null) {
+			treffer.incrementAndGet();
+			return artikel;
+		}
+		
+		fehlgriffe.incrementAndGet();
+		final long gen = generation.get();
+		artikel = lader.findArtikelById(id);
+		if (artikel != null) {
+			synchronized (nichtVerfuegbar) {
+				if (generation.get() == gen) {
+					nichtVerfuegbar.put(id, artikel);
+				}
+			}
+		}
+		return artikel;
+	}
+	
+	/**
+	 * Einen verfuegbaren Artikel anhand der Bezeichnung suchen
+	 * @return Artikel oder null, falls es keinen verfuegbaren Artikel mit dieser Bezeichnung gibt
+	 */
+	public Artikel findVerfuegbarenArtikelByBezeichnung(String bezeichnung) {
+		final Artikel artikel = getKatalog().byBezeichnung.get(bezeichnung);
+		if (artikel == null) {
+			fehlgriffe.incrementAndGet();
+		}
+		else {
+			treffer.incrementAndGet();
+		}
+		return artikel;
+	}
+	
+	/**
+	 * Verfuegbare Artikel ueber den Suchindex suchen, deren Bezeichnung den Suchbegriff enthaelt.
+	 * Gesucht wird nur in einem aktuellen Katalog. Wird er gerade neu aufgebaut, wird nicht gewartet,
+	 * sondern null zurueckgeliefert. Ist der Katalog verworfen und wird nicht aufgebaut, z.B. weil der
+	 * asynchrone Neuaufbau gescheitert ist, wird er geladen.
+	 * @param suchbegriff Suchbegriff ohne Beachtung der Gross- und Kleinschreibung
+	 * @param limit maximale Anzahl Treffer; 0 fuer alle Treffer
+	 * @return Artikel sortiert nach Relevanz oder null, falls der Katalog gerade aufgebaut wird
+	 */
+	public List<Artikel> findArtikelBySuchbegriff(String suchbegriff, int limit) {
+		Katalog k = katalog;
+		if (k == null) {
+			if (!aufbau.tryLock()) {
+				fehlgriffe.incrementAndGet();
+				return null;
+			}
+			try {
+				k = getKatalog();
+			}
+			finally {
+				aufbau.unlock();
+			}
+		}
+		treffer.incrementAndGet();
+		return k.suchindex.suche(suchbegriff, limit);
+	}
+	
+	/**
+	 * Den Katalog nach einer erfolgreichen Transaktion verwerfen, in der ein Artikel angelegt,
+	 * geaendert oder geloescht wurde. Der Neuaufbau erfolgt asynchron und nicht im Thread des Requests;
+	 * mehrere Aenderungen kurz hintereinander fuehren zu einem einzigen Neuaufbau.
+	 */
+	public void onArtikelGeaendert(@Observes(during = AFTER_SUCCESS) @ArtikelGeaendert Artikel artikel) {
+		LOGGER.debugf("Artikelkatalog wird verworfen wegen %s", artikel);
+		invalidate();
+		if (!aufbauGeplant.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			initialisierung.aufbauenAsynchron();
+		}
+		catch (RuntimeException e) {
+			// Die Transaktion ist bereits abgeschlossen: der Katalog wird beim naechsten Zugriff geladen
+			aufbauGeplant.set(false);
+			LOGGER.warn("Der Neuaufbau des Artikelkatalogs konnte nicht angestossen werden", e);
+		}
+	}
+	
+	/**
+	 * Den Katalog laden, falls er noch nicht oder nicht mehr geladen ist, z.B. beim Start der Anwendung
+	 */
+	public void aufbauen() {
+		getKatalog();
+	}
+	
+	/**
+	 * Den Katalog nach Aenderungen neu aufbauen; Aufruf durch ArtikelCacheInitialisierung in einem eigenen Thread
+	 */
+	public void aufbauenNachAenderung() {
+		// Aenderungen ab jetzt sind im neuen Katalog evtl. nicht enthalten und stossen einen weiteren Neuaufbau an
+		aufbauGeplant.set(false);
+		aufbauen();
+	}
+	
+	public void invalidate() {
+		synchronized (nichtVerfuegbar) {
+			generation.incrementAndGet();
+			katalog = null;
+			nichtVerfuegbar.clear();
+		}
+	}
+	
+	public long getTreffer() {
+		return treffer.get();
+	}
+	
+	public long getFehlgriffe() {
+		return fehlgriffe.get();
+	}
+	
+	public long getLadevorgaenge() {
+		return ladevorgaenge.get();
+	}
+	
+	/**
+	 * Statistik fuer den Cache
+	 * @return Map mit Treffern, Fehlgriffen, Ladevorgaengen und Anzahl der gecachten Artikel
+	 */
+	public Map<String, Long> getStatistik() {
+		final Katalog k = katalog;
+		final Map<String, Long> statistik = new LinkedHashMap<>();
+		statistik.put("treffer", treffer.get());
+		statistik.put("fehlgriffe", fehlgriffe.get());
+		statistik.put("ladevorgaenge", ladevorgaenge.get());
+		statistik.put("verfuegbar", k == null ? 0L : k.verfuegbar.size());
+		synchronized (nichtVerfuegbar) {
+			statistik.put("nichtVerfuegbar", Long.valueOf(nichtVerfuegbar.size()));
+		}
+		return statistik;
+	}
+	
+	private Katalog getKatalog() {
+		Katalog k = katalog;
+		if (k != null) {
+			return k;
+		}
+		
+		aufbau.lock();
+		try {
+			k = katalog;
+			if (k == null) {
+				final long gen = generation.get();
+				// Eigene Transaktion: keine ungespeicherten Artikel des Aufrufers und kein detach seiner Entities
+				final List<Artikel> artikel = lader.findVerfuegbareArtikel();
+				k = new Katalog(artikel);
+				synchronized (nichtVerfuegbar) {
+					if (generation.get() == gen) {
+						katalog = k;
+					}
+				}
+				ladevorgaenge.incrementAndGet();
+				LOGGER.debugf("Artikelkatalog mit %d Artikeln geladen", artikel.size());
+			}
+		}
+		finally {
+			aufbau.unlock();
+		}
+		return k;
+	}
+	
+	@Override
+	public String toString() {
+		return "ArtikelCache " + getStatistik();
+	}
+}
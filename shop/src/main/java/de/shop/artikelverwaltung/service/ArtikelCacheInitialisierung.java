@@ -0,0 +1,45 @@
+package de.shop.artikelverwaltung.service;
+
+import java.lang.invoke.MethodHandles;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Asynchronous;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Artikelkatalog und Suchindex beim Start der Anwendung aufbauen, damit die erste Suche nicht
+ * auf den Aufbau warten muss, und nach Aenderungen asynchron neu aufbauen
+ */
+@Singleton
+@Startup
+public class ArtikelCacheInitialisierung {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	@Inject
+	private ArtikelCache artikelCache;
+	
+	@PostConstruct
+	private void init() {
+		artikelCache.aufbauen();
+		LOGGER.infof("Artikelkatalog aufgebaut: %s", artikelCache.getStatistik());
+	}
+	
+	/**
+	 * Neuaufbau in einem Thread des Containers mit eigener Transaktion, damit der schreibende Request
+	 * nicht auf das Laden aller Artikel und den Aufbau des Suchindex wartet
+	 */
+	@Asynchronous
+	public void aufbauenAsynchron() {
+		try {
+			artikelCache.aufbauenNachAenderung();
+		}
+		catch (RuntimeException e) {
+			// Der Katalog wird beim naechsten Zugriff geladen
+			LOGGER.warn("Der Artikelkatalog konnte nicht neu aufgebaut werden", e);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package de.shop.artikelverwaltung.service;
+
+import static javax.ejb.TransactionAttributeType.REQUIRES_NEW;
+
+import java.util.List;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+
+/**
+ * Laden fuer den ArtikelCache in einer eigenen Transaktion und damit in einem eigenen Persistenzkontext.
+ * Der Cache sieht so nur committete Artikel, auch wenn er innerhalb einer schreibenden Transaktion nach
+ * einem automatischen Flush geladen wird. Die Entities des Aufrufers bleiben managed; die geladenen Artikel
+ * sind mit dem Ende der eigenen Transaktion detached.
+ */
+@Stateless
+public class ArtikelCacheLader {
+	@PersistenceContext
+	private EntityManager em;
+	
+	/**
+	 * Alle verfuegbaren Artikel sortiert nach der ID
+	 */
+	@TransactionAttribute(REQUIRES_NEW)
+	public List<Artikel> findVerfuegbareArtikel() {
+		return em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL, Artikel.class)
+				 .getResultList();
+	}
+	
+	/**
+	 * Einen Artikel anhand der ID laden, egal ob er verfuegbar ist oder nicht
+	 * @return Artikel oder null, falls kein Artikel mit dieser ID existiert
+	 */
+	@TransactionAttribute(REQUIRES_NEW)
+	public Artikel findArtikelById(Long id) {
+		return em.find(Artikel.class, id);
+	}
+}
@@ -1,25 +1,27 @@
 package de.shop.artikelverwaltung.service;
 
+import static de.shop.util.Constants.MIN_ID;
+
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.PersistenceContext;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Path;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import javax.validation.groups.Default;
@@ -29,20 +31,34 @@ import org.jboss.logging.Logger;
 import com.google.common.base.Strings;
 
 import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.domain.ArtikelUebersicht;
 import de.shop.util.IdGroup;
 import de.shop.util.Log;
+import de.shop.util.Metrics;
 import de.shop.util.ValidatorProvider;
 
 @Log
+@Metrics
 public class ArtikelService implements Serializable {
 	
 	private static final long serialVersionUID = -5105686816948437276L;
 
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
+	// Hoechstens 128 IDs pro IN-Liste: zusammen mit dem Auffuellen auf Zweierpotenzen
+	// gibt es fuer findArtikelMapByIds nur 8 verschiedene SQL-Anweisungen
+	private static final int IN_LISTE_MAX = 128;
+	
 	@Inject
 	private ValidatorProvider validatorProvider;
 	
+	@Inject
+	private ArtikelCache artikelCache;
+	
+	@Inject
+	@ArtikelGeaendert
+	private transient Event<Artikel> event;
+	
 	@PersistenceContext
 	private transient EntityManager em;
 	
@@ -57,63 +73,121 @@ public class ArtikelService implements Serializable {
 	}
 	
 	public List<Artikel> findVerfuegbareArtikel() {
-		final List<Artikel> result = em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL, Artikel.class)
-				                       .getResultList();
-		return result;
+		return artikelCache.findVerfuegbareArtikel();
+	}
+	
+	/**
+	 * Verfuegbare Artikel als unveraenderliche Projektionen, sortiert nach der ID
+	 */
+	public List<ArtikelUebersicht> findVerfuegbareArtikelUebersicht() {
+		final List<ArtikelUebersicht> artikel = em.createNamedQuery(Artikel.FIND_VERFUEGBARE_ARTIKEL_UEBERSICHT,
+				                                                    ArtikelUebersicht.class)
+				                                  .getResultList();
+		return artikel;
 	}
 	
 	public Artikel findArtikelById(Long artikelId, Locale locale) {
 		validateArtikelId(artikelId, locale, IdGroup.class);
-		final Artikel artikel =em.find(Artikel.class, artikelId);
+		final Artikel artikel = artikelCache.findArtikelById(artikelId);
 		return artikel;
 	}
 	
 	public List<Artikel> findArtikelByIds(List<Long> ids) {
-		if (ids == null || ids.isEmpty()) {
+		final Map<Long, Artikel> artikel = findArtikelMapByIds(ids);
+		if (artikel.isEmpty()) {
 			return Collections.emptyList();
 		}
-		
-		final CriteriaBuilder builder = em.getCriteriaBuilder();
-		final CriteriaQuery<Artikel> criteriaQuery = builder.createQuery(Artikel.class);
-		final Root<Artikel> a = criteriaQuery.from(Artikel.class);
+		return new ArrayList<>(artikel.values());
+	}
 
-		final Path<Long> idPath = a.get("id");
-		
-		Predicate pred = null;
-		if (ids.size() == 1) {
-			// Genau 1 id: kein OR notwendig
-			pred = builder.equal(idPath, ids.get(0));
-		}
-		else {
-			// Mind. 2x id, durch OR verknuepft
-			final Predicate[] equals = new Predicate[ids.size()];
-			int i = 0;
-			for (Long id : ids) {
-				equals[i++] = builder.equal(idPath, id);
-			}
-			
-			pred = builder.or(equals);
+	/**
+	 * Artikel zu mehreren IDs mengenorientiert ermitteln.
+	 * Die IDs werden in Bloecken mit hoechstens IN_LISTE_MAX Elementen abgefragt. Jeder Block wird auf die
+	 * naechste Zweierpotenz aufgefuellt, indem die letzte ID wiederholt wird. Dadurch gibt es nur wenige
+	 * verschiedene SQL-Anweisungen, die im Statement-Cache des Treibers und im Plan-Cache der DB verbleiben.
+	 * @param ids IDs der gesuchten Artikel; Duplikate und null werden ignoriert
+	 * @return Map mit der ID als Schluessel; nicht gefundene Artikel fehlen in der Map
+	 */
+	public Map<Long, Artikel> findArtikelMapByIds(Collection<Long> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return Collections.emptyMap();
 		}
-		
-		criteriaQuery.where(pred);
-		
-		final TypedQuery<Artikel> query = em.createQuery(criteriaQuery);
 
-		final List<Artikel> artikel = query.getResultList();
+		final Set<Long> idSet = new LinkedHashSet<>(ids);
+		idSet.remove(null);
+		final List<Long> idListe = new ArrayList<>(idSet);
+		final Map<Long, Artikel> artikel = new HashMap<>(idListe.size() * 2);
+		for (int von = 0; von < idListe.size(); von += IN_LISTE_MAX) {
+			final int bis = Math.min(von + IN_LISTE_MAX, idListe.size());
+			final List<Artikel> block = em.createNamedQuery(Artikel.FIND_ARTIKEL_BY_IDS, Artikel.class)
+					                      .setParameter(Artikel.PARAM_IDS, auffuellen(idListe.subList(von, bis)))
+					                      .getResultList();
+			for (Artikel a : block) {
+				artikel.put(a.getId(), a);
+			}
+		}
 		return artikel;
 	}
+
+	/**
+	 * Eine Liste von IDs auf die naechste Zweierpotenz auffuellen, indem die letzte ID wiederholt wird
+	 */
+	static List<Long> auffuellen(List<Long> ids) {
+		final int anzahl = ids.size();
+		final int groesse = anzahl <= 1 ? 1 : Integer.highestOneBit(anzahl - 1) << 1;
+		if (groesse == anzahl) {
+			return ids;
+		}
+
+		final List<Long> aufgefuellt = new ArrayList<>(groesse);
+		aufgefuellt.addAll(ids);
+		final Long letzte = ids.get(anzahl - 1);
+		while (aufgefuellt.size() < groesse) {
+			aufgefuellt.add(letzte);
+		}
+		return aufgefuellt;
+	}
 	
 	public List<Artikel> findArtikelBySuchbegriff(String suchbegriff, Locale locale) {
+		return findArtikelBySuchbegriff(suchbegriff, 0, locale);
+	}
+	
+	/**
+	 * Verfuegbare Artikel suchen, deren Bezeichnung den Suchbegriff enthaelt
+	 * @param suchbegriff Suchbegriff; ohne Suchbegriff werden alle verfuegbaren Artikel geliefert
+	 * @param limit maximale Anzahl Treffer; 0 fuer alle Treffer
+	 * @param locale Locale fuer die Fehlermeldungen
+	 * @return Artikel sortiert nach Relevanz: Praefix, Wortanfang, Position, Laenge der Bezeichnung
+	 */
+	public List<Artikel> findArtikelBySuchbegriff(String suchbegriff, int limit, Locale locale) {
 		if (Strings.isNullOrEmpty(suchbegriff)) {
 			final List<Artikel> artikel = findVerfuegbareArtikel();
-			return artikel;
+			return limit > 0 && limit < artikel.size() ? artikel.subList(0, limit) : artikel;
 		}
 		validateBezeichnung(suchbegriff, locale);
 		
-		final List<Artikel> artikel = em.createNamedQuery(Artikel.FIND_ARTIKEL_BY_SUCHBEGRIFF, Artikel.class)
-				                        .setParameter(Artikel.PARAM_SUCHBEGRIFF, "%" + suchbegriff + "%")
+		final List<Artikel> artikel = artikelCache.findArtikelBySuchbegriff(suchbegriff, limit);
+		if (artikel != null) {
+			return artikel;
+		}
+		
+		// Der Katalog wird nach einer Aenderung gerade neu aufgebaut: die DB liefert den committeten Stand.
+		// Gesucht wird wie im Suchindex ohne Gross- und Kleinschreibung; das Ranking uebernimmt ein Suchindex
+		// ueber die Treffer, damit Treffer und Reihenfolge nicht vom Zeitpunkt der Suche abhaengen.
+		LOGGER.debugf("findArtikelBySuchbegriff: DB-Abfrage fuer %s", suchbegriff);
+		final String muster = "%" + escapeLike(ArtikelSuchindex.normalisieren(suchbegriff)) + "%";
+		final List<Artikel> treffer = em.createNamedQuery(Artikel.FIND_ARTIKEL_BY_SUCHBEGRIFF, Artikel.class)
+				                        .setParameter(Artikel.PARAM_SUCHBEGRIFF, muster)
 				                        .getResultList();
-		return artikel;
+		return new ArtikelSuchindex(treffer).suche(suchbegriff, limit);
+	}
+	
+	/**
+	 * %, _ und \ im Suchbegriff fuer LIKE ... ESCAPE '\' maskieren, damit sie wie im Suchindex
+	 * als normale Zeichen gesucht werden
+	 */
+	private static String escapeLike(String str) {
+		return str.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
 	}
 	
 	public Artikel findArtikelByBezeichnung(String bezeichnung, Locale locale) {
@@ -122,10 +196,18 @@ public class ArtikelService implements Serializable {
 		}
 		validateBezeichnung(bezeichnung, locale);
 		
-		final Artikel artikel = em.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZEICHNUNG, Artikel.class)
-								.setParameter(Artikel.PARAM_BEZEICHNUNG, bezeichnung)
-								.getSingleResult();
-		return artikel;
+		final Artikel verfuegbarerArtikel = artikelCache.findVerfuegbarenArtikelByBezeichnung(bezeichnung);
+		if (verfuegbarerArtikel != null) {
+			return verfuegbarerArtikel;
+		}
+		
+		// Nicht mehr verfuegbare Artikel sind nicht im Cache; eine neue Bezeichnung, z.B. beim Umbenennen,
+		// gibt es auch in der DB noch nicht
+		final List<Artikel> artikel = em.createNamedQuery(Artikel.FIND_ARTIKEL_BY_BEZEICHNUNG, Artikel.class)
+				                        .setParameter(Artikel.PARAM_BEZEICHNUNG, bezeichnung)
+				                        .setMaxResults(1)
+				                        .getResultList();
+		return artikel.isEmpty() ? null : artikel.get(0);
 	}
 	
 	public List<Artikel> findArtikelByMaxPreis(double preis) {
@@ -153,6 +235,7 @@ public class ArtikelService implements Serializable {
 		}
 		
 		em.persist(artikel);
+		event.fire(artikel);
 		return artikel;
 	}
 	
@@ -163,17 +246,27 @@ public class ArtikelService implements Serializable {
 		
 		validateArtikel(artikel, locale, Default.class, IdGroup.class);
 		
-		em.detach(artikel);
+		final Artikel tmp = findArtikelByBezeichnung(artikel.getArtikelBezeichnung(), locale);
+		if (tmp != null && tmp.getId().longValue() != artikel.getId().longValue()) {
+			throw new BezeichnungExistsException(artikel.getArtikelBezeichnung());
+		}
 		
-		final Artikel	tmp = findArtikelByBezeichnung(artikel.getArtikelBezeichnung(), locale);
-		if (tmp != null) {
-			em.detach(tmp);
-			if (tmp.getId().longValue() != artikel.getId().longValue()) {
-				throw new BezeichnungExistsException(artikel.getArtikelBezeichnung());
-			}
+		// Optimistic Locking: die Version aus dem JSON-Datensatz muss zur Version in der DB passen
+		final Artikel vorhandenerArtikel = em.find(Artikel.class, artikel.getId());
+		if (vorhandenerArtikel == null) {
+			return null;
+		}
+		if (vorhandenerArtikel.getVersion() != artikel.getVersion()) {
+			throw new OptimisticLockException("Der Artikel mit der ID " + artikel.getId()
+					                          + " wurde zwischenzeitlich geaendert", null, vorhandenerArtikel);
 		}
-		artikel.setErzeugt(tmp.getErzeugt());
+		artikel.setErzeugt(vorhandenerArtikel.getErzeugt());
 		em.merge(artikel);
+		
+		// Ein gleichzeitiges Update seit em.find faellt erst beim UPDATE mit der Version auf: sofort als
+		// OptimisticLockException und nicht erst beim Commit
+		em.flush();
+		event.fire(artikel);
 		return artikel;
 	}
 	
@@ -186,8 +279,15 @@ public class ArtikelService implements Serializable {
 		if(artikel.isVerfuegbar()== false) {
 			return;
 		}
-		artikel.setVerfuegbar(false);
-		em.merge(artikel);
+		
+		// Das uebergebene Objekt kann aus dem Artikel-Cache stammen und darf deshalb nicht veraendert werden
+		final Artikel persistenterArtikel = em.find(Artikel.class, artikel.getId());
+		if (persistenterArtikel == null) {
+			return;
+		}
+		persistenterArtikel.setVerfuegbar(false);
+		em.merge(persistenterArtikel);
+		event.fire(persistenterArtikel);
 	}
 	
 	private void validateArtikel(Artikel artikel, Locale locale, Class<?>... groups) {
@@ -200,22 +300,30 @@ public class ArtikelService implements Serializable {
 		}
 	}
 	
-	private void validateBezeichnung(String bezeichnung, Locale locale, Class<?>... groups) {
-		final Validator validator = validatorProvider.getValidator(locale);
-		final Artikel artikel = new Artikel();
-		artikel.setId(Long.valueOf(bezeichnung.length()));
-		artikel.setVerfuegbar(true);
-		artikel.setPreis(new BigDecimal(Long.valueOf(bezeichnung.length())));
-		artikel.setArtikelBezeichnung(bezeichnung);
+	private void validateBezeichnung(String bezeichnung, Locale locale) {
+		// Schnelle Pruefung fuer @NotNull und @Size; Bean Validation nur fuer die Fehlermeldungen
+		if (bezeichnung != null
+			&& bezeichnung.length() >= Artikel.ARTIKELBEZEICHNUNG_LENGTH_MIN
+			&& bezeichnung.length() <= Artikel.ARTIKELBEZEICHNUNG_LENGTH_MAX) {
+			return;
+		}
 		
-		final Set<ConstraintViolation<Artikel>> violations = validator.validate(artikel, groups);
-		if (violations != null && !violations.isEmpty()) {
-			LOGGER.debugf("createArtikel: violations=%s", violations);
-			throw new InvalidArtikelException(artikel, violations);
+		final Validator validator = validatorProvider.getValidator(locale);
+		final Set<ConstraintViolation<Artikel>> violations = validator.validateValue(Artikel.class,
+				                                                                     "artikelBezeichnung",
+				                                                                     bezeichnung);
+		if (!violations.isEmpty()) {
+			LOGGER.debugf("validateBezeichnung: violations=%s", violations);
+			throw new InvalidArtikelException(null, violations);
 		}
 	}
 	
 	private void validateArtikelId(Long artikelId, Locale locale, Class<?>... groups) {
+		// Schnelle Pruefung fuer @Min; Bean Validation nur fuer die Fehlermeldungen
+		if (artikelId == null || artikelId >= MIN_ID) {
+			return;
+		}
+		
 		final Validator validator = validatorProvider.getValidator(locale);
 		final Set<ConstraintViolation<Artikel>> violations = validator.validateValue(Artikel.class,
 				                                                                           "id",
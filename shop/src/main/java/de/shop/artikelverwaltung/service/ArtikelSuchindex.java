@@ -0,0 +1,211 @@
+package de.shop.artikelverwaltung.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+
+/**
+ * Unveraenderlicher invertierter Index ueber die Artikelbezeichnungen mit Trigrammen.
+ * Fuer jedes Trigramm gibt es eine sortierte Liste der Artikel, deren Bezeichnung das Trigramm enthaelt.
+ * Eine Suche schneidet die Listen der Trigramme des Suchbegriffs und prueft die wenigen verbleibenden
+ * Kandidaten mit indexOf. Suchbegriffe mit weniger als 3 Zeichen werden direkt ueber alle Bezeichnungen
+ * gesucht. Gross- und Kleinschreibung wird nicht unterschieden.
+ */
+final class ArtikelSuchindex {
+	private static final int N = 3;
+	private static final Locale LOCALE = Locale.GERMAN;
+	private static final int[] LEER = new int[0];
+	
+	private final Artikel[] artikel;
+	private final String[] bezeichnungen;
+	private final Map<String, int[]> trigramme;
+	
+	/**
+	 * Treffer fuer das Ranking: Praefix vor Wortanfang vor Position, dann kuerzere Bezeichnung, dann ID
+	 */
+	private static final class Treffer {
+		private final int index;
+		private final int rang;
+		private final int position;
+		private final int laenge;
+		private final long id;
+		
+		private Treffer(int index, int rang, int position, int laenge, long id) {
+			this.index = index;
+			this.rang = rang;
+			this.position = position;
+			this.laenge = laenge;
+			this.id = id;
+		}
+	}
+	
+	private static final Comparator<Treffer> RANKING = new Comparator<Treffer>() {
+		@Override
+		public int compare(Treffer t1, Treffer t2) {
+			if (t1.rang != t2.rang) {
+				return t1.rang < t2.rang ? -1 : 1;
+			}
+			if (t1.position != t2.position) {
+				return t1.position < t2.position ? -1 : 1;
+			}
+			if (t1.laenge != t2.laenge) {
+				return t1.laenge < t2.laenge ? -1 : 1;
+			}
+			return t1.id < t2.id ? -1 : (t1.id == t2.id ? 0 : 1);
+		}
+	};
+	
+	/**
+	 * @param artikelListe Artikel, die durchsucht werden sollen
+	 */
+	ArtikelSuchindex(List<Artikel> artikelListe) {
+		final int anzahl = artikelListe.size();
+		artikel = artikelListe.toArray(new Artikel[anzahl]);
+		bezeichnungen = new String[anzahl];
+		
+		final Map<String, List<Integer>> postings = new HashMap<>();
+		for (int i = 0; i < anzahl; i++) {
+			final String bezeichnung = normalisieren(artikel[i].getArtikelBezeichnung());
+			bezeichnungen[i] = bezeichnung;
+			for (int pos = 0; pos + N <= bezeichnung.length(); pos++) {
+				final String trigramm = bezeichnung.substring(pos, pos + N);
+				List<Integer> posting = postings.get(trigramm);
+				if (posting == null) {
+					posting = new ArrayList<>();
+					postings.put(trigramm, posting);
+				}
+				// Aufsteigende Indizes: ein Trigramm kann mehrfach in einer Bezeichnung vorkommen
+				if (posting.isEmpty() || posting.get(posting.size() - 1) != i) {
+					posting.add(i);
+				}
+			}
+		}
+		
+		trigramme = new HashMap<>(postings.size() * 2);
+		for (Entry<String, List<Integer>> e : postings.entrySet()) {
+			final List<Integer> posting = e.getValue();
+			final int[] indizes = new int[posting.size()];
+			for (int j = 0; j < indizes.length; j++) {
+				indizes[j] = posting.get(j);
+			}
+			trigramme.put(e.getKey(), indizes);
+		}
+	}
+	
+	/**
+	 * Artikel suchen, deren Bezeichnung den Suchbegriff enthaelt
+	 * @param suchbegriff Suchbegriff
+	 * @param limit maximale Anzahl Treffer; 0 fuer alle Treffer
+	 * @return Artikel sortiert nach Relevanz
+	 */
+	List<Artikel> suche(String suchbegriff, int limit) {
+		final String begriff = normalisieren(suchbegriff);
+		if (begriff.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		final List<Treffer> treffer = new ArrayList<>();
+		if (begriff.length() < N) {
+			for (int i = 0; i < bezeichnungen.length; i++) {
+				pruefen(i, begriff, treffer);
+			}
+		}
+		else {
+			for (int i : kandidaten(begriff)) {
+				pruefen(i, begriff, treffer);
+			}
+		}
+		
+		Collections.sort(treffer, RANKING);
+		final int anzahl = limit > 0 ? Math.min(limit, treffer.size()) : treffer.size();
+		final List<Artikel> ergebnis = new ArrayList<>(anzahl);
+		for (int i = 0; i < anzahl; i++) {
+			ergebnis.add(artikel[treffer.get(i).index]);
+		}
+		return ergebnis;
+	}
+	
+	int size() {
+		return artikel.length;
+	}
+	
+	/**
+	 * Schnittmenge der Posting-Listen aller Trigramme des Suchbegriffs, beginnend mit der kuerzesten Liste
+	 */
+	private int[] kandidaten(String begriff) {
+		final int anzahlTrigramme = begriff.length() - N + 1;
+		final int[][] listen = new int[anzahlTrigramme][];
+		for (int pos = 0; pos < anzahlTrigramme; pos++) {
+			final int[] posting = trigramme.get(begriff.substring(pos, pos + N));
+			if (posting == null) {
+				return LEER;
+			}
+			listen[pos] = posting;
+		}
+		Arrays.sort(listen, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] l1, int[] l2) {
+				return l1.length < l2.length ? -1 : (l1.length == l2.length ? 0 : 1);
+			}
+		});
+		
+		int[] schnitt = listen[0];
+		for (int j = 1; j < listen.length && schnitt.length > 0; j++) {
+			schnitt = schneiden(schnitt, listen[j]);
+		}
+		return schnitt;
+	}
+	
+	private static int[] schneiden(int[] a, int[] b) {
+		final int[] ergebnis = new int[Math.min(a.length, b.length)];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] == b[j]) {
+				ergebnis[k++] = a[i];
+				i++;
+				j++;
+			}
+			else if (a[i] < b[j]) {
+				i++;
+			}
+			else {
+				j++;
+			}
+		}
+		return Arrays.copyOf(ergebnis, k);
+	}
+	
+	private void pruefen(int index, String begriff, List<Treffer> treffer) {
+		final String bezeichnung = bezeichnungen[index];
+		final int position = bezeichnung.indexOf(begriff);
+		if (position < 0) {
+			return;
+		}
+		
+		final int rang;
+		if (position == 0) {
+			rang = 0;
+		}
+		else if (!Character.isLetterOrDigit(bezeichnung.charAt(position - 1))) {
+			rang = 1;
+		}
+		else {
+			rang = 2;
+		}
+		treffer.add(new Treffer(index, rang, position, bezeichnung.length(), artikel[index].getId()));
+	}
+	
+	static String normalisieren(String str) {
+		return str == null ? "" : str.trim().toLowerCase(LOCALE);
+	}
+}
@@ -0,0 +1,167 @@
+package de.shop.bestellverwaltung.domain;
+
+import static javax.persistence.FetchType.LAZY;
+import static javax.persistence.TemporalType.DATE;
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+
+/**
+ * Verkaufte Stueckzahl eines Artikels an einem Tag. Die Zaehler werden fuer jede neue Bestellung
+ * fortgeschrieben, so dass Auswertungen wie die Ladenhueter nicht alle Bestellpositionen lesen muessen.
+ */
+@Entity
+@Table(name = "artikel_absatz")
+@IdClass(ArtikelAbsatzId.class)
+@NamedQueries({
+	@NamedQuery(name  = ArtikelAbsatz.FIND_ARTIKEL_OHNE_ABSATZ,
+	            query = "SELECT      a"
+	                    + " FROM     Artikel a"
+	                    + " WHERE    NOT EXISTS (SELECT x FROM ArtikelAbsatz x"
+	                    + "                      WHERE x.artikel = a AND x.tag >= :" + ArtikelAbsatz.PARAM_SEIT + ")"
+	                    + " ORDER BY a.id ASC"),
+	@NamedQuery(name  = ArtikelAbsatz.FIND_ARTIKEL_IDS_NACH_ABSATZ,
+	            query = "SELECT      x.artikelId, SUM(x.anzahl) AS summe"
+	                    + " FROM     ArtikelAbsatz x"
+	                    + " WHERE    x.tag >= :" + ArtikelAbsatz.PARAM_SEIT
+	                    + " GROUP BY x.artikelId"
+	                    + " ORDER BY summe ASC, x.artikelId ASC"),
+	@NamedQuery(name  = ArtikelAbsatz.COUNT_ABSATZ,
+	            query = "SELECT COUNT(x)"
+	                    + " FROM   ArtikelAbsatz x"),
+	@NamedQuery(name  = ArtikelAbsatz.DELETE_ABSATZ,
+	            query = "DELETE"
+	                    + " FROM   ArtikelAbsatz x"),
+	@NamedQuery(name  = ArtikelAbsatz.FIND_ABSATZ_AUS_BESTELLUNGEN,
+	            query = "SELECT      bp.positionId, bp.artikel.id, b.erzeugt, bp.anzahl"
+	                    + " FROM     Bestellung b JOIN b.bestellpositionen bp"
+	                    + " WHERE    bp.positionId > :" + ArtikelAbsatz.PARAM_POSITION_ID
+	                    + "          AND NOT EXISTS (SELECT o FROM OutboxEreignis o"
+	                    + "                          WHERE o.aggregatId = b.id"
+	                    + "                          AND o.typ = :" + ArtikelAbsatz.PARAM_TYP
+	                    + "                          AND o.status = :" + ArtikelAbsatz.PARAM_STATUS + ")"
+	                    + " ORDER BY bp.positionId ASC")
+})
+public class ArtikelAbsatz implements Serializable {
+	private static final long serialVersionUID = -3986232197437611264L;
+	
+	private static final String PREFIX = "ArtikelAbsatz.";
+	public static final String FIND_ARTIKEL_OHNE_ABSATZ = PREFIX + "findArtikelOhneAbsatz";
+	public static final String FIND_ARTIKEL_IDS_NACH_ABSATZ = PREFIX + "findArtikelIdsNachAbsatz";
+	public static final String COUNT_ABSATZ = PREFIX + "countAbsatz";
+	public static final String DELETE_ABSATZ = PREFIX + "deleteAbsatz";
+	public static final String FIND_ABSATZ_AUS_BESTELLUNGEN = PREFIX + "findAbsatzAusBestellungen";
+	
+	public static final String PARAM_SEIT = "seit";
+	public static final String PARAM_POSITION_ID = "positionId";
+	public static final String PARAM_TYP = "typ";
+	public static final String PARAM_STATUS = "status";
+	
+	@Id
+	@Column(name = "artikel_fk", nullable = false, updatable = false)
+	private Long artikelId;
+	
+	@Id
+	@Column(nullable = false, updatable = false)
+	@Temporal(DATE)
+	private Date tag;
+	
+	// Nur fuer Abfragen; geschrieben wird die Spalte ueber artikelId
+	@ManyToOne(fetch = LAZY)
+	@JoinColumn(name = "artikel_fk", insertable = false, updatable = false)
+	private Artikel artikel;
+	
+	@Column(nullable = false)
+	private long anzahl;
+	
+	@Column(nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date zuletztVerkauft;
+	
+	public ArtikelAbsatz() {
+		super();
+	}
+	
+	public ArtikelAbsatz(Long artikelId, Date tag) {
+		super();
+		this.artikelId = artikelId;
+		this.tag = tag == null ? null : (Date) tag.clone();
+	}
+	
+	/**
+	 * Verkaufte Stueckzahl erhoehen
+	 * @param stueck Anzahl aus einer Bestellposition
+	 * @param zeitpunkt Zeitpunkt der Bestellung
+	 */
+	public void addVerkauf(long stueck, Date zeitpunkt) {
+		anzahl += stueck;
+		if (zeitpunkt != null && (zuletztVerkauft == null || zeitpunkt.after(zuletztVerkauft))) {
+			zuletztVerkauft = (Date) zeitpunkt.clone();
+		}
+	}
+	
+	public Long getArtikelId() {
+		return artikelId;
+	}
+	public void setArtikelId(Long artikelId) {
+		this.artikelId = artikelId;
+	}
+	public Date getTag() {
+		return tag == null ? null : (Date) tag.clone();
+	}
+	public void setTag(Date tag) {
+		this.tag = tag == null ? null : (Date) tag.clone();
+	}
+	public Artikel getArtikel() {
+		return artikel;
+	}
+	public long getAnzahl() {
+		return anzahl;
+	}
+	public void setAnzahl(long anzahl) {
+		this.anzahl = anzahl;
+	}
+	public Date getZuletztVerkauft() {
+		return zuletztVerkauft == null ? null : (Date) zuletztVerkauft.clone();
+	}
+	public void setZuletztVerkauft(Date zuletztVerkauft) {
+		this.zuletztVerkauft = zuletztVerkauft == null ? null : (Date) zuletztVerkauft.clone();
+	}
+	
+	@Override
+	public int hashCode() {
+		return new ArtikelAbsatzId(artikelId, tag).hashCode();
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final ArtikelAbsatz other = (ArtikelAbsatz) obj;
+		return new ArtikelAbsatzId(artikelId, tag).equals(new ArtikelAbsatzId(other.artikelId, other.tag));
+	}
+	
+	@Override
+	public String toString() {
+		return "ArtikelAbsatz [artikelId=" + artikelId + ", tag=" + tag + ", anzahl=" + anzahl
+			   + ", zuletztVerkauft=" + zuletztVerkauft + "]";
+	}
+}
@@ -0,0 +1,69 @@
+package de.shop.bestellverwaltung.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Schluessel fuer ArtikelAbsatz: Artikel und Tag
+ */
+public class ArtikelAbsatzId implements Serializable {
+	private static final long serialVersionUID = 5315542360467398613L;
+	
+	private Long artikelId;
+	private Date tag;
+	
+	public ArtikelAbsatzId() {
+		super();
+	}
+	
+	public ArtikelAbsatzId(Long artikelId, Date tag) {
+		super();
+		this.artikelId = artikelId;
+		this.tag = tag == null ? null : (Date) tag.clone();
+	}
+	
+	public Long getArtikelId() {
+		return artikelId;
+	}
+	public void setArtikelId(Long artikelId) {
+		this.artikelId = artikelId;
+	}
+	public Date getTag() {
+		return tag == null ? null : (Date) tag.clone();
+	}
+	public void setTag(Date tag) {
+		this.tag = tag == null ? null : (Date) tag.clone();
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((artikelId == null) ? 0 : artikelId.hashCode());
+		result = prime * result + ((tag == null) ? 0 : Long.valueOf(tag.getTime()).hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final ArtikelAbsatzId other = (ArtikelAbsatzId) obj;
+		if (artikelId == null ? other.artikelId != null : !artikelId.equals(other.artikelId)) {
+			return false;
+		}
+		if (tag == null) {
+			return other.tag == null;
+		}
+		return other.tag != null && tag.getTime() == other.tag.getTime();
+	}
+	
+	@Override
+	public String toString() {
+		return "ArtikelAbsatzId [artikelId=" + artikelId + ", tag=" + tag + "]";
+	}
+}
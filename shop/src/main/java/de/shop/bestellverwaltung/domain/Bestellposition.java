@@ -1,20 +1,22 @@
 package de.shop.bestellverwaltung.domain;
 
+import static de.shop.util.Constants.ID_BLOCK_BEWEGUNGSDATEN;
 import static de.shop.util.Constants.MIN_ID;
+import static javax.persistence.FetchType.LAZY;
 
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
-import javax.persistence.NamedQuery;
 import javax.persistence.Entity;
-import javax.persistence.NamedQueries;
 import javax.persistence.PostPersist;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.validation.constraints.Min;
@@ -28,28 +30,23 @@ import de.shop.util.IdGroup;
 
 @Entity
 @Table(name = "bestellposition")
-@NamedQueries({
-    @NamedQuery(name  = Bestellposition.FIND_LADENHUETER,
-   	            query = "SELECT a"
-   	            	    + " FROM   Artikel a"
-   	            	    + " WHERE  a NOT IN (SELECT bp.artikel FROM Bestellposition bp)")
-})
+@Cacheable
 public class Bestellposition implements Serializable {
 
 	private static final long serialVersionUID = 1618359231454653714L;
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
-	private static final String PREFIX = "Bestellposition.";
-	public static final String FIND_LADENHUETER = PREFIX + "findLadenhueter";
 	private static final int ANZAHL_MIN = 1;
 	
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "bestellposition_seq")
+	@SequenceGenerator(name = "bestellposition_seq", sequenceName = "bestellposition_seq",
+	                   allocationSize = ID_BLOCK_BEWEGUNGSDATEN)
 	@Column(nullable = false, updatable = false)
 	@Min(value = MIN_ID, message = "{bestellverwaltung.bestellposition.positionId.min}", groups = IdGroup.class)
 	private Long positionId;
 	
-	@ManyToOne(optional = false)
+	@ManyToOne(optional = false, fetch = LAZY)
     @JoinColumn(name = "artikel_fk", nullable = false)
 	@NotNull(message = "{bestellverwaltung.bestellposition.artikel.notNull}")
 	@JsonIgnore
@@ -1,10 +1,12 @@
 package de.shop.bestellverwaltung.domain;
 
+import static de.shop.util.Constants.ERSTE_VERSION;
+import static de.shop.util.Constants.ID_BLOCK_BEWEGUNGSDATEN;
 import static de.shop.util.Constants.MIN_ID;
 import static javax.persistence.CascadeType.PERSIST;
 import static javax.persistence.CascadeType.REMOVE;
-import static javax.persistence.FetchType.EAGER;
 import static javax.persistence.TemporalType.TIMESTAMP;
+import static org.hibernate.annotations.CacheConcurrencyStrategy.TRANSACTIONAL;
 
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
@@ -14,6 +16,8 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -27,33 +31,62 @@ import javax.persistence.OrderColumn;
 import javax.persistence.PostPersist;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.QueryHint;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.hibernate.annotations.Cache;
 import org.hibernate.validator.constraints.NotEmpty;
 import org.jboss.logging.Logger;
 
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.util.IdGroup;
 import de.shop.util.PreExistingGroup;
+import de.shop.util.QueryCache;
 
 @Entity
 @Table(name = "bestellung")
+@Cacheable
 @NamedQueries({
 	@NamedQuery(name  = Bestellung.FIND_BESTELLUNGEN_BY_KUNDE,
                 query = "SELECT b"
 			            + " FROM   Bestellung b"
-						+ " WHERE  b.kunde = :" + Bestellung.PARAM_KUNDE),
+						+ " WHERE  b.kunde = :" + Bestellung.PARAM_KUNDE,
+                hints = { @QueryHint(name = QueryCache.CACHEABLE, value = "true"),
+                          @QueryHint(name = QueryCache.REGION, value = QueryCache.REGION_BESTELLUNGEN) }),
 	@NamedQuery(name  = Bestellung.FIND_KUNDE_BY_ID,
  			    query = "SELECT b.kunde"
                         + " FROM   Bestellung b"
-  			            + " WHERE  b.id = :" + Bestellung.PARAM_ID)
+  			            + " WHERE  b.id = :" + Bestellung.PARAM_ID),
+	@NamedQuery(name  = Bestellung.FIND_BESTELLUNGEN_BY_KUNDE_ID_FETCH_BESTELLPOSITIONEN,
+	            query = "SELECT DISTINCT b"
+	                    + " FROM   Bestellung b LEFT JOIN FETCH b.bestellpositionen"
+	                    + " WHERE  b.kunde.id = :" + Bestellung.PARAM_KUNDE_ID
+	                    + " ORDER BY b.erzeugt, b.id"),
+	@NamedQuery(name  = Bestellung.FIND_BESTELLUNG_BY_ID_FETCH_BESTELLPOSITIONEN,
+	            query = "SELECT DISTINCT b"
+	                    + " FROM   Bestellung b JOIN FETCH b.kunde"
+	                    + "        LEFT JOIN FETCH b.bestellpositionen bp LEFT JOIN FETCH bp.artikel"
+	                    + " WHERE  b.id = :" + Bestellung.PARAM_ID),
+	@NamedQuery(name  = Bestellung.FIND_BESTELLUNGEN_UEBERSICHT_BY_KUNDE_ID,
+	            query = "SELECT NEW de.shop.bestellverwaltung.domain.BestellungUebersicht"
+	                    + "        (b.id, b.ausgeliefert, b.erzeugt, COUNT(bp))"
+	                    + " FROM   Bestellung b JOIN b.bestellpositionen bp"
+	                    + " WHERE  b.kunde.id = :" + Bestellung.PARAM_KUNDE_ID
+	                    + " GROUP BY b.id, b.ausgeliefert, b.erzeugt"
+	                    + " ORDER BY b.erzeugt, b.id"),
+	@NamedQuery(name  = Bestellung.FIND_AKTUALISIERT_BY_ID,
+	            query = "SELECT b.aktualisiert"
+	                    + " FROM   Bestellung b"
+	                    + " WHERE  b.id = :" + Bestellung.PARAM_ID)
 })
 public class Bestellung implements Serializable {
 	
@@ -63,18 +96,33 @@ public class Bestellung implements Serializable {
 	private static final String PREFIX = "Bestellung.";
 	public static final String FIND_BESTELLUNGEN_BY_KUNDE = PREFIX + "findBestellungenByKunde";
 	public static final String FIND_KUNDE_BY_ID = PREFIX + "findBestellungKundeById";
+	public static final String FIND_BESTELLUNGEN_BY_KUNDE_ID_FETCH_BESTELLPOSITIONEN =
+		                       PREFIX + "findBestellungenByKundeIdFetchBestellpositionen";
+	public static final String FIND_BESTELLUNG_BY_ID_FETCH_BESTELLPOSITIONEN =
+		                       PREFIX + "findBestellungByIdFetchBestellpositionen";
+	public static final String FIND_BESTELLUNGEN_UEBERSICHT_BY_KUNDE_ID =
+		                       PREFIX + "findBestellungenUebersichtByKundeId";
+	public static final String FIND_AKTUALISIERT_BY_ID = PREFIX + "findAktualisiertById";
 	
 	public static final String PARAM_KUNDE = "kunde";
+	public static final String PARAM_KUNDE_ID = "kundeId";
 	public static final String PARAM_ID = "id";
 	
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "bestellung_seq")
+	@SequenceGenerator(name = "bestellung_seq", sequenceName = "bestellung_seq",
+	                   allocationSize = ID_BLOCK_BEWEGUNGSDATEN)
 	@Column(nullable = false, updatable = false)
 	@Min(value = MIN_ID, message = "{bestellverwaltung.bestellung.id.min}", groups = IdGroup.class)
 	private Long id;
 	
+	@Version
+	@Basic(optional = false)
+	private int version = ERSTE_VERSION;
+	
+	// Besitzende Seite der Beziehung zwischen Kunde und Bestellungen
 	@ManyToOne(optional = false)
-	@JoinColumn(name = "kunde_fk", nullable = false, insertable = false, updatable = false)
+	@JoinColumn(name = "kunde_fk", nullable = false)
 	@NotNull(message = "{bestellverwaltung.bestellung.kunde.notNull}", groups = PreExistingGroup.class)
 	@JsonIgnore
 	private AbstractKunde kunde;
@@ -84,7 +132,10 @@ public class Bestellung implements Serializable {
 	@Transient
 	private URI kundeUri;
 	
-	@OneToMany(fetch = EAGER, cascade = { PERSIST, REMOVE })
+	// LAZY: die Bestellpositionen werden je Anwendungsfall per JOIN FETCH oder in Batches nachgeladen.
+	// Im L2C werden die IDs der Bestellpositionen je Bestellung gespeichert.
+	@OneToMany(cascade = { PERSIST, REMOVE })
+	@Cache(usage = TRANSACTIONAL)
 	@JoinColumn(name = "bestellung_fk", nullable = false)
 	@OrderColumn(name = "idx", nullable = false)
 	@NotEmpty(message = "{bestellverwaltung.bestellung.bestellpositionen.notEmpty}")
@@ -132,6 +183,12 @@ public class Bestellung implements Serializable {
 	public void setId(Long id) {
 		this.id = id;
 	}
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
 	public boolean isAusgeliefert() {
 		return ausgeliefert;
 	}
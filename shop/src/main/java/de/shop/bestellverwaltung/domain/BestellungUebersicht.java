@@ -0,0 +1,52 @@
+package de.shop.bestellverwaltung.domain;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+import de.shop.util.Uebersicht;
+
+
+/**
+ * Unveraenderliche Projektion einer Bestellung fuer Listen: Anzahl statt Liste der Bestellpositionen
+ */
+public class BestellungUebersicht implements Uebersicht, Serializable {
+	private static final long serialVersionUID = -6043977510293764012L;
+
+	private final Long id;
+	private final boolean ausgeliefert;
+	private final Date erzeugt;
+	private final long anzahlPositionen;
+
+	public BestellungUebersicht(Long id, boolean ausgeliefert, Date erzeugt, long anzahlPositionen) {
+		this.id = id;
+		this.ausgeliefert = ausgeliefert;
+		this.erzeugt = erzeugt == null ? null : (Date) erzeugt.clone();
+		this.anzahlPositionen = anzahlPositionen;
+	}
+
+	@Override
+	public Long getId() {
+		return id;
+	}
+
+	public boolean isAusgeliefert() {
+		return ausgeliefert;
+	}
+
+	@JsonProperty("datum")
+	public Date getErzeugt() {
+		return erzeugt == null ? null : (Date) erzeugt.clone();
+	}
+
+	public long getAnzahlPositionen() {
+		return anzahlPositionen;
+	}
+
+	@Override
+	public String toString() {
+		return "BestellungUebersicht [id=" + id + ", ausgeliefert=" + ausgeliefert + ", erzeugt=" + erzeugt
+			   + ", anzahlPositionen=" + anzahlPositionen + "]";
+	}
+}
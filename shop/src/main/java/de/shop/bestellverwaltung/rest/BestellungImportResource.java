@@ -0,0 +1,142 @@
+package de.shop.bestellverwaltung.rest;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.JsonToken;
+import org.jboss.logging.Logger;
+
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.bestellverwaltung.service.BestellungImport;
+import de.shop.bestellverwaltung.service.BestellungImportErgebnis;
+import de.shop.util.LocaleHelper;
+import de.shop.util.Log;
+import de.shop.util.Metrics;
+import de.shop.util.ObjectMapperProvider;
+
+/**
+ * Import vieler Bestellungen in einem einzigen Request, entweder als JSON-Array oder als NDJSON-Stream
+ * (eine Bestellung pro Zeile). Die Bestellungen werden inkrementell gelesen und blockweise in jeweils
+ * einer eigenen Transaktion gespeichert. Deshalb ist diese Klasse im Gegensatz zu BestellungResource
+ * nicht mit @Transactional annotiert.
+ */
+@Path("/bestellungen/batch")
+@Produces(APPLICATION_JSON)
+@Consumes
+@RequestScoped
+@Log
+@Metrics
+public class BestellungImportResource {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	public static final String APPLICATION_NDJSON = "application/x-ndjson";
+	
+	// Anzahl Bestellungen pro Transaktion
+	private static final int BLOCK_GROESSE = 100;
+	
+	@PostConstruct
+	private void postConstruct() {
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
+	}
+	
+	@Inject
+	private LocaleHelper localeHelper;
+	
+	@Context
+	private HttpHeaders headers;
+	
+	@Context
+	private UriInfo uriInfo;
+	
+	@Inject
+	private UriHelperBestellung uriHelperBestellung;
+	
+	@Inject
+	private BestellungImport bestellungImport;
+	
+	@Inject
+	private ObjectMapperProvider objectMapperProvider;
+	
+	/**
+	 * Bestellungen als JSON-Array oder als NDJSON importieren
+	 * @return Ergebnis fuer jede Bestellung in der Reihenfolge des Requests
+	 */
+	@POST
+	@Consumes({ APPLICATION_JSON, APPLICATION_NDJSON })
+	public List<BestellungImportErgebnis> importBestellungen(InputStream is) {
+		final Locale locale = localeHelper.getLocale(headers);
+		final List<BestellungImportErgebnis> ergebnisse = new ArrayList<>();
+		
+		try (JsonParser parser = objectMapperProvider.getObjectMapper().getJsonFactory().createJsonParser(is)) {
+			// Ein JSON-Array wird genauso wie eine Folge von JSON-Objekten (NDJSON) gelesen
+			JsonToken token = parser.nextToken();
+			final boolean array = token == JsonToken.START_ARRAY;
+			if (array) {
+				token = parser.nextToken();
+			}
+			
+			List<Bestellung> block = new ArrayList<>(BLOCK_GROESSE);
+			while (token != null && token != JsonToken.END_ARRAY) {
+				block.add(parser.readValueAs(Bestellung.class));
+				if (block.size() == BLOCK_GROESSE) {
+					ergebnisse.addAll(bestellungImport.importBestellungen(block, ergebnisse.size(), locale));
+					block = new ArrayList<>(BLOCK_GROESSE);
+				}
+				token = parser.nextToken();
+			}
+			if (!block.isEmpty()) {
+				ergebnisse.addAll(bestellungImport.importBestellungen(block, ergebnisse.size(), locale));
+			}
+		}
+		catch (JsonProcessingException e) {
+			// Die bis dahin gelesenen Bloecke sind bereits gespeichert
+			LOGGER.debugf("Import: fehlerhaftes JSON nach %d Bestellung(en)", ergebnisse.size());
+			setUris(ergebnisse);
+			throw new WebApplicationException(e, Response.status(Response.Status.BAD_REQUEST)
+					                                     .entity(ergebnisse)
+					                                     .type(APPLICATION_JSON)
+					                                     .build());
+		}
+		catch (IOException e) {
+			throw new WebApplicationException(e);
+		}
+		
+		setUris(ergebnisse);
+		return ergebnisse;
+	}
+	
+	private void setUris(List<BestellungImportErgebnis> ergebnisse) {
+		for (BestellungImportErgebnis ergebnis : ergebnisse) {
+			if (ergebnis.isErfolgreich()) {
+				ergebnis.setBestellungUri(uriHelperBestellung.getUriBestellung(ergebnis.getBestellungId(), uriInfo));
+			}
+		}
+	}
+}
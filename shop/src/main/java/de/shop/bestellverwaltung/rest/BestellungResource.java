@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -21,6 +22,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
@@ -31,11 +33,14 @@ import de.shop.artikelverwaltung.service.ArtikelService;
 import de.shop.bestellverwaltung.domain.Bestellposition;
 import de.shop.bestellverwaltung.domain.Bestellung;
 import de.shop.bestellverwaltung.service.BestellungService;
+import de.shop.bestellverwaltung.service.BestellungService.FetchType;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.rest.UriHelperKunde;
 import de.shop.kundenverwaltung.service.KundeService;
+import de.shop.util.ConditionalGet;
 import de.shop.util.LocaleHelper;
 import de.shop.util.Log;
+import de.shop.util.Metrics;
 import de.shop.util.NotFoundException;
 import de.shop.util.Transactional;
 
@@ -45,6 +50,7 @@ import de.shop.util.Transactional;
 @RequestScoped
 @Transactional
 @Log
+@Metrics
 public class BestellungResource {
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
@@ -64,6 +70,9 @@ public class BestellungResource {
 	@Context
 	private HttpHeaders headers;
 	
+	@Context
+	private Request request;
+	
 	@Context
 	private UriInfo uriInfo;
 	
@@ -89,8 +98,17 @@ public class BestellungResource {
 	
 	@GET
 	@Path("{id:[1-9][0-9]*}")
-	public Bestellung findBestellungById(@PathParam("id") Long id) {
-		final Bestellung bestellung = bs.findBestellungById(id);
+	@Transactional(readOnly = true)
+	public Response findBestellungById(@PathParam("id") Long id) {
+		// Unveraenderte Bestellung: 304 anhand des Zeitstempels, ohne die Bestellung zu laden
+		if (ConditionalGet.isBedingt(headers)) {
+			final Response nichtGeaendert = ConditionalGet.nichtGeaendert(request, bs.findAktualisiertById(id));
+			if (nichtGeaendert != null) {
+				return nichtGeaendert;
+			}
+		}
+		
+		final Bestellung bestellung = bs.findBestellungById(id, FetchType.MIT_BESTELLPOSITIONEN);
 		if (bestellung == null) {
 			throw new NotFoundException("Keine Bestellung mit der ID " + id + " gefunden.");
 		}
@@ -105,12 +123,12 @@ public class BestellungResource {
 			}
 		}
 		
-		
-		return bestellung;
+		return ConditionalGet.ok(bestellung, bestellung.getAktualisiert());
 	}
 	
 	@GET
 	@Path("{id:[1-9][0-9]*}/kunde")
+	@Transactional(readOnly = true)
 	public AbstractKunde findKundeByBestellungId(@PathParam("id") Long id) {
 		final AbstractKunde kunde = bs.findKundeById(id);
 		if (kunde == null) {
@@ -127,7 +145,13 @@ public class BestellungResource {
 	@POST
 	@Consumes(APPLICATION_JSON)
 	@Produces
-	public Response createBestellung(Bestellung bestellung) {
+	// Bei Deadlocks oder Sperrkonflikten unter Last wird die gesamte Transaktion wiederholt:
+	// jeder Versuch arbeitet mit einer neuen Bestellung aus den unveraenderten Eingabedaten
+	// und die Folgeaktionen laufen ueber die Outbox
+	@Transactional(maxVersuche = 3)
+	public Response createBestellung(Bestellung eingabe) {
+		Bestellung bestellung = neueBestellung(eingabe);
+		
 		// Schluessel des Kunden extrahieren
 		final String kundeUriStr = bestellung.getKundeUri().toString();
 		int startPos = kundeUriStr.lastIndexOf('/') + 1;
@@ -170,36 +194,20 @@ public class BestellungResource {
 			throw new NotFoundException(sb.toString());
 		}
 
-		final Collection<Artikel> gefundeneArtikel = as.findArtikelByIds(artikelIds);
+		final Map<Long, Artikel> gefundeneArtikel = as.findArtikelMapByIds(artikelIds);
 		if (gefundeneArtikel.isEmpty()) {
 			throw new NotFoundException("Keine Artikel vorhanden mit den IDs: " + artikelIds);
 		}
 		
 		// Bestellpositionen haben URLs fuer persistente Artikel.
 		// Diese persistenten Artikel wurden in einem DB-Zugriff ermittelt (s.o.)
-		// Fuer jede Bestellposition wird der Artikel passend zur Artikel-URL bzw. Artikel-ID gesetzt.
-		// Bestellpositionen mit nicht-gefundene Artikel werden eliminiert.
-		int i = 0;
-		final List<Bestellposition> neueBestellpositionen = new ArrayList<>(bestellpositionen.size());
-		for (Bestellposition bp : bestellpositionen) {
-			// Artikel-ID der aktuellen Bestellposition (s.o.):
-			// artikelIds haben gleiche Reihenfolge wie bestellpositionen
-			final long artikelId = artikelIds.get(i++);
-			
-			// Wurde der Artikel beim DB-Zugriff gefunden?
-			for (Artikel artikel : gefundeneArtikel) {
-				if (artikel.getId().longValue() == artikelId) {
-					// Der Artikel wurde gefunden
-					bp.setArtikel(artikel);
-					neueBestellpositionen.add(bp);
-					break;					
-				}
-			}
-		}
-		bestellung.setBestellpositionen(neueBestellpositionen);
+		bestellung.setBestellpositionen(zuordnenArtikel(bestellpositionen, gefundeneArtikel));
 		
 		final Locale locale = localeHelper.getLocale(headers);
 		bestellung = bs.createBestellung(bestellung, kundeId, locale);
+		if (bestellung == null) {
+			throw new NotFoundException("Kein Kunde vorhanden mit der ID " + kundeId);
+		}
 
 		final URI bestellungUri = uriHelperBestellung.getUriBestellung(bestellung, uriInfo);
 		final Response response = Response.created(bestellungUri).build();
@@ -207,4 +215,54 @@ public class BestellungResource {
 		
 		return response;
 	}
+
+	/**
+	 * Neue Bestellung mit neuen Bestellpositionen aus den Eingabedaten erstellen, damit die Eingabedaten bei
+	 * einer Wiederholung der Transaktion unveraendert sind
+	 * @param eingabe Bestellung mit Kunde-URL und Bestellpositionen mit Artikel-URLs
+	 * @return Neue Bestellung ohne ID und ohne persistente Objekte
+	 */
+	private static Bestellung neueBestellung(Bestellung eingabe) {
+		final Collection<Bestellposition> eingabePositionen = eingabe.getBestellpositionen();
+		final List<Bestellposition> bestellpositionen = new ArrayList<>(eingabePositionen.size());
+		for (Bestellposition bp : eingabePositionen) {
+			final Bestellposition neueBestellposition = new Bestellposition();
+			neueBestellposition.setArtikelUri(bp.getArtikelUri());
+			neueBestellposition.setAnzahl(bp.getAnzahl());
+			bestellpositionen.add(neueBestellposition);
+		}
+		
+		final Bestellung bestellung = new Bestellung(bestellpositionen);
+		bestellung.setKundeUri(eingabe.getKundeUri());
+		bestellung.setAusgeliefert(eingabe.isAusgeliefert());
+		return bestellung;
+	}
+
+	/**
+	 * Fuer jede Bestellposition den Artikel passend zur Artikel-URL bzw. Artikel-ID setzen.
+	 * Bestellpositionen mit ungueltiger Artikel-URL oder nicht-gefundenem Artikel werden eliminiert.
+	 * @param bestellpositionen Bestellpositionen mit Artikel-URLs
+	 * @param gefundeneArtikel persistente Artikel mit der ID als Schluessel
+	 * @return Bestellpositionen mit persistenten Artikeln
+	 */
+	static List<Bestellposition> zuordnenArtikel(Collection<Bestellposition> bestellpositionen,
+			                                     Map<Long, Artikel> gefundeneArtikel) {
+		final List<Bestellposition> neueBestellpositionen = new ArrayList<>(bestellpositionen.size());
+		for (Bestellposition bp : bestellpositionen) {
+			final String artikelUriStr = bp.getArtikelUri().toString();
+			final String artikelIdStr = artikelUriStr.substring(artikelUriStr.lastIndexOf('/') + 1);
+			final Artikel artikel;
+			try {
+				artikel = gefundeneArtikel.get(Long.valueOf(artikelIdStr));
+			}
+			catch (NumberFormatException e) {
+				continue;
+			}
+			if (artikel != null) {
+				bp.setArtikel(artikel);
+				neueBestellpositionen.add(bp);
+			}
+		}
+		return neueBestellpositionen;
+	}
 }
@@ -4,16 +4,19 @@ import java.net.URI;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
-import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import de.shop.bestellverwaltung.domain.Bestellung;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.rest.UriHelperKunde;
+import de.shop.util.UriVorlage;
+import de.shop.util.UriVorlagen;
 
 
 @ApplicationScoped
 public class UriHelperBestellung {
+	private final UriVorlagen bestellungVorlagen = new UriVorlagen(BestellungResource.class, "findBestellungById");
+	
 	@Inject
 	private UriHelperKunde uriHelperKunde;
 	
@@ -28,10 +31,15 @@ public class UriHelperBestellung {
 	}
 
 	public URI getUriBestellung(Bestellung bestellung, UriInfo uriInfo) {
-		final UriBuilder ub = uriInfo.getBaseUriBuilder()
-		                             .path(BestellungResource.class)
-		                             .path(BestellungResource.class, "findBestellungById");
-		final URI uri = ub.build(bestellung.getId());
+		return getUriBestellung(bestellung.getId(), uriInfo);
+	}
+	
+	public URI getUriBestellung(Long id, UriInfo uriInfo) {
+		final URI uri = bestellungVorlagen.getUri(uriInfo, id);
 		return uri;
 	}
+	
+	public UriVorlage getUriVorlageBestellung(UriInfo uriInfo) {
+		return bestellungVorlagen.getUriVorlage(uriInfo);
+	}
 }
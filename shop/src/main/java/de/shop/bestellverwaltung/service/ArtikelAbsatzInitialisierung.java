@@ -0,0 +1,32 @@
+package de.shop.bestellverwaltung.service;
+
+import java.lang.invoke.MethodHandles;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Die Zaehler fuer den Artikelabsatz beim Start der Anwendung aus den Bestellungen aufbauen, falls die
+ * Tabelle leer ist
+ */
+@Singleton
+@Startup
+public class ArtikelAbsatzInitialisierung {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	@Inject
+	private ArtikelAbsatzService artikelAbsatzService;
+	
+	@PostConstruct
+	private void init() {
+		if (!artikelAbsatzService.isLeer()) {
+			return;
+		}
+		final int anzahl = artikelAbsatzService.neuAufbauen();
+		LOGGER.infof("Artikelabsatz aus den Bestellungen aufgebaut: %d Zaehler", anzahl);
+	}
+}
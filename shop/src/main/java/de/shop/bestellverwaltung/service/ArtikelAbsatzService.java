@@ -0,0 +1,186 @@
+package de.shop.bestellverwaltung.service;
+
+import static de.shop.outbox.domain.OutboxTyp.NEUE_BESTELLUNG;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.event.Observes;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.bestellverwaltung.domain.ArtikelAbsatz;
+import de.shop.bestellverwaltung.domain.ArtikelAbsatzId;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.outbox.Outbox;
+import de.shop.outbox.domain.OutboxStatus;
+import de.shop.util.Log;
+import de.shop.util.Metrics;
+
+/**
+ * Verkaufte Stueckzahlen je Artikel und Tag fortschreiben und auswerten
+ */
+@Log
+@Metrics
+public class ArtikelAbsatzService implements Serializable {
+	private static final long serialVersionUID = 7713532861795133650L;
+	
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	// Bestellpositionen je Abfrage beim Neuaufbau
+	private static final int SEITE_MAX = 10000;
+	
+	@PersistenceContext
+	private transient EntityManager em;
+	
+	@PostConstruct
+	private void postConstruct() {
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
+	}
+	
+	/**
+	 * Die Zaehler fuer eine neue Bestellung erhoehen. Die Bestellung wird aus der Outbox zugestellt, d.h. nach
+	 * ihrem Commit und nacheinander, so dass sich gleichzeitige Bestellungen nicht um dieselben Zeilen streiten.
+	 */
+	public void onNeueBestellung(@Observes @Outbox(NEUE_BESTELLUNG) Bestellung bestellung) {
+		final Date zeitpunkt = bestellung.getErzeugt();
+		final Date tag = tag(zeitpunkt);
+		for (Bestellposition bp : bestellung.getBestellpositionen()) {
+			final Long artikelId = bp.getArtikel().getId();
+			ArtikelAbsatz absatz = em.find(ArtikelAbsatz.class, new ArtikelAbsatzId(artikelId, tag));
+			if (absatz == null) {
+				absatz = new ArtikelAbsatz(artikelId, tag);
+				em.persist(absatz);
+			}
+			absatz.addVerkauf(bp.getAnzahl(), zeitpunkt);
+		}
+	}
+	
+	/**
+	 * Artikel mit den wenigsten verkauften Stueck im Zeitraum: zuerst Artikel ohne Verkauf nach ID,
+	 * danach aufsteigend nach der Stueckzahl
+	 * @param anzahl maximale Anzahl Artikel
+	 * @param tage Zeitraum in Tagen einschliesslich heute
+	 */
+	public List<Artikel> findLadenhueter(int anzahl, int tage) {
+		final Date seit = tag(new Date());
+		final Calendar cal = Calendar.getInstance();
+		cal.setTime(seit);
+		cal.add(Calendar.DAY_OF_MONTH, 1 - Math.max(tage, 1));
+		
+		final List<Artikel> ladenhueter =
+				new ArrayList<>(em.createNamedQuery(ArtikelAbsatz.FIND_ARTIKEL_OHNE_ABSATZ, Artikel.class)
+						          .setParameter(ArtikelAbsatz.PARAM_SEIT, cal.getTime())
+						          .setMaxResults(anzahl)
+						          .getResultList());
+		if (ladenhueter.size() >= anzahl) {
+			return ladenhueter;
+		}
+		
+		final List<Object[]> zeilen = em.createNamedQuery(ArtikelAbsatz.FIND_ARTIKEL_IDS_NACH_ABSATZ,
+				                                          Object[].class)
+				                        .setParameter(ArtikelAbsatz.PARAM_SEIT, cal.getTime())
+				                        .setMaxResults(anzahl - ladenhueter.size())
+				                        .getResultList();
+		for (Object[] zeile : zeilen) {
+			// Artikel sind im 2nd-Level-Cache
+			final Artikel artikel = em.find(Artikel.class, zeile[0]);
+			if (artikel != null) {
+				ladenhueter.add(artikel);
+			}
+		}
+		return ladenhueter;
+	}
+	
+	public boolean isLeer() {
+		return em.createNamedQuery(ArtikelAbsatz.COUNT_ABSATZ, Long.class)
+				 .getSingleResult()
+				 .longValue() == 0;
+	}
+	
+	/**
+	 * Alle Zaehler aus den vorhandenen Bestellungen neu berechnen, z.B. fuer eine leere Tabelle nach der
+	 * Einfuehrung der Zaehler. Bestellungen, deren Ereignis NEUE_BESTELLUNG noch offen in der Outbox liegt,
+	 * werden nicht gezaehlt: sie zaehlt onNeueBestellung bei der Zustellung.
+	 * Je Seite von Bestellpositionen werden die Zaehler geschrieben und der Persistenzkontext geleert, damit der
+	 * Speicherbedarf nicht mit der Anzahl der Bestellungen waechst.
+	 * @return Anzahl der Zaehler, d.h. Artikel und Tage mit Verkauf
+	 */
+	public int neuAufbauen() {
+		em.createNamedQuery(ArtikelAbsatz.DELETE_ABSATZ).executeUpdate();
+		
+		// Bestellpositionen seitenweise nach ihrer ID lesen
+		int anzahl = 0;
+		Long letztePositionId = Long.valueOf(0);
+		for (;;) {
+			final List<Object[]> zeilen = em.createNamedQuery(ArtikelAbsatz.FIND_ABSATZ_AUS_BESTELLUNGEN,
+					                                          Object[].class)
+					                        .setParameter(ArtikelAbsatz.PARAM_POSITION_ID, letztePositionId)
+					                        .setParameter(ArtikelAbsatz.PARAM_TYP, NEUE_BESTELLUNG)
+					                        .setParameter(ArtikelAbsatz.PARAM_STATUS, OutboxStatus.OFFEN)
+					                        .setMaxResults(SEITE_MAX)
+					                        .getResultList();
+			
+			final Map<ArtikelAbsatzId, ArtikelAbsatz> seite = new HashMap<>();
+			for (Object[] zeile : zeilen) {
+				letztePositionId = (Long) zeile[0];
+				final Long artikelId = (Long) zeile[1];
+				final Date zeitpunkt = (Date) zeile[2];
+				final ArtikelAbsatzId id = new ArtikelAbsatzId(artikelId, tag(zeitpunkt));
+				ArtikelAbsatz absatz = seite.get(id);
+				if (absatz == null) {
+					absatz = new ArtikelAbsatz(artikelId, id.getTag());
+					seite.put(id, absatz);
+				}
+				absatz.addVerkauf((Long) zeile[3], zeitpunkt);
+			}
+			
+			// Zaehler aus frueheren Seiten fortschreiben, neue Zaehler anlegen
+			for (Map.Entry<ArtikelAbsatzId, ArtikelAbsatz> entry : seite.entrySet()) {
+				final ArtikelAbsatz absatz = entry.getValue();
+				final ArtikelAbsatz vorhanden = em.find(ArtikelAbsatz.class, entry.getKey());
+				if (vorhanden == null) {
+					em.persist(absatz);
+					anzahl++;
+				}
+				else {
+					vorhanden.addVerkauf(absatz.getAnzahl(), absatz.getZuletztVerkauft());
+				}
+			}
+			em.flush();
+			em.clear();
+			
+			if (zeilen.size() < SEITE_MAX) {
+				break;
+			}
+		}
+		return anzahl;
+	}
+	
+	private static Date tag(Date zeitpunkt) {
+		final Calendar cal = Calendar.getInstance();
+		cal.setTime(zeitpunkt == null ? new Date() : zeitpunkt);
+		cal.set(Calendar.HOUR_OF_DAY, 0);
+		cal.set(Calendar.MINUTE, 0);
+		cal.set(Calendar.SECOND, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+		return cal.getTime();
+	}
+}
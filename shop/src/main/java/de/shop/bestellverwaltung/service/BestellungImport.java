@@ -0,0 +1,223 @@
+package de.shop.bestellverwaltung.service;
+
+import static javax.transaction.Status.STATUS_NO_TRANSACTION;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.SystemException;
+import javax.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+
+import de.shop.artikelverwaltung.domain.Artikel;
+import de.shop.artikelverwaltung.service.ArtikelService;
+import de.shop.bestellverwaltung.domain.Bestellposition;
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.service.KundeService;
+import de.shop.util.Log;
+import de.shop.util.Metrics;
+
+/**
+ * Import vieler Bestellungen, z.B. aus dem naechtlichen B2B-Feed.
+ * Jeder Block wird in einer eigenen Transaktion angelegt, d.h. nach jedem Block wird committed.
+ * Kunden und Artikel eines Blocks werden mengenorientiert mit jeweils einer Abfrage ermittelt;
+ * die INSERT-Anweisungen buendelt Hibernate durch hibernate.jdbc.batch_size und hibernate.order_inserts.
+ */
+@Log
+@Metrics
+public class BestellungImport implements Serializable {
+	private static final long serialVersionUID = 1672209785386622531L;
+	
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	@PersistenceContext
+	private transient EntityManager em;
+	
+	@Resource
+	private transient UserTransaction trans;
+	
+	@Inject
+	private BestellungService bs;
+	
+	@Inject
+	private KundeService ks;
+	
+	@Inject
+	private ArtikelService as;
+	
+	@PostConstruct
+	private void postConstruct() {
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+	
+	@PreDestroy
+	private void preDestroy() {
+		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
+	}
+	
+	/**
+	 * Einen Block von Bestellungen in einer eigenen Transaktion anlegen.
+	 * Eine ungueltige Bestellung wird im Ergebnis vermerkt, ohne die uebrigen Bestellungen des Blocks
+	 * zu beeinflussen. Scheitert dagegen der Commit, so sind alle Bestellungen des Blocks fehlerhaft.
+	 * @param bestellungen neue Bestellungen mit den URLs fuer Kunde und Artikel
+	 * @param erstePosition Position der ersten Bestellung innerhalb des gesamten Imports
+	 * @param locale Locale fuer die Fehlermeldungen
+	 * @return Ergebnis fuer jede Bestellung in der gleichen Reihenfolge
+	 */
+	public List<BestellungImportErgebnis> importBestellungen(List<Bestellung> bestellungen, int erstePosition,
+			                                                 Locale locale) {
+		if (bestellungen == null || bestellungen.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		pruefenOhneTransaktion();
+		try {
+			trans.begin();
+			final List<BestellungImportErgebnis> ergebnisse = createBestellungen(bestellungen, erstePosition, locale);
+			
+			// Alle INSERT-Anweisungen des Blocks als JDBC-Batch absenden, damit Fehler noch vor dem Commit auffallen
+			em.flush();
+			trans.commit();
+			LOGGER.debugf("Import: Block mit %d Bestellung(en) ab Position %d committed",
+					      bestellungen.size(), erstePosition);
+			return ergebnisse;
+		}
+		catch (Exception e) {
+			LOGGER.warnf(e, "Import: Block ab Position %d fehlgeschlagen", erstePosition);
+			rollback();
+			
+			final String fehler = "Block ab Position " + erstePosition + " nicht gespeichert: " + e.getMessage();
+			final List<BestellungImportErgebnis> ergebnisse = new ArrayList<>(bestellungen.size());
+			for (int i = 0; i < bestellungen.size(); i++) {
+				ergebnisse.add(BestellungImportErgebnis.fehlerhaft(erstePosition + i, fehler));
+			}
+			return ergebnisse;
+		}
+	}
+	
+	private List<BestellungImportErgebnis> createBestellungen(List<Bestellung> bestellungen, int erstePosition,
+			                                                  Locale locale) {
+		// IDs aller Kunden und Artikel des Blocks extrahieren, um sie mit wenigen Abfragen zu ermitteln
+		final int anzahl = bestellungen.size();
+		final List<Long> kundeIds = new ArrayList<>(anzahl);
+		final Set<Long> artikelIds = new HashSet<>();
+		for (Bestellung bestellung : bestellungen) {
+			kundeIds.add(extractId(bestellung.getKundeUri()));
+			final List<Bestellposition> bestellpositionen = bestellung.getBestellpositionen();
+			if (bestellpositionen == null) {
+				continue;
+			}
+			for (Bestellposition bp : bestellpositionen) {
+				final Long artikelId = extractId(bp.getArtikelUri());
+				if (artikelId != null) {
+					artikelIds.add(artikelId);
+				}
+			}
+		}
+		
+		final Map<Long, AbstractKunde> kunden = ks.findKundenByIds(kundeIds);
+		final Map<Long, Artikel> artikel = as.findArtikelMapByIds(artikelIds);
+		
+		final List<BestellungImportErgebnis> ergebnisse = new ArrayList<>(anzahl);
+		for (int i = 0; i < anzahl; i++) {
+			final int position = erstePosition + i;
+			final Bestellung bestellung = bestellungen.get(i);
+			
+			final AbstractKunde kunde = kunden.get(kundeIds.get(i));
+			if (kunde == null) {
+				ergebnisse.add(BestellungImportErgebnis.fehlerhaft(position, "Kein Kunde vorhanden mit der URL "
+						                                                     + bestellung.getKundeUri()));
+				continue;
+			}
+			
+			// Bestellpositionen mit nicht-gefundenen Artikeln werden eliminiert
+			final List<Bestellposition> neueBestellpositionen = new ArrayList<>();
+			if (bestellung.getBestellpositionen() != null) {
+				for (Bestellposition bp : bestellung.getBestellpositionen()) {
+					final Artikel a = artikel.get(extractId(bp.getArtikelUri()));
+					if (a != null) {
+						bp.setArtikel(a);
+						neueBestellpositionen.add(bp);
+					}
+				}
+			}
+			if (neueBestellpositionen.isEmpty()) {
+				ergebnisse.add(BestellungImportErgebnis.fehlerhaft(position, "Keine Artikel vorhanden"));
+				continue;
+			}
+			bestellung.setBestellpositionen(neueBestellpositionen);
+			
+			try {
+				bs.createBestellung(bestellung, kunde, locale);
+				ergebnisse.add(BestellungImportErgebnis.erfolgreich(position, bestellung.getId()));
+			}
+			catch (AbstractBestellungValidationException e) {
+				ergebnisse.add(BestellungImportErgebnis.fehlerhaft(position, e.getMessage()));
+			}
+		}
+		
+		return ergebnisse;
+	}
+	
+	/**
+	 * Der Import steuert seine Transaktionen selbst und darf deshalb nicht innerhalb einer Transaktion
+	 * aufgerufen werden. Die Pruefung erfolgt vor trans.begin(), damit danach jede Exception zum Rollback fuehrt.
+	 */
+	private void pruefenOhneTransaktion() {
+		final int status;
+		try {
+			status = trans.getStatus();
+		}
+		catch (SystemException e) {
+			throw new IllegalStateException(e);
+		}
+		if (status != STATUS_NO_TRANSACTION) {
+			throw new IllegalStateException("Der Import darf nicht innerhalb einer Transaktion aufgerufen werden");
+		}
+	}
+	
+	private void rollback() {
+		try {
+			if (trans.getStatus() != STATUS_NO_TRANSACTION) {
+				trans.rollback();
+			}
+		}
+		catch (SystemException e) {
+			LOGGER.error("Rollback beim Import fehlgeschlagen", e);
+		}
+	}
+	
+	/**
+	 * Die ID aus dem letzten Pfadsegment einer URL extrahieren
+	 * @return ID oder null, falls die URL keine gueltige ID enthaelt
+	 */
+	private static Long extractId(URI uri) {
+		if (uri == null) {
+			return null;
+		}
+		final String uriStr = uri.toString();
+		final String idStr = uriStr.substring(uriStr.lastIndexOf('/') + 1);
+		try {
+			return Long.valueOf(idStr);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
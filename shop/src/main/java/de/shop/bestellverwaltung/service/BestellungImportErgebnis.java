@@ -0,0 +1,76 @@
+package de.shop.bestellverwaltung.service;
+
+import java.io.Serializable;
+import java.net.URI;
+
+/**
+ * Ergebnis fuer eine einzelne Bestellung bei einem Import von Bestellungen
+ */
+public class BestellungImportErgebnis implements Serializable {
+	private static final long serialVersionUID = -4181466093372744085L;
+
+	private int position;
+	private boolean erfolgreich;
+	private Long bestellungId;
+	private URI bestellungUri;
+	private String fehler;
+	
+	public BestellungImportErgebnis() {
+		super();
+	}
+	
+	public BestellungImportErgebnis(int position) {
+		super();
+		this.position = position;
+	}
+	
+	public static BestellungImportErgebnis erfolgreich(int position, Long bestellungId) {
+		final BestellungImportErgebnis ergebnis = new BestellungImportErgebnis(position);
+		ergebnis.erfolgreich = true;
+		ergebnis.bestellungId = bestellungId;
+		return ergebnis;
+	}
+	
+	public static BestellungImportErgebnis fehlerhaft(int position, String fehler) {
+		final BestellungImportErgebnis ergebnis = new BestellungImportErgebnis(position);
+		ergebnis.fehler = fehler;
+		return ergebnis;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+	public void setPosition(int position) {
+		this.position = position;
+	}
+	public boolean isErfolgreich() {
+		return erfolgreich;
+	}
+	public void setErfolgreich(boolean erfolgreich) {
+		this.erfolgreich = erfolgreich;
+	}
+	public Long getBestellungId() {
+		return bestellungId;
+	}
+	public void setBestellungId(Long bestellungId) {
+		this.bestellungId = bestellungId;
+	}
+	public URI getBestellungUri() {
+		return bestellungUri;
+	}
+	public void setBestellungUri(URI bestellungUri) {
+		this.bestellungUri = bestellungUri;
+	}
+	public String getFehler() {
+		return fehler;
+	}
+	public void setFehler(String fehler) {
+		this.fehler = fehler;
+	}
+
+	@Override
+	public String toString() {
+		return "BestellungImportErgebnis [position=" + position + ", erfolgreich=" + erfolgreich
+			   + ", bestellungId=" + bestellungId + ", fehler=" + fehler + "]";
+	}
+}
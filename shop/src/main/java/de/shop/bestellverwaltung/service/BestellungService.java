@@ -4,6 +4,7 @@ import static de.shop.util.Constants.KEINE_ID;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -14,6 +15,7 @@ import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
+import javax.persistence.Persistence;
 import javax.persistence.PersistenceContext;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
@@ -24,18 +26,28 @@ import org.jboss.logging.Logger;
 import de.shop.artikelverwaltung.domain.Artikel;
 import de.shop.bestellverwaltung.domain.Bestellposition;
 import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.bestellverwaltung.domain.BestellungUebersicht;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.service.KundeService;
+import de.shop.outbox.OutboxService;
+import de.shop.outbox.domain.OutboxTyp;
 import de.shop.util.Log;
+import de.shop.util.Metrics;
 import de.shop.util.ValidatorProvider;
 
 @Log
+@Metrics
 public class BestellungService implements Serializable {
 	
 	private static final long serialVersionUID = -519454062519816252L;
 
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
+	public enum FetchType {
+		NUR_BESTELLUNG,
+		MIT_BESTELLPOSITIONEN
+	}
+	
 	@PersistenceContext
 	private transient EntityManager em;
 	
@@ -46,6 +58,12 @@ public class BestellungService implements Serializable {
 	@Inject
 	private KundeService ks;
 	
+	@Inject
+	private OutboxService outboxService;
+	
+	@Inject
+	private ArtikelAbsatzService artikelAbsatzService;
+	
 	@Inject
 	private ValidatorProvider validatorProvider;
 	
@@ -59,11 +77,45 @@ public class BestellungService implements Serializable {
 		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
 	}
 	
-	public Bestellung findBestellungById(Long id) {
-		final Bestellung bestellung = em.find(Bestellung.class, id);
+	public Bestellung findBestellungById(Long id, FetchType fetch) {
+		Bestellung bestellung;
+		switch (fetch) {
+			case NUR_BESTELLUNG:
+				bestellung = em.find(Bestellung.class, id);
+				break;
+			
+			case MIT_BESTELLPOSITIONEN:
+				// Kunde, Bestellpositionen und Artikel mit 1 SELECT
+				try {
+					bestellung = em.createNamedQuery(Bestellung.FIND_BESTELLUNG_BY_ID_FETCH_BESTELLPOSITIONEN,
+							                         Bestellung.class)
+							       .setParameter(Bestellung.PARAM_ID, id)
+							       .getSingleResult();
+				}
+				catch (NoResultException e) {
+					bestellung = null;
+				}
+				break;
+			
+			default:
+				bestellung = em.find(Bestellung.class, id);
+				break;
+		}
+		
 		return bestellung;
 	}
 	
+	/**
+	 * Zeitstempel der letzten Aenderung, ohne die Bestellung zu laden, z.B. fuer ETag
+	 * @return Zeitstempel oder null, falls es keine Bestellung mit der ID gibt
+	 */
+	public Date findAktualisiertById(Long id) {
+		final List<Date> ergebnis = em.createNamedQuery(Bestellung.FIND_AKTUALISIERT_BY_ID, Date.class)
+		                              .setParameter(Bestellung.PARAM_ID, id)
+		                              .getResultList();
+		return ergebnis.isEmpty() ? null : ergebnis.get(0);
+	}
+	
 	public AbstractKunde findKundeById(Long id) {
 		try {
 			final AbstractKunde kunde = em.createNamedQuery(Bestellung.FIND_KUNDE_BY_ID, AbstractKunde.class)
@@ -87,6 +139,32 @@ public class BestellungService implements Serializable {
 		return bestellungen;
 	}
 	
+	/**
+	 * Bestellungen eines Kunden einschliesslich der Bestellpositionen mit 1 SELECT, z.B. fuer die Bestellhistorie
+	 * @param kundeId ID des Kunden
+	 * @return Bestellungen sortiert nach der ID; leere Liste, falls der Kunde keine Bestellungen hat
+	 */
+	public List<Bestellung> findBestellungenByKundeId(Long kundeId) {
+		final List<Bestellung> bestellungen =
+			em.createNamedQuery(Bestellung.FIND_BESTELLUNGEN_BY_KUNDE_ID_FETCH_BESTELLPOSITIONEN, Bestellung.class)
+			  .setParameter(Bestellung.PARAM_KUNDE_ID, kundeId)
+			  .getResultList();
+		return bestellungen;
+	}
+	
+	/**
+	 * Bestellungen eines Kunden als unveraenderliche Projektionen mit der Anzahl der Bestellpositionen
+	 * @param kundeId ID des Kunden
+	 * @return Bestellungen sortiert nach der ID; leere Liste, falls der Kunde keine Bestellungen hat
+	 */
+	public List<BestellungUebersicht> findBestellungenUebersichtByKundeId(Long kundeId) {
+		final List<BestellungUebersicht> bestellungen =
+			em.createNamedQuery(Bestellung.FIND_BESTELLUNGEN_UEBERSICHT_BY_KUNDE_ID, BestellungUebersicht.class)
+			  .setParameter(Bestellung.PARAM_KUNDE_ID, kundeId)
+			  .getResultList();
+		return bestellungen;
+	}
+	
 	public Bestellung createBestellung(Bestellung bestellung,
             Long kundeId,
             Locale locale) {
@@ -94,8 +172,11 @@ public class BestellungService implements Serializable {
 			return null;
 		}
 
-		// Den persistenten Kunden mit der transienten Bestellung verknuepfen
-		final AbstractKunde kunde = ks.findKundeById(kundeId, KundeService.FetchType.MIT_BESTELLUNGEN, locale);
+		// Den persistenten Kunden ohne seine Bestellungen laden: Zugriff ueber den Primaerschluessel
+		final AbstractKunde kunde = ks.findKundeById(kundeId, KundeService.FetchType.NUR_KUNDE, locale);
+		if (kunde == null) {
+			return null;
+		}
 		return createBestellung(bestellung, kunde, locale);
 	}
 	
@@ -106,11 +187,11 @@ public class BestellungService implements Serializable {
 			return null;
 		}
 
-		// Den persistenten Kunden mit der transienten Bestellung verknuepfen
+		// Den persistenten Kunden mit der transienten Bestellung verknuepfen: fuer den Fremdschluessel
+		// genuegt eine Referenz, d.h. die vorhandenen Bestellungen des Kunden werden nicht geladen
 		if (!em.contains(kunde)) {
-			kunde = ks.findKundeById(kunde.getId(), KundeService.FetchType.MIT_BESTELLUNGEN, locale);
+			kunde = em.getReference(AbstractKunde.class, kunde.getId());
 		}
-		kunde.addBestellung(bestellung);
 		bestellung.setKunde(kunde);
 
 		// Vor dem Abspeichern IDs zuruecksetzen:
@@ -118,20 +199,30 @@ public class BestellungService implements Serializable {
 		bestellung.setId(KEINE_ID);
 		for (Bestellposition bp : bestellung.getBestellpositionen()) {
 			bp.setPositionId(KEINE_ID);
-			LOGGER.tracef("Bestellposition: %s", bp);				
+			LOGGER.tracef("Bestellposition: %s", bp);
 		}
 
+		// Erst nach erfolgreicher Validierung in die Liste des Kunden eintragen, damit eine ungueltige Bestellung
+		// nicht in der Liste des persistenten Kunden verbleibt (z.B. beim Import vieler Bestellungen).
+		// Die Liste wird nur aktualisiert, falls sie im Persistenzkontext bereits geladen ist.
 		validateBestellung(bestellung, locale, Default.class);
+		if (Persistence.getPersistenceUtil().isLoaded(kunde, "bestellungen")) {
+			kunde.addBestellung(bestellung);
+		}
 		em.persist(bestellung);
 		event.fire(bestellung);
+		outboxService.createOutboxEreignis(OutboxTyp.NEUE_BESTELLUNG, bestellung.getId());
 
 		return bestellung;
 	}
 	
-	public List<Artikel> ladenhueter(int anzahl) {
-		final List<Artikel> artikel = em.createNamedQuery(Bestellposition.FIND_LADENHUETER, Artikel.class)
-				                        .setMaxResults(anzahl)
-				                        .getResultList();
+	/**
+	 * Artikel mit den wenigsten verkauften Stueck in den letzten Tagen
+	 * @param anzahl maximale Anzahl Artikel
+	 * @param tage Zeitraum in Tagen einschliesslich heute
+	 */
+	public List<Artikel> ladenhueter(int anzahl, int tage) {
+		final List<Artikel> artikel = artikelAbsatzService.findLadenhueter(anzahl, tage);
 		return artikel;
 	}
 	
@@ -1,5 +1,7 @@
 package de.shop.kundenverwaltung.domain;
 
+import static de.shop.util.Constants.ERSTE_VERSION;
+import static de.shop.util.Constants.ID_BLOCK_STAMMDATEN;
 import static de.shop.util.Constants.MIN_ID;
 import static javax.persistence.CascadeType.PERSIST;
 import static javax.persistence.CascadeType.REMOVE;
@@ -17,6 +19,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.DiscriminatorColumn;
 import javax.persistence.Entity;
@@ -28,13 +32,17 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
-import javax.persistence.OrderColumn;
+import javax.persistence.OrderBy;
 import javax.persistence.PostPersist;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.QueryHint;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.Transient;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -51,9 +59,11 @@ import org.jboss.logging.Logger;
 
 import de.shop.bestellverwaltung.domain.Bestellung;
 import de.shop.util.IdGroup;
+import de.shop.util.QueryCache;
 
 @Entity
-@Table(name = "kunde")
+@Table(name = "kunde", uniqueConstraints = @UniqueConstraint(name = AbstractKunde.EMAIL_UK, columnNames = "email"))
+@Cacheable
 @Inheritance
 @DiscriminatorColumn(name = "art", length = 1)
 @NamedQueries({
@@ -67,31 +77,43 @@ import de.shop.util.IdGroup;
 		        query = "SELECT   k"
 				        + " FROM  AbstractKunde k"
 		                + " ORDER BY k.id"),
+	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_AFTER_ID,
+		        query = "SELECT   k"
+				        + " FROM  AbstractKunde k"
+		                + " WHERE k.id > :" + AbstractKunde.PARAM_KUNDE_ID
+		                + " ORDER BY k.id"),
 	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_BY_NACHNAME,
 	            query = "SELECT k"
 				        + " FROM   AbstractKunde k"
 	            		+ " WHERE  UPPER(k.nachname) = UPPER(:" + AbstractKunde.PARAM_KUNDE_NACHNAME + ")"),
-	@NamedQuery(name  = AbstractKunde.FIND_NACHNAMEN_BY_PREFIX,
-   	            query = "SELECT   DISTINCT k.nachname"
-				        + " FROM  AbstractKunde k "
-	            		+ " WHERE UPPER(k.nachname) LIKE UPPER(:"
-	            		+ AbstractKunde.PARAM_KUNDE_NACHNAME_PREFIX + ")"),
+	@NamedQuery(name  = AbstractKunde.FIND_IDS_NACHNAMEN,
+   	            query = "SELECT   k.id, k.nachname"
+				        + " FROM  AbstractKunde k"),
+	@NamedQuery(name  = AbstractKunde.FIND_IDS_EMAILS,
+   	            query = "SELECT   k.id, k.email"
+				        + " FROM  AbstractKunde k"),
 	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_BY_NACHNAME_FETCH_BESTELLUNGEN,
 	            query = "SELECT DISTINCT k"
 			            + " FROM   AbstractKunde k LEFT JOIN FETCH k.bestellungen"
 			            + " WHERE  UPPER(k.nachname) = UPPER(:" + AbstractKunde.PARAM_KUNDE_NACHNAME + ")"),
+	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_BY_IDS,
+	            query = "SELECT k"
+			            + " FROM   AbstractKunde k"
+			            + " WHERE  k.id IN :" + AbstractKunde.PARAM_KUNDE_IDS),
 	@NamedQuery(name  = AbstractKunde.FIND_KUNDE_BY_ID_FETCH_BESTELLUNGEN,
 	            query = "SELECT DISTINCT k"
 			            + " FROM   AbstractKunde k LEFT JOIN FETCH k.bestellungen"
 			            + " WHERE  k.id = :" + AbstractKunde.PARAM_KUNDE_ID),
    	@NamedQuery(name  = AbstractKunde.FIND_KUNDE_BY_EMAIL,
-   	            query = "SELECT DISTINCT k"
+   	            query = "SELECT k"
    			            + " FROM   AbstractKunde k"
-   			            + " WHERE  k.email = :" + AbstractKunde.PARAM_KUNDE_EMAIL),
+   			            + " WHERE  LOWER(k.email) = LOWER(:" + AbstractKunde.PARAM_KUNDE_EMAIL + ")"),
     @NamedQuery(name  = AbstractKunde.FIND_KUNDEN_BY_PLZ,
 	            query = "SELECT k"
 				        + " FROM  AbstractKunde k"
-			            + " WHERE k.adresse.plz = :" + AbstractKunde.PARAM_KUNDE_ADRESSE_PLZ),
+			            + " WHERE k.adresse.plz = :" + AbstractKunde.PARAM_KUNDE_ADRESSE_PLZ,
+	            hints = { @QueryHint(name = QueryCache.CACHEABLE, value = "true"),
+	                      @QueryHint(name = QueryCache.REGION, value = QueryCache.REGION_KUNDEN) }),
 	@NamedQuery(name = AbstractKunde.FIND_KUNDEN_BY_DATE,
 			    query = "SELECT k"
 			            + " FROM  AbstractKunde k"
@@ -99,7 +121,17 @@ import de.shop.util.IdGroup;
 	@NamedQuery(name = AbstractKunde.FIND_PRIVATKUNDEN_FIRMENKUNDEN,
 			    query = "SELECT k"
 			            + " FROM  AbstractKunde k"
-			    		+ " WHERE TYPE(k) IN (Privatkunde, Firmenkunde)")
+			    		+ " WHERE TYPE(k) IN (Privatkunde, Firmenkunde)"),
+	@NamedQuery(name  = AbstractKunde.FIND_KUNDEN_UEBERSICHT_AFTER_ID,
+	            query = "SELECT   NEW de.shop.kundenverwaltung.domain.KundeUebersicht"
+	                    + "          (k.id, k.nachname, k.vorname, k.email)"
+	                    + " FROM     AbstractKunde k"
+	                    + " WHERE    k.id > :" + AbstractKunde.PARAM_KUNDE_ID
+	                    + " ORDER BY k.id"),
+	@NamedQuery(name  = AbstractKunde.FIND_AKTUALISIERT_BY_ID,
+	            query = "SELECT k.aktualisiert, a.aktualisiert"
+	                    + " FROM   AbstractKunde k LEFT JOIN k.adresse a"
+	                    + " WHERE  k.id = :" + AbstractKunde.PARAM_KUNDE_ID)
 })
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
 @JsonSubTypes({
@@ -122,35 +154,49 @@ public abstract class AbstractKunde implements Serializable {
 	public static final int VORNAME_LENGTH_MAX = 32;
 	public static final int EMAIL_LENGTH_MAX = 128;
 	
+	// Name des Unique Constraints fuer die Email, z.B. zur Unterscheidung von anderen Constraint-Verletzungen
+	public static final String EMAIL_UK = "kunde__email_uk";
+	
 	private static final String PREFIX = "AbstractKunde.";
 	public static final String FIND_KUNDEN = PREFIX + "findKunden";
 	public static final String FIND_KUNDEN_FETCH_BESTELLUNGEN = PREFIX + "findKundenFetchBestellungen";
 	public static final String FIND_KUNDEN_ORDER_BY_ID = PREFIX + "findKundenOrderById";
+	public static final String FIND_KUNDEN_AFTER_ID = PREFIX + "findKundenAfterId";
 	public static final String FIND_IDS_BY_PREFIX = PREFIX + "findIdsByPrefix";
 	public static final String FIND_KUNDEN_BY_NACHNAME = PREFIX + "findKundenByNachname";
 	public static final String FIND_KUNDEN_BY_NACHNAME_FETCH_BESTELLUNGEN =
 		                       PREFIX + "findKundenByNachnameFetchBestellungen";
-	public static final String FIND_NACHNAMEN_BY_PREFIX = PREFIX + "findNachnamenByPrefix";
+	public static final String FIND_IDS_NACHNAMEN = PREFIX + "findIdsNachnamen";
+	public static final String FIND_IDS_EMAILS = PREFIX + "findIdsEmails";
 	public static final String FIND_KUNDE_BY_ID_FETCH_BESTELLUNGEN =
 		                       PREFIX + "findKundeByIdFetchBestellungen";
+	public static final String FIND_KUNDEN_BY_IDS = PREFIX + "findKundenByIds";
 	public static final String FIND_KUNDE_BY_EMAIL = PREFIX + "findKundeByEmail";
 	public static final String FIND_KUNDEN_BY_PLZ = PREFIX + "findKundenByPlz";
 	public static final String FIND_KUNDEN_BY_DATE = PREFIX + "findKundenByDate";
 	public static final String FIND_PRIVATKUNDEN_FIRMENKUNDEN = PREFIX + "findPrivatkundenFirmenkunden";
+	public static final String FIND_KUNDEN_UEBERSICHT_AFTER_ID = PREFIX + "findKundenUebersichtAfterId";
+	public static final String FIND_AKTUALISIERT_BY_ID = PREFIX + "findAktualisiertById";
 	
 	public static final String PARAM_KUNDE_ID = "kundeId";
+	public static final String PARAM_KUNDE_IDS = "kundeIds";
 	public static final String PARAM_KUNDE_ID_PREFIX = "idPrefix";
 	public static final String PARAM_KUNDE_NACHNAME = "nachname";
-	public static final String PARAM_KUNDE_NACHNAME_PREFIX = "nachnamePrefix";
 	public static final String PARAM_KUNDE_ADRESSE_PLZ = "plz";
 	public static final String PARAM_KUNDE_SEIT = "seit";
 	public static final String PARAM_KUNDE_EMAIL = "email";
 
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "kunde_seq")
+	@SequenceGenerator(name = "kunde_seq", sequenceName = "kunde_seq",
+	                   allocationSize = ID_BLOCK_STAMMDATEN)
 	@Column(nullable = false, updatable = false)
 	@Min(value = MIN_ID, message = "{kundenverwaltung.kunde.id.min}", groups = IdGroup.class)
 	private Long id;
+	
+	@Version
+	@Basic(optional = false)
+	private int version = ERSTE_VERSION;
 
 	@Column(length = NACHNAME_LENGTH_MAX)
 	@NotNull(message = "{kundenverwaltung.kunde.nachname.notNull}")
@@ -164,7 +210,7 @@ public abstract class AbstractKunde implements Serializable {
 	@NotNull(message = "{kundenverwaltung.kunde.vorname.notNull}")
 	private String vorname;
 	
-	@Column(length = EMAIL_LENGTH_MAX, nullable = false, unique = true)
+	@Column(length = EMAIL_LENGTH_MAX, nullable = false)
 	@Email(message = "{kundenverwaltung.kunde.email.pattern}")
 	@NotNull(message = "{kundenverwaltung.kunde.email.notNull}")
 	private String email;
@@ -178,9 +224,10 @@ public abstract class AbstractKunde implements Serializable {
 	@NotNull(message = "{kundenverwaltung.kunde.adresse.notNull}")
 	private Adresse adresse;
 	
-	@OneToMany
-	@JoinColumn(name = "kunde_fk", nullable = false)
-	@OrderColumn(name = "idx", nullable = false)
+	// Inverse Seite: eine neue Bestellung wird nur ueber Bestellung.kunde (Fremdschluessel) eingefuegt,
+	// ohne die Liste der vorhandenen Bestellungen zu laden
+	@OneToMany(mappedBy = "kunde")
+	@OrderBy("erzeugt, id")
 	@JsonIgnore
 	private List<Bestellung> bestellungen;
 	
@@ -263,6 +310,12 @@ public abstract class AbstractKunde implements Serializable {
 	public void setId(Long id) {
 		this.id = id;
 	}
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
 	public String getNachname() {
 		return nachname;
 	}
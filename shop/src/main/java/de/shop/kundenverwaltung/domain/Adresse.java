@@ -1,5 +1,7 @@
 package de.shop.kundenverwaltung.domain;
 
+import static de.shop.util.Constants.ERSTE_VERSION;
+import static de.shop.util.Constants.ID_BLOCK_STAMMDATEN;
 import static de.shop.util.Constants.MIN_ID;
 import static de.shop.util.Constants.KEINE_ID;
 import static javax.persistence.TemporalType.TIMESTAMP;
@@ -8,6 +10,8 @@ import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.Date;
 
+import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -17,8 +21,10 @@ import javax.persistence.OneToOne;
 import javax.persistence.PostPersist;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
+import javax.persistence.Version;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
@@ -31,6 +37,7 @@ import de.shop.util.IdGroup;
 
 @Entity
 @Table(name = "adresse")
+@Cacheable
 public class Adresse implements Serializable {
 	private static final long serialVersionUID = -3029272617931844501L;
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
@@ -40,11 +47,17 @@ public class Adresse implements Serializable {
 	public static final int ORT_LENGTH_MAX = 32;
 	
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "adresse_seq")
+	@SequenceGenerator(name = "adresse_seq", sequenceName = "adresse_seq",
+	                   allocationSize = ID_BLOCK_STAMMDATEN)
 	@Column(nullable = false, updatable = false)
 	@Min(value = MIN_ID, message = "{kundenverwaltung.adresse.id.min}", groups = IdGroup.class)
 	private Long id = KEINE_ID;
 	
+	@Version
+	@Basic(optional = false)
+	private int version = ERSTE_VERSION;
+	
 	@Column(length = PLZ_LENGTH_MAX, nullable = false)
 	@NotNull(message = "{kundenverwaltung.adresse.plz.notNull}")
 	@Pattern(regexp = "\\d{5}", message = "{kundenverwaltung.adresse.plz.digits}")
@@ -98,6 +111,12 @@ public class Adresse implements Serializable {
 	public void setId(Long id) {
 		this.id = id;
 	}
+	public int getVersion() {
+		return version;
+	}
+	public void setVersion(int version) {
+		this.version = version;
+	}
 	public String getPlz() {
 		return plz;
 	}
@@ -117,6 +136,10 @@ public class Adresse implements Serializable {
 	public void setKunde(AbstractKunde kunde) {
 		this.kunde = kunde;
 	}
+	
+	public Date getAktualisiert() {
+		return aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
 
 	@Override
 	public int hashCode() {
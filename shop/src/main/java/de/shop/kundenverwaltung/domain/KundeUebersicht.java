@@ -0,0 +1,48 @@
+package de.shop.kundenverwaltung.domain;
+
+import java.io.Serializable;
+
+import de.shop.util.Uebersicht;
+
+
+/**
+ * Unveraenderliche Projektion eines Kunden fuer Listen ohne Adresse und Bestellungen
+ */
+public class KundeUebersicht implements Uebersicht, Serializable {
+	private static final long serialVersionUID = 3921804756232904417L;
+
+	private final Long id;
+	private final String nachname;
+	private final String vorname;
+	private final String email;
+
+	public KundeUebersicht(Long id, String nachname, String vorname, String email) {
+		this.id = id;
+		this.nachname = nachname;
+		this.vorname = vorname;
+		this.email = email;
+	}
+
+	@Override
+	public Long getId() {
+		return id;
+	}
+
+	public String getNachname() {
+		return nachname;
+	}
+
+	public String getVorname() {
+		return vorname;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	@Override
+	public String toString() {
+		return "KundeUebersicht [id=" + id + ", nachname=" + nachname + ", vorname=" + vorname
+			   + ", email=" + email + "]";
+	}
+}
@@ -7,10 +7,13 @@ import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
@@ -22,23 +25,35 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericEntity;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.jboss.logging.Logger;
 
 import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.bestellverwaltung.domain.BestellungUebersicht;
 import de.shop.bestellverwaltung.rest.UriHelperBestellung;
 import de.shop.bestellverwaltung.service.BestellungService;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.domain.Adresse;
+import de.shop.kundenverwaltung.domain.KundeUebersicht;
 import de.shop.kundenverwaltung.service.KundeService;
 import de.shop.kundenverwaltung.service.KundeService.FetchType;
+import de.shop.util.ConditionalGet;
+import de.shop.util.KeysetStreamingOutput;
 import de.shop.util.LocaleHelper;
 import de.shop.util.Log;
+import de.shop.util.Metrics;
 import de.shop.util.NotFoundException;
+import de.shop.util.ObjectMapperProvider;
 import de.shop.util.Transactional;
+import de.shop.util.UebersichtOutput;
+import de.shop.util.UriVorlage;
 
 @Path("/kunden")
 @Produces(APPLICATION_JSON)
@@ -46,14 +61,23 @@ import de.shop.util.Transactional;
 @RequestScoped
 @Transactional
 @Log
+@Metrics
 public class KundeResource {
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
+	private static final String LINK = "Link";
+	private static final int LIMIT_MAX = 500;
+	private static final int STREAMING_SEITE = 200;
+	private static final int PREFIX_LIMIT_MAX = 100;
+	
 	@Context
 	private UriInfo uriInfo;
 	
 	@Context
 	private HttpHeaders headers;
+	
+	@Context
+	private Request request;
 
 	@Inject
 	private UriHelperKunde uriHelperKunde;
@@ -70,9 +94,21 @@ public class KundeResource {
 	@Inject
 	private LocaleHelper localeHelper;
 	
+	@Inject
+	private ObjectMapperProvider objectMapperProvider;
+	
 	@GET
 	@Path("{id:[1-9][0-9]*}")
-	public AbstractKunde findKundeById(@PathParam("id") Long id) {
+	@Transactional(readOnly = true)
+	public Response findKundeById(@PathParam("id") Long id) {
+		// Unveraenderter Kunde: 304 anhand des Zeitstempels, ohne den Kunden zu laden
+		if (ConditionalGet.isBedingt(headers)) {
+			final Response nichtGeaendert = ConditionalGet.nichtGeaendert(request, ks.findAktualisiertById(id));
+			if (nichtGeaendert != null) {
+				return nichtGeaendert;
+			}
+		}
+		
 		final Locale locale = localeHelper.getLocale(headers);
 		final AbstractKunde kunde = ks.findKundeById(id, FetchType.NUR_KUNDE, locale);
 		if (kunde == null) {
@@ -84,34 +120,128 @@ public class KundeResource {
 		// URLs innerhalb des gefundenen Kunden anpassen
 		uriHelperKunde.updateUriKunde(kunde, uriInfo);
 		
-		return kunde;
+		return ConditionalGet.ok(kunde, aktualisiert(kunde));
 	}
 	
+	/**
+	 * Der ETag eines Kunden beruecksichtigt auch die Aenderungen der Adresse
+	 */
+	private static Date aktualisiert(AbstractKunde kunde) {
+		final Adresse adresse = kunde.getAdresse();
+		return ConditionalGet.juengster(kunde.getAktualisiert(), adresse == null ? null : adresse.getAktualisiert());
+	}
+	
+	/**
+	 * Mit der URL /kunden Kunden ermitteln.
+	 * <ul>
+	 * <li>?nachname=... : alle Kunden mit dem Nachnamen</li>
+	 * <li>?after=...&amp;limit=... : Seite mit hoechstens limit Kunden nach der ID after (Keyset-Pagination)
+	 *     und mit einem Link-Header fuer die naechste Seite</li>
+	 * <li>ohne Query-Parameter: alle Kunden als inkrementell geschriebenes JSON-Array</li>
+	 * </ul>
+	 */
 	@GET
-	public Collection<AbstractKunde> findKundenByNachname(@QueryParam("nachname") @DefaultValue("") String nachname) {
-		Collection<AbstractKunde> kunden = null;
-		if ("".equals(nachname)) {
-			kunden = ks.findAllKunden(FetchType.NUR_KUNDE, null);
-			if (kunden.isEmpty()) {
-				final String msg = "Keine Kunden vorhanden";
-				throw new NotFoundException(msg);
-			}
-		}
-		else {
+	@Transactional(readOnly = true)
+	public Response findKundenByNachname(@QueryParam("nachname") @DefaultValue("") String nachname,
+			                             @QueryParam("after") Long after,
+			                             @QueryParam("limit") @DefaultValue("0") int limit) {
+		if (!"".equals(nachname)) {
 			final Locale locale = localeHelper.getLocale(headers);
-			kunden = ks.findKundenByNachname(nachname, FetchType.NUR_KUNDE, locale);
+			final Collection<AbstractKunde> kunden = ks.findKundenByNachname(nachname, FetchType.NUR_KUNDE, locale);
 			if (kunden.isEmpty()) {
 				final String msg = "Kein Kunde gefunden mit Nachname " + nachname;
 				throw new NotFoundException(msg);
 			}
+			
+			// URLs innerhalb der gefundenen Kunden anpassen
+			for (AbstractKunde kunde : kunden) {
+				uriHelperKunde.updateUriKunde(kunde, uriInfo);
+			}
+			
+			return Response.ok(new GenericEntity<Collection<AbstractKunde>>(kunden) { }).build();
+		}
+		
+		if (after != null || limit > 0) {
+			return findKundenSeite(after, limit);
+		}
+		
+		return findAllKundenStreaming();
+	}
+	
+	private Response findKundenSeite(Long after, int limit) {
+		final int seitengroesse = limit <= 0 || limit > LIMIT_MAX ? LIMIT_MAX : limit;
+		final List<AbstractKunde> kunden = ks.findKundenAfterId(after, seitengroesse);
+		if (kunden.isEmpty()) {
+			throw new NotFoundException("Keine Kunden vorhanden nach der ID " + after);
 		}
 		
-		// URLs innerhalb der gefundenen Kunden anpassen
 		for (AbstractKunde kunde : kunden) {
 			uriHelperKunde.updateUriKunde(kunde, uriInfo);
 		}
 		
-		return kunden;
+		final ResponseBuilder rb = Response.ok(new GenericEntity<List<AbstractKunde>>(kunden) { });
+		if (kunden.size() == seitengroesse) {
+			// Es koennte weitere Kunden geben: Link auf die naechste Seite
+			final Long letzteId = kunden.get(kunden.size() - 1).getId();
+			final URI next = uriInfo.getRequestUriBuilder()
+			                        .replaceQueryParam("after", letzteId)
+			                        .replaceQueryParam("limit", seitengroesse)
+			                        .build();
+			rb.header(LINK, "<" + next + ">; rel=\"next\"");
+		}
+		return rb.build();
+	}
+	
+	private Response findAllKundenStreaming() {
+		final List<AbstractKunde> ersteSeite = ks.findKundenAfterId(null, STREAMING_SEITE);
+		if (ersteSeite.isEmpty()) {
+			final String msg = "Keine Kunden vorhanden";
+			throw new NotFoundException(msg);
+		}
+		
+		final StreamingOutput output =
+				new KeysetStreamingOutput<AbstractKunde>(ersteSeite, objectMapperProvider.getObjectMapper()) {
+			@Override
+			protected List<AbstractKunde> findNaechsteSeite(AbstractKunde letzterKunde) {
+				return ks.findKundenAfterId(letzterKunde.getId(), STREAMING_SEITE);
+			}
+			
+			@Override
+			protected void vorbereiten(AbstractKunde kunde) {
+				uriHelperKunde.updateUriKunde(kunde, uriInfo);
+			}
+		};
+		return Response.ok(output, APPLICATION_JSON).build();
+	}
+	
+	/**
+	 * Mit der URL /kunden/uebersicht?after=...&amp;limit=... eine Seite mit Kunden als Projektionen ermitteln:
+	 * Keyset-Pagination und Link-Header wie bei /kunden, die URL jedes Kunden wird beim Serialisieren erzeugt
+	 */
+	@GET
+	@Path("uebersicht")
+	@Transactional(readOnly = true)
+	public Response findKundenUebersicht(@QueryParam("after") Long after,
+			                             @QueryParam("limit") @DefaultValue("0") int limit) {
+		final int seitengroesse = limit <= 0 || limit > LIMIT_MAX ? LIMIT_MAX : limit;
+		final List<KundeUebersicht> kunden = ks.findKundenUebersichtAfterId(after, seitengroesse);
+		if (kunden.isEmpty()) {
+			throw new NotFoundException("Keine Kunden vorhanden nach der ID " + after);
+		}
+		
+		final UriVorlage uriVorlage = uriHelperKunde.getUriVorlageKunde(uriInfo);
+		final UebersichtOutput<KundeUebersicht> output =
+				new UebersichtOutput<>(kunden, uriVorlage, objectMapperProvider.getObjectMapper());
+		final ResponseBuilder rb = Response.ok(output, APPLICATION_JSON);
+		if (kunden.size() == seitengroesse) {
+			final Long letzteId = kunden.get(kunden.size() - 1).getId();
+			final URI next = uriInfo.getRequestUriBuilder()
+			                        .replaceQueryParam("after", letzteId)
+			                        .replaceQueryParam("limit", seitengroesse)
+			                        .build();
+			rb.header(LINK, "<" + next + ">; rel=\"next\"");
+		}
+		return rb.build();
 	}
 	
 	/**
@@ -121,15 +251,17 @@ public class KundeResource {
 	 */
 	@GET
 	@Path("{id:[1-9][0-9]*}/bestellungen")
+	@Transactional(readOnly = true)
 	public Collection<Bestellung> findBestellungenByKundeId(@PathParam("id") Long kundeId) {
 		final Locale locale = localeHelper.getLocale(headers);
 		
-		final AbstractKunde kunde = ks.findKundeById(kundeId, FetchType.MIT_BESTELLUNGEN, locale);
+		// Die Bestellungen werden nicht ueber den Kunden, sondern einmalig mit ihren Bestellpositionen geladen
+		final AbstractKunde kunde = ks.findKundeById(kundeId, FetchType.NUR_KUNDE, locale);
 		if (kunde == null) {
 			throw new NotFoundException("Kein Kunde mit der ID " + kundeId + " gefunden.");
 		}
 		
-		final Collection<Bestellung> bestellungen = bs.findBestellungenByKunde(kunde);
+		final Collection<Bestellung> bestellungen = bs.findBestellungenByKundeId(kundeId);
 		
 		// URLs innerhalb der gefundenen Bestellungen anpassen
 		for (Bestellung bestellung : bestellungen) {
@@ -139,8 +271,28 @@ public class KundeResource {
 		return bestellungen;
 	}
 	
+	/**
+	 * Mit der URL /kunden/{id}/bestellungen/uebersicht die Bestellungen eines Kunden als Projektionen
+	 * mit der Anzahl der Bestellpositionen ermitteln
+	 */
+	@GET
+	@Path("{id:[1-9][0-9]*}/bestellungen/uebersicht")
+	@Transactional(readOnly = true)
+	public Response findBestellungenUebersichtByKundeId(@PathParam("id") Long kundeId) {
+		final List<BestellungUebersicht> bestellungen = bs.findBestellungenUebersichtByKundeId(kundeId);
+		if (bestellungen.isEmpty()) {
+			throw new NotFoundException("Keine Bestellungen gefunden fuer den Kunden mit der ID " + kundeId);
+		}
+		
+		final UriVorlage uriVorlage = uriHelperBestellung.getUriVorlageBestellung(uriInfo);
+		final UebersichtOutput<BestellungUebersicht> output =
+				new UebersichtOutput<>(bestellungen, uriVorlage, objectMapperProvider.getObjectMapper());
+		return Response.ok(output, APPLICATION_JSON).build();
+	}
+	
 	@GET
 	@Path("{id:[1-9][0-9]*}/bestellungenIds")
+	@Transactional(readOnly = true)
 	public Collection<Long> findBestellungenIdsByKundeId(@PathParam("id") Long kundeId) {
 		final Collection<Bestellung> bestellungen = findBestellungenByKundeId(kundeId);
 		if (bestellungen.isEmpty()) {
@@ -207,8 +359,16 @@ public class KundeResource {
 			final String msg = "Kein Kunde gefunden mit der ID " + kunde.getId();
 			throw new NotFoundException(msg);
 		}
-		LOGGER.tracef("Kunde vorher: %s", origKunde);
+		
+		// If-Match mit dem ETag aus GET /kunden/{id}; sonst die Versionen aus dem JSON-Datensatz pruefen
+		ConditionalGet.pruefenIfMatch(request, aktualisiert(origKunde));
 		final Adresse origAdresse = origKunde.getAdresse();
+		if (kunde.getVersion() != origKunde.getVersion() || adresse.getVersion() != origAdresse.getVersion()) {
+			throw new OptimisticLockException("Der Kunde mit der ID " + origKunde.getId()
+					                          + " wurde zwischenzeitlich geaendert", null, origKunde);
+		}
+		
+		LOGGER.tracef("Kunde vorher: %s", origKunde);
 		origAdresse.setValues(adresse);
 		// Daten des vorhandenen Kunden ueberschreiben
 		origKunde.setValues(kunde);
@@ -238,8 +398,12 @@ public class KundeResource {
 	
 	@GET
 	@Path("/prefix/nachname/{nachname}")
-	public Collection<String> findNachnamenByPrefix(@PathParam("nachname") String nachnamePrefix) {
-		final Collection<String> nachnamen = ks.findNachnamenByPrefix(nachnamePrefix);
+	@Transactional(readOnly = true)
+	public Collection<String> findNachnamenByPrefix(@PathParam("nachname") String nachnamePrefix,
+			                                        @QueryParam("limit") @DefaultValue("10") int limit) {
+		// Anzahl der Vorschlaege begrenzen, auch wenn der Client kein oder ein zu grosses Limit angibt
+		final int anzahl = limit <= 0 || limit > PREFIX_LIMIT_MAX ? PREFIX_LIMIT_MAX : limit;
+		final Collection<String> nachnamen = ks.findNachnamenByPrefix(nachnamePrefix, anzahl);
 		return nachnamen;
 	}
 	
@@ -3,28 +3,32 @@ package de.shop.kundenverwaltung.rest;
 import java.net.URI;
 
 import javax.enterprise.context.ApplicationScoped;
-import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
 import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.util.UriVorlage;
+import de.shop.util.UriVorlagen;
 
 
 @ApplicationScoped
 public class UriHelperKunde {
+	// Pfade werden nur einmal je Basis-URL ermittelt
+	private final UriVorlagen kundeVorlagen = new UriVorlagen(KundeResource.class, "findKundeById");
+	private final UriVorlagen bestellungenVorlagen = new UriVorlagen(KundeResource.class,
+			                                                           "findBestellungenByKundeId");
+	
 	public URI getUriKunde(AbstractKunde kunde, UriInfo uriInfo) {
-		final UriBuilder ub = uriInfo.getBaseUriBuilder()
-		                             .path(KundeResource.class)
-		                             .path(KundeResource.class, "findKundeById");
-		final URI kundeUri = ub.build(kunde.getId());
+		final URI kundeUri = kundeVorlagen.getUri(uriInfo, kunde.getId());
 		return kundeUri;
 	}
 	
+	public UriVorlage getUriVorlageKunde(UriInfo uriInfo) {
+		return kundeVorlagen.getUriVorlage(uriInfo);
+	}
+	
 	public void updateUriKunde(AbstractKunde kunde, UriInfo uriInfo) {
 		// URL fuer Bestellungen setzen
-		final UriBuilder ub = uriInfo.getBaseUriBuilder()
-                                     .path(KundeResource.class)
-                                     .path(KundeResource.class, "findBestellungenByKundeId");
-		final URI bestellungenUri = ub.build(kunde.getId());
+		final URI bestellungenUri = bestellungenVorlagen.getUri(uriInfo, kunde.getId());
 		kunde.setBestellungenUri(bestellungenUri);
 	}
 }
@@ -0,0 +1,111 @@
+package de.shop.kundenverwaltung.service;
+
+import static javax.enterprise.event.TransactionPhase.AFTER_SUCCESS;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.jboss.logging.Logger;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+/**
+ * Index der Email-Adressen im Hauptspeicher: Email-Adresse in Kleinbuchstaben zur Kunden-ID.
+ * Die Pruefung auf eine bereits vorhandene Email-Adresse und die Suche nach einer Email-Adresse
+ * benoetigen damit keine DB-Abfrage. Lesende Zugriffe sind ohne Sperre.
+ * Gleichzeitige Transaktionen sehen die Aenderungen der anderen erst nach deren Commit; deshalb
+ * entscheidet letztlich der Unique-Constraint in der DB.
+ */
+@ApplicationScoped
+public class EmailIndex implements Serializable {
+	private static final long serialVersionUID = -3119893720561451164L;
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final Locale LOCALE = Locale.ENGLISH;
+	
+	@PersistenceContext
+	private transient EntityManager em;
+	
+	private final ConcurrentMap<String, Long> idByEmail = new ConcurrentHashMap<>();
+	
+	// Bisherige Email-Adresse zu jeder Kunden-ID, um Aenderungen und Loeschungen nachzuziehen
+	private final ConcurrentMap<Long, String> emailById = new ConcurrentHashMap<>();
+	
+	private volatile boolean geladen;
+	
+	/**
+	 * @param email Email-Adresse ohne Beachtung der Gross- und Kleinschreibung
+	 * @return ID des Kunden mit der Email-Adresse oder null
+	 */
+	public Long findIdByEmail(String email) {
+		if (email == null) {
+			return null;
+		}
+		if (!geladen) {
+			laden();
+		}
+		return idByEmail.get(falten(email));
+	}
+	
+	public void onNeuerKunde(@Observes(during = AFTER_SUCCESS) @NeuerKunde AbstractKunde kunde) {
+		aktualisieren(kunde.getId(), kunde.getEmail());
+	}
+	
+	public void onGeaenderterKunde(@Observes(during = AFTER_SUCCESS) @GeaenderterKunde AbstractKunde kunde) {
+		aktualisieren(kunde.getId(), kunde.getEmail());
+	}
+	
+	public void onGeloeschterKunde(@Observes(during = AFTER_SUCCESS) @GeloeschterKunde AbstractKunde kunde) {
+		aktualisieren(kunde.getId(), null);
+	}
+	
+	/**
+	 * Den Index mit einer einzigen Abfrage aufbauen, beim Start der Anwendung oder beim ersten Zugriff
+	 */
+	synchronized void laden() {
+		if (geladen) {
+			return;
+		}
+		
+		final List<Object[]> zeilen = em.createNamedQuery(AbstractKunde.FIND_IDS_EMAILS, Object[].class)
+				                        .getResultList();
+		for (Object[] zeile : zeilen) {
+			aktualisieren((Long) zeile[0], (String) zeile[1]);
+		}
+		geladen = true;
+		LOGGER.debugf("Email-Index mit %d Kunden geladen", idByEmail.size());
+	}
+	
+	/**
+	 * Die Email-Adresse eines Kunden setzen. Wiederholte Aufrufe mit denselben Daten aendern nichts, so dass
+	 * Events vor oder waehrend des Ladens den Index nicht verfaelschen.
+	 * @param id ID des Kunden
+	 * @param email neue Email-Adresse oder null, falls der Kunde geloescht wurde
+	 */
+	private synchronized void aktualisieren(Long id, String email) {
+		final String schluessel = email == null ? null : falten(email);
+		final String bisher = schluessel == null ? emailById.remove(id) : emailById.put(id, schluessel);
+		if (bisher != null) {
+			if (bisher.equals(schluessel)) {
+				return;
+			}
+			idByEmail.remove(bisher, id);
+		}
+		if (schluessel != null) {
+			idByEmail.put(schluessel, id);
+		}
+	}
+	
+	private static String falten(String str) {
+		return str.toLowerCase(LOCALE);
+	}
+}
@@ -0,0 +1,33 @@
+package de.shop.kundenverwaltung.service;
+
+import java.lang.invoke.MethodHandles;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Email-Index und Nachname-Index beim Start der Anwendung aufbauen, damit der erste Request
+ * nicht auf das Laden warten muss
+ */
+@Singleton
+@Startup
+public class KundeIndexInitialisierung {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	@Inject
+	private EmailIndex emailIndex;
+	
+	@Inject
+	private NachnameIndex nachnameIndex;
+	
+	@PostConstruct
+	private void init() {
+		emailIndex.laden();
+		nachnameIndex.laden();
+		LOGGER.info("Email-Index und Nachname-Index aufgebaut");
+	}
+}
@@ -1,11 +1,20 @@
 package de.shop.kundenverwaltung.service;
 
+import static de.shop.util.Constants.MIN_ID;
+
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -14,6 +23,7 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
@@ -24,6 +34,7 @@ import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import javax.validation.groups.Default;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.jboss.logging.Logger;
 
 import de.shop.bestellverwaltung.domain.Bestellposition;
@@ -33,15 +44,24 @@ import de.shop.bestellverwaltung.domain.Bestellung_;
 import de.shop.kundenverwaltung.domain.AbstractKunde;
 import de.shop.kundenverwaltung.domain.AbstractKunde_;
 import de.shop.kundenverwaltung.domain.Adresse;
+import de.shop.kundenverwaltung.domain.KundeUebersicht;
 import de.shop.util.IdGroup;
 import de.shop.util.Log;
+import de.shop.util.Metrics;
 import de.shop.util.ValidatorProvider;
 
 @Log
+@Metrics
 public class KundeService implements Serializable {
 	private static final long serialVersionUID = 3188789767052580247L;
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
+	// Fuer die schnelle Pruefung ohne Bean Validation, s. validateNachname()
+	private static final Pattern NACHNAME_PATTERN = Pattern.compile(AbstractKunde.NACHNAME_PATTERN);
+	
+	// Oracle erlaubt hoechstens 1000 Elemente in einer IN-Liste
+	private static final int IN_LISTE_MAX = 500;
+	
 	public enum FetchType {
 		NUR_KUNDE,
 		MIT_BESTELLUNGEN
@@ -59,6 +79,20 @@ public class KundeService implements Serializable {
 	@NeuerKunde
 	private transient Event<AbstractKunde> event;
 	
+	@Inject
+	@GeaenderterKunde
+	private transient Event<AbstractKunde> eventGeaendert;
+	
+	@Inject
+	@GeloeschterKunde
+	private transient Event<AbstractKunde> eventGeloescht;
+	
+	@Inject
+	private NachnameIndex nachnameIndex;
+	
+	@Inject
+	private EmailIndex emailIndex;
+	
 	@Inject
 	private ValidatorProvider validatorProvider;
 	
@@ -99,7 +133,40 @@ public class KundeService implements Serializable {
 
 		return kunden;
 	}
+
+	/**
+	 * Keyset-Pagination: die naechsten Kunden nach der ID afterId, aufsteigend sortiert nach der ID.
+	 * Im Gegensatz zu OFFSET bleibt der Aufwand fuer spaete Seiten konstant.
+	 * @param afterId ID des letzten Kunden der vorherigen Seite oder null fuer die erste Seite
+	 * @param limit maximale Anzahl der gelieferten Kunden
+	 * @return Liste mit hoechstens limit Kunden
+	 */
+	public List<AbstractKunde> findKundenAfterId(Long afterId, int limit) {
+		final Long after = afterId == null ? Long.valueOf(0L) : afterId;
+		final List<AbstractKunde> kunden = em.createNamedQuery(AbstractKunde.FIND_KUNDEN_AFTER_ID, AbstractKunde.class)
+		                                     .setParameter(AbstractKunde.PARAM_KUNDE_ID, after)
+		                                     .setMaxResults(limit)
+		                                     .getResultList();
+		return kunden;
+	}
 	
+	/**
+	 * Keyset-Pagination wie bei findKundenAfterId, aber mit unveraenderlichen Projektionen anstatt Entities:
+	 * kein Persistenzkontext, keine Kopien fuer Dirty Checking und kein Nachladen beim Serialisieren
+	 * @param afterId ID des letzten Kunden der vorherigen Seite oder null fuer die erste Seite
+	 * @param limit maximale Anzahl der gelieferten Kunden
+	 * @return Liste mit hoechstens limit Kunden, aufsteigend sortiert nach der ID
+	 */
+	public List<KundeUebersicht> findKundenUebersichtAfterId(Long afterId, int limit) {
+		final Long after = afterId == null ? Long.valueOf(0L) : afterId;
+		final List<KundeUebersicht> kunden = em.createNamedQuery(AbstractKunde.FIND_KUNDEN_UEBERSICHT_AFTER_ID,
+				                                                 KundeUebersicht.class)
+		                                       .setParameter(AbstractKunde.PARAM_KUNDE_ID, after)
+		                                       .setMaxResults(limit)
+		                                       .getResultList();
+		return kunden;
+	}
+
 	public List<AbstractKunde> findKundenByNachname(String nachname, FetchType fetch, Locale locale) {
 		validateNachname(nachname, locale);
 		
@@ -128,14 +195,43 @@ public class KundeService implements Serializable {
 		return kunden;
 	}
 	
-	public List<String> findNachnamenByPrefix(String nachnamePrefix) {
-		final List<String> nachnamen = em.createNamedQuery(AbstractKunde.FIND_NACHNAMEN_BY_PREFIX,
-				                                           String.class)
-				                         .setParameter(AbstractKunde.PARAM_KUNDE_NACHNAME_PREFIX, nachnamePrefix + '%')
-				                         .getResultList();
+	/**
+	 * Nachnamen fuer die Autovervollstaendigung aus dem Nachname-Index im Hauptspeicher
+	 * @param nachnamePrefix Praefix ohne Beachtung der Gross- und Kleinschreibung
+	 * @param limit maximale Anzahl Nachnamen; 0 fuer alle Nachnamen
+	 * @return alphabetisch sortierte Nachnamen
+	 */
+	public List<String> findNachnamenByPrefix(String nachnamePrefix, int limit) {
+		final List<String> nachnamen = nachnameIndex.findNachnamenByPrefix(nachnamePrefix, limit);
 		return nachnamen;
 	}
 	
+	/**
+	 * Der Index kennt keine Kunden aus gleichzeitigen Transaktionen; deshalb entscheidet der Unique-Constraint
+	 */
+	private void flushEmail(AbstractKunde kunde) {
+		try {
+			em.flush();
+		}
+		catch (PersistenceException e) {
+			// Nur die Verletzung des Unique Constraints fuer die Email, nicht z.B. eines Fremdschluessels
+			if (e.getCause() instanceof ConstraintViolationException
+				&& isEmailConstraint(((ConstraintViolationException) e.getCause()).getConstraintName())) {
+				throw new EmailExistsException(kunde.getEmail());
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Der Name wird vom Dialekt aus der Fehlermeldung der DB extrahiert, z.B. mit Schema als Praefix
+	 * oder in Grossbuchstaben
+	 */
+	private static boolean isEmailConstraint(String constraintName) {
+		return constraintName != null
+			   && constraintName.toLowerCase(Locale.ENGLISH).contains(AbstractKunde.EMAIL_UK);
+	}
+	
 	private void validateEmail(String email, Locale locale) {
 		final Validator validator = validatorProvider.getValidator(locale);
 		final Set<ConstraintViolation<AbstractKunde>> violations = validator.validateValue(AbstractKunde.class,
@@ -146,6 +242,22 @@ public class KundeService implements Serializable {
 			throw new InvalidEmailException(email, violations);
 	}
 	
+	/**
+	 * Zeitstempel der letzten Aenderung von Kunde oder Adresse, ohne den Kunden zu laden, z.B. fuer ETag
+	 * @return juengerer Zeitstempel von Kunde und Adresse; null, falls es keinen Kunden mit der ID gibt
+	 */
+	public Date findAktualisiertById(Long id) {
+		final List<Object[]> ergebnis = em.createNamedQuery(AbstractKunde.FIND_AKTUALISIERT_BY_ID, Object[].class)
+		                                  .setParameter(AbstractKunde.PARAM_KUNDE_ID, id)
+		                                  .getResultList();
+		if (ergebnis.isEmpty()) {
+			return null;
+		}
+		final Date kunde = (Date) ergebnis.get(0)[0];
+		final Date adresse = (Date) ergebnis.get(0)[1];
+		return adresse != null && adresse.after(kunde) ? adresse : kunde;
+	}
+	
 	public AbstractKunde findKundeById(Long id, FetchType fetch, Locale locale) {
 		validateKundeId(id, locale);
 		
@@ -174,6 +286,34 @@ public class KundeService implements Serializable {
 		return kunde;
 	}
 	
+	/**
+	 * Mehrere Kunden ohne ihre Bestellungen mengenorientiert laden, z.B. fuer einen Import von Bestellungen.
+	 * Die IDs werden in Bloecken abgefragt, damit die IN-Liste nicht beliebig lang wird.
+	 * @param ids IDs der gesuchten Kunden
+	 * @return Map mit der ID als Schluessel; nicht gefundene Kunden fehlen in der Map
+	 */
+	public Map<Long, AbstractKunde> findKundenByIds(Collection<Long> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		
+		final Set<Long> idSet = new HashSet<>(ids);
+		idSet.remove(null);
+		final List<Long> idListe = new ArrayList<>(idSet);
+		final Map<Long, AbstractKunde> kunden = new HashMap<>(idListe.size() * 2);
+		for (int von = 0; von < idListe.size(); von += IN_LISTE_MAX) {
+			final int bis = Math.min(von + IN_LISTE_MAX, idListe.size());
+			final List<AbstractKunde> block =
+					em.createNamedQuery(AbstractKunde.FIND_KUNDEN_BY_IDS, AbstractKunde.class)
+					  .setParameter(AbstractKunde.PARAM_KUNDE_IDS, idListe.subList(von, bis))
+					  .getResultList();
+			for (AbstractKunde k : block) {
+				kunden.put(k.getId(), k);
+			}
+		}
+		return kunden;
+	}
+	
 	public AbstractKunde createKunde(AbstractKunde kunde, Locale locale) {
 		if (kunde == null) {
 			return kunde;
@@ -183,18 +323,12 @@ public class KundeService implements Serializable {
 		validateKunde(kunde, locale, Default.class);
 		
 		// Pruefung, ob die Email-Adresse schon existiert
-		try {
-			em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_EMAIL, AbstractKunde.class)
-			  .setParameter(AbstractKunde.PARAM_KUNDE_EMAIL, kunde.getEmail())
-			  .getSingleResult();
+		if (emailIndex.findIdByEmail(kunde.getEmail()) != null) {
 			throw new EmailExistsException(kunde.getEmail());
 		}
-		catch (NoResultException e) {
-			// Noch kein Kunde mit dieser Email-Adresse
-			LOGGER.trace("Email-Adresse existiert noch nicht");
-		}
 		
 		em.persist(kunde);
+		flushEmail(kunde);
 		event.fire(kunde);
 		return kunde;		
 	}
@@ -207,34 +341,41 @@ public class KundeService implements Serializable {
 		// Werden alle Constraints beim Modifizieren gewahrt?
 		validateKunde(kunde, locale, Default.class, IdGroup.class);
 		
-		// kunde vom EntityManager trennen, weil anschliessend z.B. nach Id und Email gesucht wird
-		em.detach(kunde);
-		
-		// Gibt es ein anderes Objekt mit gleicher Email-Adresse?
-		final AbstractKunde	tmp = findKundeByEmail(kunde.getEmail(), locale);
-		if (tmp != null) {
-			em.detach(tmp);
-			if (tmp.getId().longValue() != kunde.getId().longValue()) {
-				// anderes Objekt mit gleichem Attributwert fuer email
-				throw new EmailExistsException(kunde.getEmail());
-			}
+		// Gibt es einen anderen Kunden mit gleicher Email-Adresse?
+		final Long emailId = emailIndex.findIdByEmail(kunde.getEmail());
+		if (emailId != null && emailId.longValue() != kunde.getId().longValue()) {
+			throw new EmailExistsException(kunde.getEmail());
 		}
 		em.merge(kunde);
 		em.merge(adresse);
+		flushEmail(kunde);
+		eventGeaendert.fire(kunde);
 		return kunde;
 	}
 	
+	/**
+	 * Kunde zur Email-Adresse ohne Beachtung der Gross- und Kleinschreibung. Die ID wird im Email-Index
+	 * ermittelt; existiert die Email-Adresse nicht, gibt es keine DB-Abfrage.
+	 */
 	public AbstractKunde findKundeByEmail(String email, Locale locale) {
 		validateEmail(email, locale);
-		try {
-			final AbstractKunde kunde = em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_EMAIL, AbstractKunde.class)
-					                      .setParameter(AbstractKunde.PARAM_KUNDE_EMAIL, email)
-					                      .getSingleResult();
-			return kunde;
-		}
-		catch (NoResultException e) {
+		final Long id = emailIndex.findIdByEmail(email);
+		if (id == null) {
 			return null;
 		}
+		
+		final AbstractKunde kundeById = em.find(AbstractKunde.class, id);
+		if (kundeById != null && email.equalsIgnoreCase(kundeById.getEmail())) {
+			return kundeById;
+		}
+		
+		// Der Index ist noch nicht aktualisiert, z.B. waehrend des Commits einer Aenderung.
+		// Der Unique Constraint unterscheidet Gross- und Kleinschreibung: bei mehreren Treffern zaehlt der erste.
+		final List<AbstractKunde> kunden = em.createNamedQuery(AbstractKunde.FIND_KUNDE_BY_EMAIL, AbstractKunde.class)
+				                             .setParameter(AbstractKunde.PARAM_KUNDE_EMAIL, email)
+				                             .setMaxResults(1)
+				                             .getResultList();
+		return kunden.isEmpty() ? null : kunden.get(0);
 	}
 	
 	public void deleteKunde(AbstractKunde kunde) {
@@ -260,6 +401,7 @@ public class KundeService implements Serializable {
 		}
 
 		em.remove(kunde);
+		eventGeloescht.fire(kunde);
 	}
 	
 	public List<AbstractKunde> findKundenByPLZ(String plz) {
@@ -312,6 +454,11 @@ public class KundeService implements Serializable {
 	}
 	
 	private void validateKundeId(Long kundeId, Locale locale) {
+		// Schnelle Pruefung fuer @Min; Bean Validation nur fuer die Fehlermeldungen
+		if (kundeId == null || kundeId >= MIN_ID) {
+			return;
+		}
+		
 		final Validator validator = validatorProvider.getValidator(locale);
 		final Set<ConstraintViolation<AbstractKunde>> violations = validator.validateValue(AbstractKunde.class,
 				                                                                           "id",
@@ -324,6 +471,14 @@ public class KundeService implements Serializable {
 	
 	
 	private void validateNachname(String nachname, Locale locale) {
+		// Schnelle Pruefung fuer @NotNull, @Size und @Pattern; Bean Validation nur fuer die Fehlermeldungen
+		if (nachname != null
+			&& nachname.length() >= AbstractKunde.NACHNAME_LENGTH_MIN
+			&& nachname.length() <= AbstractKunde.NACHNAME_LENGTH_MAX
+			&& NACHNAME_PATTERN.matcher(nachname).matches()) {
+			return;
+		}
+		
 		final Validator validator = validatorProvider.getValidator(locale);
 		final Set<ConstraintViolation<AbstractKunde>> violations = validator.validateValue(AbstractKunde.class,
 				                                                                           "nachname",
@@ -0,0 +1,152 @@
+package de.shop.kundenverwaltung.service;
+
+import static javax.enterprise.event.TransactionPhase.AFTER_SUCCESS;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.jboss.logging.Logger;
+
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+
+/**
+ * Sortierter Index der Nachnamen im Hauptspeicher fuer die Autovervollstaendigung.
+ * Schluessel ist der Nachname in Kleinbuchstaben, Wert sind die vorkommenden Schreibweisen mit
+ * der Anzahl der Kunden. Eine Praefix-Suche ist damit ein Bereichszugriff auf die sortierte Map.
+ * Lesende Zugriffe sind ohne Sperre; Aenderungen ersetzen den Wert fuer einen Schluessel
+ * durch eine neue, unveraenderliche Map.
+ */
+@ApplicationScoped
+public class NachnameIndex implements Serializable {
+	private static final long serialVersionUID = 2376180624620426452L;
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	private static final Locale LOCALE = Locale.GERMAN;
+	
+	@PersistenceContext
+	private transient EntityManager em;
+	
+	private final ConcurrentSkipListMap<String, SortedMap<String, Integer>> nachnamen =
+			                                                                new ConcurrentSkipListMap<>();
+	
+	// Bisheriger Nachname zu jeder Kunden-ID, um Aenderungen und Loeschungen nachzuziehen
+	private final Map<Long, String> nachnameById = new HashMap<>();
+	
+	private volatile boolean geladen;
+	
+	/**
+	 * Nachnamen mit dem Praefix ohne Beachtung der Gross- und Kleinschreibung, alphabetisch sortiert
+	 * @param prefix Praefix des Nachnamens
+	 * @param limit maximale Anzahl Nachnamen; 0 fuer alle Nachnamen
+	 * @return unterschiedliche Nachnamen in der gespeicherten Schreibweise
+	 */
+	public List<String> findNachnamenByPrefix(String prefix, int limit) {
+		if (!geladen) {
+			laden();
+		}
+		
+		final String schluessel = falten(prefix);
+		final List<String> ergebnis = new ArrayList<>(limit > 0 ? limit : 16);
+		for (Entry<String, SortedMap<String, Integer>> e : nachnamen.tailMap(schluessel).entrySet()) {
+			if (!e.getKey().startsWith(schluessel)) {
+				break;
+			}
+			for (String nachname : e.getValue().keySet()) {
+				ergebnis.add(nachname);
+				if (ergebnis.size() == limit) {
+					return ergebnis;
+				}
+			}
+		}
+		return ergebnis;
+	}
+	
+	public void onNeuerKunde(@Observes(during = AFTER_SUCCESS) @NeuerKunde AbstractKunde kunde) {
+		aktualisieren(kunde.getId(), kunde.getNachname());
+	}
+	
+	public void onGeaenderterKunde(@Observes(during = AFTER_SUCCESS) @GeaenderterKunde AbstractKunde kunde) {
+		aktualisieren(kunde.getId(), kunde.getNachname());
+	}
+	
+	public void onGeloeschterKunde(@Observes(during = AFTER_SUCCESS) @GeloeschterKunde AbstractKunde kunde) {
+		aktualisieren(kunde.getId(), null);
+	}
+	
+	/**
+	 * Den Index mit einer einzigen Abfrage aufbauen, beim Start der Anwendung oder beim ersten Zugriff
+	 */
+	synchronized void laden() {
+		if (geladen) {
+			return;
+		}
+		
+		final List<Object[]> zeilen = em.createNamedQuery(AbstractKunde.FIND_IDS_NACHNAMEN, Object[].class)
+				                        .getResultList();
+		for (Object[] zeile : zeilen) {
+			aktualisieren((Long) zeile[0], (String) zeile[1]);
+		}
+		geladen = true;
+		LOGGER.debugf("Nachname-Index mit %d Kunden und %d Nachnamen geladen", zeilen.size(), nachnamen.size());
+	}
+	
+	/**
+	 * Den Nachnamen eines Kunden setzen. Wiederholte Aufrufe mit denselben Daten aendern nichts, so dass
+	 * Events vor oder waehrend des Ladens den Index nicht verfaelschen.
+	 * @param id ID des Kunden
+	 * @param nachname neuer Nachname oder null, falls der Kunde geloescht wurde
+	 */
+	private synchronized void aktualisieren(Long id, String nachname) {
+		final String bisher = nachname == null ? nachnameById.remove(id) : nachnameById.put(id, nachname);
+		if (bisher != null) {
+			if (bisher.equals(nachname)) {
+				return;
+			}
+			aendern(bisher, -1);
+		}
+		if (nachname != null) {
+			aendern(nachname, 1);
+		}
+	}
+	
+	private void aendern(String nachname, int delta) {
+		final String schluessel = falten(nachname);
+		final SortedMap<String, Integer> bisher = nachnamen.get(schluessel);
+		final SortedMap<String, Integer> neu = bisher == null ? new TreeMap<String, Integer>()
+				                                             : new TreeMap<>(bisher);
+		final Integer anzahlBisher = neu.get(nachname);
+		final int anzahl = (anzahlBisher == null ? 0 : anzahlBisher) + delta;
+		if (anzahl > 0) {
+			neu.put(nachname, anzahl);
+		}
+		else {
+			neu.remove(nachname);
+		}
+		
+		if (neu.isEmpty()) {
+			nachnamen.remove(schluessel);
+		}
+		else {
+			nachnamen.put(schluessel, Collections.unmodifiableSortedMap(neu));
+		}
+	}
+	
+	private static String falten(String str) {
+		return str == null ? "" : str.toLowerCase(LOCALE);
+	}
+}
@@ -0,0 +1,161 @@
+package de.shop.mail;
+
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static javax.transaction.Status.STATUS_NO_TRANSACTION;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.jboss.logging.Logger;
+
+import de.shop.mail.domain.MailAuftrag;
+import de.shop.mail.domain.MailStatus;
+import de.shop.util.Log;
+
+
+/**
+ * Zugriff auf die Outbox-Tabelle fuer Emails
+ */
+@Log
+public class MailAuftragService implements Serializable {
+	private static final long serialVersionUID = 2471503395296617924L;
+
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	// Nach so vielen fehlgeschlagenen Versuchen wird der Auftrag abgebrochen
+	static final int MAX_VERSUCHE = 8;
+
+	// Wartezeit vor dem 2. Versuch; danach jeweils verdoppelt bis hoechstens 1 Stunde
+	private static final long WARTEZEIT_MILLIS = 60_000L;
+	private static final long WARTEZEIT_MAX_MILLIS = 3_600_000L;
+
+	@PersistenceContext
+	private transient EntityManager em;
+
+	@Resource
+	private transient TransactionSynchronizationRegistry tsr;
+
+	@Inject
+	private MailDispatcher mailDispatcher;
+
+	@PostConstruct
+	private void postConstruct() {
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+
+	@PreDestroy
+	private void preDestroy() {
+		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
+	}
+
+	/**
+	 * Einen Mail-Auftrag in der aktuellen Transaktion speichern. Erst nach erfolgreichem Commit wird der Auftrag
+	 * an den MailDispatcher uebergeben; bei einem Rollback gibt es weder Auftrag noch Email.
+	 */
+	public MailAuftrag createMailAuftrag(MailAuftrag mailAuftrag) {
+		if (mailAuftrag == null) {
+			return null;
+		}
+
+		em.persist(mailAuftrag);
+		em.flush();  // ID ermitteln
+
+		final Long id = mailAuftrag.getId();
+		if (tsr.getTransactionStatus() == STATUS_NO_TRANSACTION) {
+			mailDispatcher.anbieten(id);
+			return mailAuftrag;
+		}
+
+		tsr.registerInterposedSynchronization(new Synchronization() {
+			@Override
+			public void beforeCompletion() {
+				// nichts zu tun
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_COMMITTED) {
+					mailDispatcher.anbieten(id);
+				}
+			}
+		});
+		return mailAuftrag;
+	}
+
+	/**
+	 * Offene Auftraege, deren naechster Versuch faellig ist
+	 */
+	public List<MailAuftrag> findFaelligeMailAuftraege(int anzahl) {
+		return em.createNamedQuery(MailAuftrag.FIND_FAELLIGE_MAIL_AUFTRAEGE, MailAuftrag.class)
+				 .setParameter(MailAuftrag.PARAM_STATUS, MailStatus.OFFEN)
+				 .setParameter(MailAuftrag.PARAM_ZEITPUNKT, new Date())
+				 .setMaxResults(anzahl)
+				 .getResultList();
+	}
+
+	/**
+	 * Offene Auftraege zu den IDs; bereits versendete oder abgebrochene Auftraege fehlen im Ergebnis
+	 */
+	public List<MailAuftrag> findOffeneMailAuftraegeByIds(Collection<Long> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return em.createNamedQuery(MailAuftrag.FIND_MAIL_AUFTRAEGE_BY_IDS, MailAuftrag.class)
+				 .setParameter(MailAuftrag.PARAM_IDS, ids)
+				 .setParameter(MailAuftrag.PARAM_STATUS, MailStatus.OFFEN)
+				 .getResultList();
+	}
+
+	public void versendet(Long id) {
+		final MailAuftrag mailAuftrag = em.find(MailAuftrag.class, id);
+		if (mailAuftrag == null) {
+			return;
+		}
+		mailAuftrag.setStatus(MailStatus.VERSENDET);
+		mailAuftrag.setVersuche(mailAuftrag.getVersuche() + 1);
+		mailAuftrag.setFehler(null);
+	}
+
+	/**
+	 * Fehlgeschlagenen Versuch vermerken und den naechsten Versuch mit exponentiell wachsender Wartezeit planen
+	 * @return true, falls der Auftrag abgebrochen wurde
+	 */
+	public boolean fehlgeschlagen(Long id, String fehler) {
+		final MailAuftrag mailAuftrag = em.find(MailAuftrag.class, id);
+		if (mailAuftrag == null) {
+			return false;
+		}
+
+		final int versuche = mailAuftrag.getVersuche() + 1;
+		mailAuftrag.setVersuche(versuche);
+		if (fehler != null && fehler.length() > MailAuftrag.FEHLER_LENGTH_MAX) {
+			fehler = fehler.substring(0, MailAuftrag.FEHLER_LENGTH_MAX);
+		}
+		mailAuftrag.setFehler(fehler);
+
+		if (versuche >= MAX_VERSUCHE) {
+			mailAuftrag.setStatus(MailStatus.ABGEBROCHEN);
+			LOGGER.errorf("Mail-Auftrag %d nach %d Versuchen abgebrochen: %s", id, versuche, fehler);
+			return true;
+		}
+
+		final long wartezeit = Math.min(WARTEZEIT_MILLIS << (versuche - 1), WARTEZEIT_MAX_MILLIS);
+		mailAuftrag.setNaechsterVersuch(new Date(System.currentTimeMillis() + wartezeit));
+		LOGGER.warnf("Mail-Auftrag %d: Versuch %d fehlgeschlagen (%s), naechster Versuch in %d s",
+				     id, versuche, fehler, wartezeit / 1000);
+		return false;
+	}
+}
@@ -0,0 +1,281 @@
+package de.shop.mail;
+
+import static javax.ejb.ConcurrencyManagementType.BEAN;
+import static javax.ejb.TransactionAttributeType.NOT_SUPPORTED;
+import static javax.ejb.TransactionAttributeType.REQUIRES_NEW;
+import static javax.ejb.TransactionAttributeType.SUPPORTS;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.Schedule;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.inject.Inject;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+
+import org.jboss.logging.Logger;
+
+import de.shop.mail.domain.MailAuftrag;
+import de.shop.util.Config;
+import de.shop.util.Messwert;
+import de.shop.util.MetricsRegistry;
+import de.shop.util.Zaehler;
+
+
+/**
+ * Versand der Mail-Auftraege aus der Outbox-Tabelle. Die IDs neuer Auftraege werden in eine begrenzte
+ * Warteschlange eingereiht. Bis zu ANZAHL_WORKER asynchrone Aufrufe von abarbeiten() im Thread-Pool des
+ * EJB-Containers entnehmen jeweils bis zu BATCH_MAX Auftraege und versenden sie ueber eine einzige Verbindung
+ * zum Mailserver, bis die Warteschlange leer ist. Ist die Warteschlange voll, bleibt der Auftrag in der
+ * Outbox und wird spaeter durch nachholen() eingereiht, ebenso Auftraege nach einem Fehlschlag oder Neustart.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(BEAN)
+public class MailDispatcher {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final int WARTESCHLANGE_MAX = 1000;
+	private static final int BATCH_MAX = 50;
+	private static final int ANZAHL_WORKER = 2;
+
+	@Resource(lookup = "java:jboss/mail/Default")
+	private Session mailSession;
+
+	@Resource
+	private SessionContext ctx;
+
+	@Inject
+	private Config config;
+
+	@Inject
+	private MetricsRegistry metricsRegistry;
+
+	@Inject
+	private MailAuftragService mailAuftragService;
+
+	private final BlockingQueue<Long> warteschlange = new ArrayBlockingQueue<>(WARTESCHLANGE_MAX);
+
+	// IDs in der Warteschlange oder in Bearbeitung, damit nachholen() keine Auftraege doppelt einreiht
+	private final Set<Long> eingereiht = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	private final Zaehler angenommen = new Zaehler();
+	private final Zaehler abgewiesen = new Zaehler();
+	private final Zaehler versendet = new Zaehler();
+	private final Zaehler fehlgeschlagen = new Zaehler();
+
+	// Anzahl der laufenden Aufrufe von abarbeiten()
+	private final AtomicInteger worker = new AtomicInteger();
+	private volatile boolean aktiv;
+
+	private MailVersand mailVersand;
+
+	@PostConstruct
+	private void init() {
+		registriereMesswerte();
+
+		final String absenderMail = config.getAbsenderMail();
+		if (absenderMail == null) {
+			LOGGER.warn("Der Absender fuer Emails ist nicht gesetzt.");
+			return;
+		}
+		try {
+			mailVersand = new MailVersand(mailSession, new InternetAddress(absenderMail, config.getAbsenderName()));
+		}
+		catch (UnsupportedEncodingException e) {
+			LOGGER.errorf(e, "Ungueltiger Absender fuer Emails: %s", absenderMail);
+			return;
+		}
+		LOGGER.info("Absender fuer Emails: " + absenderMail);
+
+		aktiv = true;
+	}
+
+	@PreDestroy
+	private void preDestroy() {
+		// Laufende Aufrufe von abarbeiten() beenden sich nach dem aktuellen Batch
+		aktiv = false;
+		LOGGER.infof("Mailversand beendet; noch %d Auftraege in der Warteschlange", warteschlange.size());
+	}
+
+	/**
+	 * Einen gespeicherten Auftrag zum Versand einreihen. Ist die Warteschlange voll, wird nicht blockiert:
+	 * der Auftrag bleibt in der Outbox und wird durch nachholen() spaeter eingereiht.
+	 * @return true, falls der Auftrag eingereiht wurde
+	 */
+	@TransactionAttribute(SUPPORTS)
+	public boolean anbieten(Long id) {
+		if (!aktiv || id == null) {
+			return false;
+		}
+		if (!eingereiht.add(id)) {
+			return true;
+		}
+		if (!warteschlange.offer(id)) {
+			eingereiht.remove(id);
+			abgewiesen.erhoehen();
+			LOGGER.debugf("Warteschlange voll: Mail-Auftrag %d bleibt in der Outbox", id);
+			return false;
+		}
+		angenommen.erhoehen();
+		starten();
+		return true;
+	}
+
+	/**
+	 * Auftraege aus der Warteschlange versenden, bis sie leer ist. Aufgerufen wird die Methode nur durch
+	 * starten(), d.h. es laufen hoechstens ANZAHL_WORKER Aufrufe gleichzeitig.
+	 */
+	@Asynchronous
+	@TransactionAttribute(NOT_SUPPORTED)
+	public void abarbeiten() {
+		final MailDispatcher self = ctx.getBusinessObject(MailDispatcher.class);
+		try {
+			Long id = warteschlange.poll();
+			while (aktiv && id != null) {
+				verarbeiten(self, id);
+				id = warteschlange.poll();
+			}
+		}
+		finally {
+			worker.decrementAndGet();
+		}
+
+		// Waehrend des Beendens eingereihte Auftraege nicht bis zum naechsten nachholen() liegen lassen
+		if (!warteschlange.isEmpty()) {
+			starten();
+		}
+	}
+
+	/**
+	 * Faellige Auftraege aus der Outbox einreihen, soweit Platz in der Warteschlange ist
+	 */
+	@Schedule(minute = "*", hour = "*", persistent = false)
+	public void nachholen() {
+		final int frei = warteschlange.remainingCapacity();
+		if (!aktiv || frei == 0) {
+			return;
+		}
+		for (MailAuftrag mailAuftrag : mailAuftragService.findFaelligeMailAuftraege(frei)) {
+			if (!anbieten(mailAuftrag.getId())) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Offene Auftraege zu den IDs in einer eigenen Transaktion laden
+	 */
+	@TransactionAttribute(REQUIRES_NEW)
+	public List<MailAuftrag> laden(Collection<Long> ids) {
+		return mailAuftragService.findOffeneMailAuftraegeByIds(ids);
+	}
+
+	/**
+	 * Ergebnis eines Batches in einer eigenen Transaktion in der Outbox vermerken
+	 */
+	@TransactionAttribute(REQUIRES_NEW)
+	public void abschliessen(Collection<MailAuftrag> mailAuftraege, Map<Long, String> fehler) {
+		for (MailAuftrag mailAuftrag : mailAuftraege) {
+			final Long id = mailAuftrag.getId();
+			if (!fehler.containsKey(id)) {
+				mailAuftragService.versendet(id);
+			}
+		}
+		for (Entry<Long, String> entry : fehler.entrySet()) {
+			mailAuftragService.fehlgeschlagen(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Einen weiteren Aufruf von abarbeiten() starten, falls noch nicht ANZAHL_WORKER Aufrufe laufen
+	 */
+	private void starten() {
+		for (;;) {
+			final int laufend = worker.get();
+			if (!aktiv || laufend >= ANZAHL_WORKER) {
+				return;
+			}
+			if (worker.compareAndSet(laufend, laufend + 1)) {
+				break;
+			}
+		}
+		try {
+			ctx.getBusinessObject(MailDispatcher.class).abarbeiten();
+		}
+		catch (RuntimeException e) {
+			worker.decrementAndGet();
+			LOGGER.errorf(e, "Der Mailversand konnte nicht gestartet werden");
+		}
+	}
+
+	private void registriereMesswerte() {
+		metricsRegistry.registriereMesswert("shop_mail_warteschlange", "Mail-Auftraege in der Warteschlange",
+				                            MetricsRegistry.GAUGE, new Messwert() {
+			@Override
+			public long getWert() {
+				return warteschlange.size();
+			}
+		});
+		metricsRegistry.registriereMesswert("shop_mail_warteschlange_kapazitaet",
+				                            "Maximale Anzahl Mail-Auftraege in der Warteschlange",
+				                            MetricsRegistry.GAUGE, new Messwert() {
+			@Override
+			public long getWert() {
+				return WARTESCHLANGE_MAX;
+			}
+		});
+		metricsRegistry.registriereMesswert("shop_mail_angenommen_total", "Eingereihte Mail-Auftraege",
+				                            MetricsRegistry.COUNTER, angenommen);
+		metricsRegistry.registriereMesswert("shop_mail_abgewiesen_total",
+				                            "Wegen voller Warteschlange in der Outbox belassene Mail-Auftraege",
+				                            MetricsRegistry.COUNTER, abgewiesen);
+		metricsRegistry.registriereMesswert("shop_mail_versendet_total", "Versendete Emails",
+				                            MetricsRegistry.COUNTER, versendet);
+		metricsRegistry.registriereMesswert("shop_mail_fehlgeschlagen_total", "Fehlgeschlagene Versandversuche",
+				                            MetricsRegistry.COUNTER, fehlgeschlagen);
+	}
+
+	/**
+	 * Ein Batch: bis zu BATCH_MAX IDs entnehmen, offene Auftraege laden, versenden und das Ergebnis vermerken
+	 */
+	private void verarbeiten(MailDispatcher self, Long ersteId) {
+		final List<Long> ids = new ArrayList<>(BATCH_MAX);
+		ids.add(ersteId);
+		warteschlange.drainTo(ids, BATCH_MAX - 1);
+		try {
+			final List<MailAuftrag> mailAuftraege = self.laden(ids);
+			final Map<Long, String> fehler = mailVersand.versenden(mailAuftraege);
+			versendet.addieren(mailAuftraege.size() - fehler.size());
+			fehlgeschlagen.addieren(fehler.size());
+			self.abschliessen(mailAuftraege, fehler);
+		}
+		catch (RuntimeException e) {
+			// Die Auftraege bleiben offen und werden durch nachholen() erneut eingereiht
+			LOGGER.errorf(e, "Fehler beim Versand der Mail-Auftraege %s", ids);
+		}
+		finally {
+			eingereiht.removeAll(ids);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package de.shop.mail;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.mail.Message.RecipientType;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import de.shop.mail.domain.MailAuftrag;
+
+
+/**
+ * Mehrere Mail-Auftraege ueber eine einzige Verbindung zum Mailserver versenden.
+ * Die Session wird uebergeben, d.h. fuer Tests genuegt eine Session mit mail.smtp.host und mail.smtp.port
+ * eines lokalen SMTP-Servers.
+ */
+final class MailVersand {
+	private final Session session;
+	private final InternetAddress absender;
+
+	MailVersand(Session session, InternetAddress absender) {
+		this.session = session;
+		this.absender = absender;
+	}
+
+	/**
+	 * @param mailAuftraege zu versendende Auftraege
+	 * @return Fehlermeldungen zu den IDs der nicht versendeten Auftraege; leer, falls alle versendet wurden
+	 */
+	Map<Long, String> versenden(List<MailAuftrag> mailAuftraege) {
+		final Map<Long, String> fehler = new HashMap<>();
+		if (mailAuftraege.isEmpty()) {
+			return fehler;
+		}
+
+		Transport transport = null;
+		int i = 0;
+		try {
+			transport = session.getTransport();
+			transport.connect();
+			for (; i < mailAuftraege.size(); i++) {
+				final MailAuftrag mailAuftrag = mailAuftraege.get(i);
+				try {
+					final MimeMessage message = createMessage(mailAuftrag);
+					transport.sendMessage(message, message.getAllRecipients());
+				}
+				catch (MessagingException | UnsupportedEncodingException e) {
+					fehler.put(mailAuftrag.getId(), e.getMessage());
+					if (!transport.isConnected()) {
+						// z.B. Timeout: fuer die restlichen Auftraege neu verbinden
+						transport.connect();
+					}
+				}
+			}
+		}
+		catch (MessagingException e) {
+			// Keine Verbindung: alle restlichen Auftraege sind fehlgeschlagen
+			for (; i < mailAuftraege.size(); i++) {
+				fehler.put(mailAuftraege.get(i).getId(), e.getMessage());
+			}
+		}
+		finally {
+			if (transport != null) {
+				try {
+					transport.close();
+				}
+				catch (MessagingException e) {
+					// Die Emails sind bereits versendet
+				}
+			}
+		}
+		return fehler;
+	}
+
+	private MimeMessage createMessage(MailAuftrag mailAuftrag) throws MessagingException,
+	                                                                  UnsupportedEncodingException {
+		final MimeMessage message = new MimeMessage(session);
+		message.setFrom(absender);
+		message.setRecipient(RecipientType.TO,
+				             new InternetAddress(mailAuftrag.getEmpfaenger(), mailAuftrag.getEmpfaengerName()));
+		message.setSubject(mailAuftrag.getBetreff());
+		message.setText(mailAuftrag.getText());
+		message.saveChanges();
+		return message;
+	}
+}
@@ -0,0 +1,234 @@
+package de.shop.mail.domain;
+
+import static de.shop.util.Constants.ID_BLOCK_BEWEGUNGSDATEN;
+import static javax.persistence.EnumType.STRING;
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.PostPersist;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+
+import org.jboss.logging.Logger;
+
+
+/**
+ * Zu versendende Email in der Outbox-Tabelle. Der Auftrag wird in derselben Transaktion wie z.B. die
+ * Bestellung gespeichert und bleibt so lange OFFEN, bis die Email versendet ist.
+ */
+@Entity
+@Table(name = "mail_auftrag")
+@NamedQueries({
+	@NamedQuery(name  = MailAuftrag.FIND_FAELLIGE_MAIL_AUFTRAEGE,
+				query = "SELECT      m"
+						+ " FROM     MailAuftrag m"
+						+ " WHERE    m.status = :" + MailAuftrag.PARAM_STATUS
+						+ "          AND m.naechsterVersuch <= :" + MailAuftrag.PARAM_ZEITPUNKT
+						+ " ORDER BY m.id ASC"),
+	@NamedQuery(name  = MailAuftrag.FIND_MAIL_AUFTRAEGE_BY_IDS,
+				query = "SELECT      m"
+						+ " FROM     MailAuftrag m"
+						+ " WHERE    m.id IN :" + MailAuftrag.PARAM_IDS
+						+ "          AND m.status = :" + MailAuftrag.PARAM_STATUS
+						+ " ORDER BY m.id ASC")
+})
+public class MailAuftrag implements Serializable {
+	private static final long serialVersionUID = -3870467201393758231L;
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final String PREFIX = "MailAuftrag.";
+	public static final String FIND_FAELLIGE_MAIL_AUFTRAEGE = PREFIX + "findFaelligeMailAuftraege";
+	public static final String FIND_MAIL_AUFTRAEGE_BY_IDS = PREFIX + "findMailAuftraegeByIds";
+
+	public static final String PARAM_STATUS = "status";
+	public static final String PARAM_ZEITPUNKT = "zeitpunkt";
+	public static final String PARAM_IDS = "ids";
+
+	public static final int EMPFAENGER_LENGTH_MAX = 128;
+	public static final int NAME_LENGTH_MAX = 32;
+	public static final int BETREFF_LENGTH_MAX = 128;
+	public static final int TEXT_LENGTH_MAX = 2000;
+	public static final int FEHLER_LENGTH_MAX = 255;
+
+	@Id
+	@GeneratedValue(generator = "mail_auftrag_seq")
+	@SequenceGenerator(name = "mail_auftrag_seq", sequenceName = "mail_auftrag_seq",
+	                   allocationSize = ID_BLOCK_BEWEGUNGSDATEN)
+	@Column(nullable = false, updatable = false)
+	private Long id;
+
+	@Column(length = EMPFAENGER_LENGTH_MAX, nullable = false)
+	private String empfaenger;
+
+	@Column(length = NAME_LENGTH_MAX)
+	private String empfaengerName;
+
+	@Column(length = BETREFF_LENGTH_MAX, nullable = false)
+	private String betreff;
+
+	@Column(length = TEXT_LENGTH_MAX, nullable = false)
+	private String text;
+
+	@Column(length = 11, nullable = false)
+	@Enumerated(STRING)
+	private MailStatus status = MailStatus.OFFEN;
+
+	@Column(nullable = false)
+	private int versuche;
+
+	@Column(nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date naechsterVersuch;
+
+	@Column(length = FEHLER_LENGTH_MAX)
+	private String fehler;
+
+	@Column(nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date erzeugt;
+
+	@Column(nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date aktualisiert;
+
+	public MailAuftrag() {
+		super();
+	}
+
+	public MailAuftrag(String empfaenger, String empfaengerName, String betreff, String text) {
+		super();
+		this.empfaenger = empfaenger;
+		this.empfaengerName = empfaengerName;
+		this.betreff = betreff;
+		this.text = text;
+	}
+
+	@PrePersist
+	private void prePersist() {
+		erzeugt = new Date();
+		aktualisiert = new Date();
+		if (naechsterVersuch == null) {
+			naechsterVersuch = erzeugt;
+		}
+	}
+
+	@PostPersist
+	private void postPersist() {
+		LOGGER.debugf("Neuer Mail-Auftrag mit ID=%d", id);
+	}
+
+	@PreUpdate
+	private void preUpdate() {
+		aktualisiert = new Date();
+	}
+
+	public Long getId() {
+		return id;
+	}
+	public void setId(Long id) {
+		this.id = id;
+	}
+	public String getEmpfaenger() {
+		return empfaenger;
+	}
+	public void setEmpfaenger(String empfaenger) {
+		this.empfaenger = empfaenger;
+	}
+	public String getEmpfaengerName() {
+		return empfaengerName;
+	}
+	public void setEmpfaengerName(String empfaengerName) {
+		this.empfaengerName = empfaengerName;
+	}
+	public String getBetreff() {
+		return betreff;
+	}
+	public void setBetreff(String betreff) {
+		this.betreff = betreff;
+	}
+	public String getText() {
+		return text;
+	}
+	public void setText(String text) {
+		this.text = text;
+	}
+	public MailStatus getStatus() {
+		return status;
+	}
+	public void setStatus(MailStatus status) {
+		this.status = status;
+	}
+	public int getVersuche() {
+		return versuche;
+	}
+	public void setVersuche(int versuche) {
+		this.versuche = versuche;
+	}
+	public Date getNaechsterVersuch() {
+		return naechsterVersuch == null ? null : (Date) naechsterVersuch.clone();
+	}
+	public void setNaechsterVersuch(Date naechsterVersuch) {
+		this.naechsterVersuch = naechsterVersuch == null ? null : (Date) naechsterVersuch.clone();
+	}
+	public String getFehler() {
+		return fehler;
+	}
+	public void setFehler(String fehler) {
+		this.fehler = fehler;
+	}
+	public Date getErzeugt() {
+		return erzeugt == null ? null : (Date) erzeugt.clone();
+	}
+	public void setErzeugt(Date erzeugt) {
+		this.erzeugt = erzeugt == null ? null : (Date) erzeugt.clone();
+	}
+	public Date getAktualisiert() {
+		return aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
+	public void setAktualisiert(Date aktualisiert) {
+		this.aktualisiert = aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final MailAuftrag other = (MailAuftrag) obj;
+		if (id == null) {
+			return false;
+		}
+		return id.equals(other.id);
+	}
+
+	@Override
+	public String toString() {
+		return "MailAuftrag [id=" + id + ", empfaenger=" + empfaenger + ", betreff=" + betreff
+			   + ", status=" + status + ", versuche=" + versuche + ", naechsterVersuch=" + naechsterVersuch
+			   + ", fehler=" + fehler + "]";
+	}
+}
@@ -0,0 +1,7 @@
+package de.shop.mail.domain;
+
+public enum MailStatus {
+	OFFEN,
+	VERSENDET,
+	ABGEBROCHEN;
+}
@@ -0,0 +1,25 @@
+package de.shop.outbox;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.inject.Qualifier;
+
+import de.shop.outbox.domain.OutboxTyp;
+
+/**
+ * Ereignis, das nach dem Commit aus der Outbox zugestellt wird, z.B.
+ * <code>@Observes @Outbox(NEUE_BESTELLUNG) Bestellung bestellung</code>
+ */
+@Qualifier
+@Target({ FIELD, PARAMETER })
+@Retention(RUNTIME)
+@Documented
+public @interface Outbox {
+	OutboxTyp value();
+}
@@ -0,0 +1,23 @@
+package de.shop.outbox;
+
+import javax.enterprise.util.AnnotationLiteral;
+
+import de.shop.outbox.domain.OutboxTyp;
+
+/**
+ * Qualifier @Outbox fuer Event.select()
+ */
+final class OutboxLiteral extends AnnotationLiteral<Outbox> implements Outbox {
+	private static final long serialVersionUID = -2795102719893361740L;
+
+	private final OutboxTyp value;
+
+	OutboxLiteral(OutboxTyp value) {
+		this.value = value;
+	}
+
+	@Override
+	public OutboxTyp value() {
+		return value;
+	}
+}
@@ -0,0 +1,172 @@
+package de.shop.outbox;
+
+import static javax.ejb.ConcurrencyManagementType.BEAN;
+import static javax.ejb.TransactionAttributeType.NOT_SUPPORTED;
+import static javax.ejb.TransactionAttributeType.REQUIRES_NEW;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.Asynchronous;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.Schedule;
+import javax.ejb.SessionContext;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+import de.shop.util.MetricsRegistry;
+import de.shop.util.Zaehler;
+
+
+/**
+ * Zustellung der Outbox-Ereignisse nach dem Commit. Der Poller wird nach jeder Transaktion mit neuen
+ * Ereignissen angestossen und laeuft zusaetzlich periodisch, z.B. nach einem Neustart oder einer
+ * fehlgeschlagenen Zustellung. Die Ereignisse werden in Batches mit jeweils einer Transaktion zugestellt;
+ * scheitert ein Batch, wird jedes Ereignis einzeln zugestellt, damit ein fehlerhaftes Ereignis die anderen
+ * nicht blockiert. Die Zustellung erfolgt mindestens einmal, d.h. Observer muessen Wiederholungen vertragen.
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(BEAN)
+public class OutboxPoller {
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final int BATCH_MAX = 100;
+	private static final long AUFBEWAHRUNG_TAGE = 7;
+
+	@Resource
+	private SessionContext ctx;
+
+	@Inject
+	private OutboxService outboxService;
+
+	@Inject
+	private MetricsRegistry metricsRegistry;
+
+	// Es laeuft hoechstens 1 Zustellung; ein Anstoss waehrenddessen fuehrt zu einem weiteren Durchlauf
+	private final AtomicBoolean laeuft = new AtomicBoolean();
+	private final AtomicBoolean angestossen = new AtomicBoolean();
+
+	private final Zaehler zugestellt = new Zaehler();
+	private final Zaehler fehlgeschlagen = new Zaehler();
+
+	@PostConstruct
+	private void init() {
+		metricsRegistry.registriereMesswert("shop_outbox_zugestellt_total", "Zugestellte Outbox-Ereignisse",
+				                            MetricsRegistry.COUNTER, zugestellt);
+		metricsRegistry.registriereMesswert("shop_outbox_fehlgeschlagen_total",
+				                            "Fehlgeschlagene Zustellungen von Outbox-Ereignissen",
+				                            MetricsRegistry.COUNTER, fehlgeschlagen);
+	}
+
+	/**
+	 * Zustellung im Hintergrund anstossen, z.B. nach dem Commit einer Transaktion mit neuen Ereignissen
+	 */
+	@Asynchronous
+	@TransactionAttribute(NOT_SUPPORTED)
+	public void anstossen() {
+		abarbeiten();
+	}
+
+	@Schedule(second = "*/15", minute = "*", hour = "*", persistent = false)
+	@TransactionAttribute(NOT_SUPPORTED)
+	public void nachholen() {
+		abarbeiten();
+	}
+
+	@Schedule(hour = "3", persistent = false)
+	@TransactionAttribute(REQUIRES_NEW)
+	public void aufraeumen() {
+		final Date vor = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(AUFBEWAHRUNG_TAGE));
+		final int anzahl = outboxService.deleteZugestellteEreignisse(vor);
+		LOGGER.infof("%d zugestellte Outbox-Ereignisse geloescht", anzahl);
+	}
+
+	@TransactionAttribute(REQUIRES_NEW)
+	public List<Long> findFaelligeIds(int anzahl) {
+		return outboxService.findFaelligeIds(anzahl);
+	}
+
+	@TransactionAttribute(REQUIRES_NEW)
+	public int zustellen(Collection<Long> ids) {
+		return outboxService.zustellen(ids);
+	}
+
+	@TransactionAttribute(REQUIRES_NEW)
+	public void fehlgeschlagen(Long id, String fehler) {
+		outboxService.fehlgeschlagen(id, fehler);
+	}
+
+	private void abarbeiten() {
+		angestossen.set(true);
+		final OutboxPoller self = ctx.getBusinessObject(OutboxPoller.class);
+
+		// Nach dem Ende einer Zustellung erneut pruefen, ob sie inzwischen angestossen wurde
+		while (angestossen.get() && laeuft.compareAndSet(false, true)) {
+			try {
+				while (angestossen.getAndSet(false)) {
+					int anzahl;
+					do {
+						anzahl = batch(self);
+					} while (anzahl == BATCH_MAX);
+				}
+			}
+			catch (RuntimeException e) {
+				LOGGER.errorf(e, "Fehler bei der Zustellung der Outbox-Ereignisse");
+				return;
+			}
+			finally {
+				laeuft.set(false);
+			}
+		}
+	}
+
+	/**
+	 * Einen Batch faelliger Ereignisse zustellen
+	 * @return Anzahl der bearbeiteten Ereignisse
+	 */
+	private int batch(OutboxPoller self) {
+		final List<Long> ids = self.findFaelligeIds(BATCH_MAX);
+		if (ids.isEmpty()) {
+			return 0;
+		}
+
+		try {
+			zugestellt.addieren(self.zustellen(ids));
+			return ids.size();
+		}
+		catch (RuntimeException e) {
+			LOGGER.debugf(e, "Batch mit %d Outbox-Ereignissen fehlgeschlagen; Einzelzustellung", ids.size());
+		}
+
+		for (Long id : ids) {
+			try {
+				zugestellt.addieren(self.zustellen(Collections.singletonList(id)));
+			}
+			catch (RuntimeException e) {
+				fehlgeschlagen.erhoehen();
+				self.fehlgeschlagen(id, String.valueOf(ursache(e).getMessage()));
+			}
+		}
+		return ids.size();
+	}
+
+	private static Throwable ursache(Throwable t) {
+		Throwable ursache = t;
+		while (ursache.getCause() != null && ursache.getCause() != ursache) {
+			ursache = ursache.getCause();
+		}
+		return ursache;
+	}
+}
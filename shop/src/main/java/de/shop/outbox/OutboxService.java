@@ -0,0 +1,188 @@
+package de.shop.outbox;
+
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static javax.transaction.Status.STATUS_NO_TRANSACTION;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.event.Event;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.jboss.logging.Logger;
+
+import de.shop.outbox.domain.OutboxEreignis;
+import de.shop.outbox.domain.OutboxStatus;
+import de.shop.outbox.domain.OutboxTyp;
+import de.shop.util.Log;
+
+
+/**
+ * Ereignisse in der Outbox-Tabelle speichern und an die Observer mit @Outbox zustellen
+ */
+@Log
+public class OutboxService implements Serializable {
+	private static final long serialVersionUID = -6164937468311557204L;
+
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	// Nach so vielen fehlgeschlagenen Zustellungen wird das Ereignis abgebrochen
+	static final int MAX_VERSUCHE = 8;
+
+	// Wartezeit vor dem 2. Versuch; danach jeweils verdoppelt bis hoechstens 1 Stunde
+	private static final long WARTEZEIT_MILLIS = 10_000L;
+	private static final long WARTEZEIT_MAX_MILLIS = 3_600_000L;
+
+	// Schluessel in der TransactionSynchronizationRegistry: je Transaktion nur 1 Synchronization
+	private static final String SYNCHRONIZATION_KEY = OutboxService.class.getName();
+
+	@PersistenceContext
+	private transient EntityManager em;
+
+	@Resource
+	private transient TransactionSynchronizationRegistry tsr;
+
+	@Inject
+	@Any
+	private transient Event<Object> event;
+
+	@Inject
+	private OutboxPoller outboxPoller;
+
+	@PostConstruct
+	private void postConstruct() {
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+
+	@PreDestroy
+	private void preDestroy() {
+		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
+	}
+
+	/**
+	 * Ein Ereignis in der aktuellen Transaktion speichern. Nach erfolgreichem Commit wird der OutboxPoller
+	 * angestossen; bei einem Rollback gibt es kein Ereignis.
+	 * @param typ Art des Ereignisses
+	 * @param aggregatId ID der neuen Entity, die bei der Zustellung geladen wird
+	 */
+	public OutboxEreignis createOutboxEreignis(OutboxTyp typ, Long aggregatId) {
+		final OutboxEreignis ereignis = new OutboxEreignis(typ, aggregatId);
+		em.persist(ereignis);
+
+		if (tsr.getTransactionStatus() == STATUS_NO_TRANSACTION) {
+			outboxPoller.anstossen();
+			return ereignis;
+		}
+		if (tsr.getResource(SYNCHRONIZATION_KEY) == null) {
+			tsr.putResource(SYNCHRONIZATION_KEY, Boolean.TRUE);
+			tsr.registerInterposedSynchronization(new Synchronization() {
+				@Override
+				public void beforeCompletion() {
+					// nichts zu tun
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					if (status == STATUS_COMMITTED) {
+						outboxPoller.anstossen();
+					}
+				}
+			});
+		}
+		return ereignis;
+	}
+
+	/**
+	 * IDs der offenen Ereignisse, deren Zustellung faellig ist
+	 */
+	public List<Long> findFaelligeIds(int anzahl) {
+		return em.createNamedQuery(OutboxEreignis.FIND_FAELLIGE_IDS, Long.class)
+				 .setParameter(OutboxEreignis.PARAM_STATUS, OutboxStatus.OFFEN)
+				 .setParameter(OutboxEreignis.PARAM_ZEITPUNKT, new Date())
+				 .setMaxResults(anzahl)
+				 .getResultList();
+	}
+
+	/**
+	 * Offene Ereignisse zu den IDs zustellen. Die Observer laufen in der aktuellen Transaktion, d.h. ihre
+	 * Aenderungen in der DB und der Status ZUGESTELLT werden gemeinsam festgeschrieben.
+	 * @return Anzahl zugestellter Ereignisse
+	 */
+	public int zustellen(Collection<Long> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return 0;
+		}
+
+		final List<OutboxEreignis> ereignisse =
+				em.createNamedQuery(OutboxEreignis.FIND_EREIGNISSE_BY_IDS, OutboxEreignis.class)
+				  .setParameter(OutboxEreignis.PARAM_IDS, ids)
+				  .setParameter(OutboxEreignis.PARAM_STATUS, OutboxStatus.OFFEN)
+				  .getResultList();
+		for (OutboxEreignis ereignis : ereignisse) {
+			final OutboxTyp typ = ereignis.getTyp();
+			final Object aggregat = em.find(typ.getEntityClass(), ereignis.getAggregatId());
+			if (aggregat == null) {
+				// Inzwischen geloescht
+				ereignis.setStatus(OutboxStatus.ABGEBROCHEN);
+				ereignis.setFehler(typ.getEntityClass().getSimpleName() + " nicht gefunden");
+				continue;
+			}
+			event.select(new OutboxLiteral(typ)).fire(aggregat);
+			ereignis.setStatus(OutboxStatus.ZUGESTELLT);
+			ereignis.setVersuche(ereignis.getVersuche() + 1);
+		}
+		return ereignisse.size();
+	}
+
+	/**
+	 * Fehlgeschlagene Zustellung vermerken und den naechsten Versuch mit exponentiell wachsender Wartezeit planen
+	 * @return true, falls das Ereignis abgebrochen wurde
+	 */
+	public boolean fehlgeschlagen(Long id, String fehler) {
+		final OutboxEreignis ereignis = em.find(OutboxEreignis.class, id);
+		if (ereignis == null) {
+			return false;
+		}
+
+		final int versuche = ereignis.getVersuche() + 1;
+		ereignis.setVersuche(versuche);
+		if (fehler != null && fehler.length() > OutboxEreignis.FEHLER_LENGTH_MAX) {
+			fehler = fehler.substring(0, OutboxEreignis.FEHLER_LENGTH_MAX);
+		}
+		ereignis.setFehler(fehler);
+
+		if (versuche >= MAX_VERSUCHE) {
+			ereignis.setStatus(OutboxStatus.ABGEBROCHEN);
+			LOGGER.errorf("Outbox-Ereignis %d nach %d Versuchen abgebrochen: %s", id, versuche, fehler);
+			return true;
+		}
+
+		final long wartezeit = Math.min(WARTEZEIT_MILLIS << (versuche - 1), WARTEZEIT_MAX_MILLIS);
+		ereignis.setNaechsterVersuch(new Date(System.currentTimeMillis() + wartezeit));
+		LOGGER.warnf("Outbox-Ereignis %d: Zustellung %d fehlgeschlagen (%s), naechster Versuch in %d s",
+				     id, versuche, fehler, wartezeit / 1000);
+		return false;
+	}
+
+	/**
+	 * Zugestellte Ereignisse loeschen, die vor dem Zeitpunkt zugestellt wurden
+	 * @return Anzahl geloeschter Ereignisse
+	 */
+	public int deleteZugestellteEreignisse(Date vor) {
+		return em.createNamedQuery(OutboxEreignis.DELETE_EREIGNISSE_VOR)
+				 .setParameter(OutboxEreignis.PARAM_STATUS, OutboxStatus.ZUGESTELLT)
+				 .setParameter(OutboxEreignis.PARAM_ZEITPUNKT, vor)
+				 .executeUpdate();
+	}
+}
@@ -0,0 +1,216 @@
+package de.shop.outbox.domain;
+
+import static de.shop.util.Constants.ID_BLOCK_BEWEGUNGSDATEN;
+import static javax.persistence.EnumType.STRING;
+import static javax.persistence.TemporalType.TIMESTAMP;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.PostPersist;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+
+import org.jboss.logging.Logger;
+
+
+/**
+ * Ereignis in der Outbox-Tabelle. Das Ereignis wird in derselben Transaktion wie z.B. die neue Bestellung
+ * gespeichert und nach dem Commit vom OutboxPoller an die Observer zugestellt.
+ */
+@Entity
+@Table(name = "outbox_ereignis")
+@NamedQueries({
+	@NamedQuery(name  = OutboxEreignis.FIND_FAELLIGE_IDS,
+				query = "SELECT      o.id"
+						+ " FROM     OutboxEreignis o"
+						+ " WHERE    o.status = :" + OutboxEreignis.PARAM_STATUS
+						+ "          AND o.naechsterVersuch <= :" + OutboxEreignis.PARAM_ZEITPUNKT
+						+ " ORDER BY o.id ASC"),
+	@NamedQuery(name  = OutboxEreignis.FIND_EREIGNISSE_BY_IDS,
+				query = "SELECT      o"
+						+ " FROM     OutboxEreignis o"
+						+ " WHERE    o.id IN :" + OutboxEreignis.PARAM_IDS
+						+ "          AND o.status = :" + OutboxEreignis.PARAM_STATUS
+						+ " ORDER BY o.id ASC"),
+	@NamedQuery(name  = OutboxEreignis.DELETE_EREIGNISSE_VOR,
+				query = "DELETE"
+						+ " FROM     OutboxEreignis o"
+						+ " WHERE    o.status = :" + OutboxEreignis.PARAM_STATUS
+						+ "          AND o.aktualisiert < :" + OutboxEreignis.PARAM_ZEITPUNKT)
+})
+public class OutboxEreignis implements Serializable {
+	private static final long serialVersionUID = 4806271263381862597L;
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final String PREFIX = "OutboxEreignis.";
+	public static final String FIND_FAELLIGE_IDS = PREFIX + "findFaelligeIds";
+	public static final String FIND_EREIGNISSE_BY_IDS = PREFIX + "findEreignisseByIds";
+	public static final String DELETE_EREIGNISSE_VOR = PREFIX + "deleteEreignisseVor";
+
+	public static final String PARAM_STATUS = "status";
+	public static final String PARAM_ZEITPUNKT = "zeitpunkt";
+	public static final String PARAM_IDS = "ids";
+
+	public static final int FEHLER_LENGTH_MAX = 255;
+
+	@Id
+	@GeneratedValue(generator = "outbox_ereignis_seq")
+	@SequenceGenerator(name = "outbox_ereignis_seq", sequenceName = "outbox_ereignis_seq",
+	                   allocationSize = ID_BLOCK_BEWEGUNGSDATEN)
+	@Column(nullable = false, updatable = false)
+	private Long id;
+
+	@Column(length = 32, nullable = false, updatable = false)
+	@Enumerated(STRING)
+	private OutboxTyp typ;
+
+	@Column(nullable = false, updatable = false)
+	private Long aggregatId;
+
+	@Column(length = 11, nullable = false)
+	@Enumerated(STRING)
+	private OutboxStatus status = OutboxStatus.OFFEN;
+
+	@Column(nullable = false)
+	private int versuche;
+
+	@Column(nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date naechsterVersuch;
+
+	@Column(length = FEHLER_LENGTH_MAX)
+	private String fehler;
+
+	@Column(nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date erzeugt;
+
+	@Column(nullable = false)
+	@Temporal(TIMESTAMP)
+	private Date aktualisiert;
+
+	public OutboxEreignis() {
+		super();
+	}
+
+	public OutboxEreignis(OutboxTyp typ, Long aggregatId) {
+		super();
+		this.typ = typ;
+		this.aggregatId = aggregatId;
+	}
+
+	@PrePersist
+	private void prePersist() {
+		erzeugt = new Date();
+		aktualisiert = new Date();
+		if (naechsterVersuch == null) {
+			naechsterVersuch = erzeugt;
+		}
+	}
+
+	@PostPersist
+	private void postPersist() {
+		LOGGER.debugf("Neues Outbox-Ereignis mit ID=%d", id);
+	}
+
+	@PreUpdate
+	private void preUpdate() {
+		aktualisiert = new Date();
+	}
+
+	public Long getId() {
+		return id;
+	}
+	public void setId(Long id) {
+		this.id = id;
+	}
+	public OutboxTyp getTyp() {
+		return typ;
+	}
+	public void setTyp(OutboxTyp typ) {
+		this.typ = typ;
+	}
+	public Long getAggregatId() {
+		return aggregatId;
+	}
+	public void setAggregatId(Long aggregatId) {
+		this.aggregatId = aggregatId;
+	}
+	public OutboxStatus getStatus() {
+		return status;
+	}
+	public void setStatus(OutboxStatus status) {
+		this.status = status;
+	}
+	public int getVersuche() {
+		return versuche;
+	}
+	public void setVersuche(int versuche) {
+		this.versuche = versuche;
+	}
+	public Date getNaechsterVersuch() {
+		return naechsterVersuch == null ? null : (Date) naechsterVersuch.clone();
+	}
+	public void setNaechsterVersuch(Date naechsterVersuch) {
+		this.naechsterVersuch = naechsterVersuch == null ? null : (Date) naechsterVersuch.clone();
+	}
+	public String getFehler() {
+		return fehler;
+	}
+	public void setFehler(String fehler) {
+		this.fehler = fehler;
+	}
+	public Date getErzeugt() {
+		return erzeugt == null ? null : (Date) erzeugt.clone();
+	}
+	public void setErzeugt(Date erzeugt) {
+		this.erzeugt = erzeugt == null ? null : (Date) erzeugt.clone();
+	}
+	public Date getAktualisiert() {
+		return aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
+	public void setAktualisiert(Date aktualisiert) {
+		this.aktualisiert = aktualisiert == null ? null : (Date) aktualisiert.clone();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || getClass() != obj.getClass()) {
+			return false;
+		}
+		final OutboxEreignis other = (OutboxEreignis) obj;
+		if (id == null) {
+			return false;
+		}
+		return id.equals(other.id);
+	}
+
+	@Override
+	public String toString() {
+		return "OutboxEreignis [id=" + id + ", typ=" + typ + ", aggregatId=" + aggregatId + ", status=" + status
+			   + ", versuche=" + versuche + ", naechsterVersuch=" + naechsterVersuch + ", fehler=" + fehler + "]";
+	}
+}
@@ -0,0 +1,7 @@
+package de.shop.outbox.domain;
+
+public enum OutboxStatus {
+	OFFEN,
+	ZUGESTELLT,
+	ABGEBROCHEN;
+}
@@ -0,0 +1,20 @@
+package de.shop.outbox.domain;
+
+import de.shop.bestellverwaltung.domain.Bestellung;
+
+/**
+ * Art des Ereignisses mit der Entity-Klasse, die bei der Zustellung geladen wird
+ */
+public enum OutboxTyp {
+	NEUE_BESTELLUNG(Bestellung.class);
+	
+	private final Class<?> entityClass;
+	
+	private OutboxTyp(Class<?> entityClass) {
+		this.entityClass = entityClass;
+	}
+	
+	public Class<?> getEntityClass() {
+		return entityClass;
+	}
+}
@@ -0,0 +1,143 @@
+package de.shop.util;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.enterprise.context.RequestScoped;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+
+/**
+ * Statistik und Verwaltung der Caches von Hibernate
+ */
+@Path("/admin")
+@Produces(APPLICATION_JSON)
+@RequestScoped
+public class AdminResource {
+	@PersistenceContext
+	private EntityManager em;
+
+	/**
+	 * Treffer, Fehlschlaege und geschriebene Eintraege je Region des L2C (Entities, Collections und Queries),
+	 * sortiert nach dem Namen der Region
+	 */
+	@GET
+	@Path("cache")
+	public List<CacheStatistik> getCacheStatistik() {
+		return getStatistik(null);
+	}
+
+	/**
+	 * Alle Regionen des L2C verwerfen
+	 */
+	@DELETE
+	@Path("cache")
+	public void deleteCache() {
+		final Cache cache = getSessionFactory().getCache();
+		cache.evictEntityRegions();
+		cache.evictCollectionRegions();
+		cache.evictQueryRegions();
+	}
+
+	/**
+	 * Eine Region des L2C verwerfen, z.B. nach Aenderungen direkt in der DB
+	 * @param region Name der Region wie bei GET /admin/cache
+	 */
+	@DELETE
+	@Path("cache/{region}")
+	public void deleteCacheRegion(@PathParam("region") String region) {
+		final SessionFactoryImplementor sessionFactory = getSessionFactory();
+		final Cache cache = sessionFactory.getCache();
+		boolean gefunden = false;
+
+		for (String entityName : sessionFactory.getAllClassMetadata().keySet()) {
+			final EntityPersister persister = sessionFactory.getEntityPersister(entityName);
+			if (persister.hasCache() && region.equals(persister.getCacheAccessStrategy().getRegion().getName())) {
+				cache.evictEntityRegion(entityName);
+				gefunden = true;
+			}
+		}
+
+		for (Object role : sessionFactory.getAllCollectionMetadata().keySet()) {
+			final CollectionPersister persister = sessionFactory.getCollectionPersister((String) role);
+			if (persister.hasCache() && region.equals(persister.getCacheAccessStrategy().getRegion().getName())) {
+				cache.evictCollectionRegion((String) role);
+				gefunden = true;
+			}
+		}
+
+		// Query-Regionen werden ohne den Praefix aus hibernate.cache.region_prefix verwaltet
+		final String praefix = sessionFactory.getSettings().getCacheRegionPrefix();
+		final String queryRegion = praefix != null && region.startsWith(praefix + '.')
+		                           ? region.substring(praefix.length() + 1)
+		                           : region;
+		if (queryRegion.startsWith(QueryCache.REGION_QUERY)
+			&& sessionFactory.getStatistics().getSecondLevelCacheStatistics(region) != null) {
+			cache.evictQueryRegion(queryRegion);
+			gefunden = true;
+		}
+
+		if (!gefunden) {
+			throw new NotFoundException("Keine Cache-Region vorhanden mit dem Namen " + region);
+		}
+	}
+
+	/**
+	 * Treffer und Fehlschlaege je Region des Query-Cache, sortiert nach dem Namen der Region
+	 */
+	@GET
+	@Path("querycache")
+	public List<CacheStatistik> getQueryCacheStatistik() {
+		return getStatistik(QueryCache.REGION_QUERY);
+	}
+
+	/**
+	 * Alle gecachten Query-Ergebnisse verwerfen, z.B. nach Aenderungen direkt in der DB
+	 */
+	@DELETE
+	@Path("querycache")
+	public void deleteQueryCache() {
+		getSessionFactory().getCache().evictQueryRegions();
+	}
+
+	/**
+	 * @param teilname nur Regionen, deren Name diesen Teil enthaelt; null fuer alle Regionen
+	 */
+	private List<CacheStatistik> getStatistik(String teilname) {
+		final Statistics statistics = getSessionFactory().getStatistics();
+		final String[] regionen = statistics.getSecondLevelCacheRegionNames();
+		Arrays.sort(regionen);
+
+		final List<CacheStatistik> ergebnis = new ArrayList<>(regionen.length);
+		for (String region : regionen) {
+			if (teilname != null && !region.contains(teilname)) {
+				continue;
+			}
+			final SecondLevelCacheStatistics s = statistics.getSecondLevelCacheStatistics(region);
+			ergebnis.add(new CacheStatistik(region, s.getHitCount(), s.getMissCount(), s.getPutCount(),
+					                        s.getElementCountInMemory()));
+		}
+		return ergebnis;
+	}
+
+	private SessionFactoryImplementor getSessionFactory() {
+		return (SessionFactoryImplementor) em.unwrap(Session.class).getSessionFactory();
+	}
+}
@@ -0,0 +1,60 @@
+package de.shop.util;
+
+import java.io.Serializable;
+
+
+/**
+ * Unveraenderliche Momentaufnahme der Statistik einer Cache-Region
+ */
+public class CacheStatistik implements Serializable {
+	private static final long serialVersionUID = -2437765104637011390L;
+
+	private final String region;
+	private final long treffer;
+	private final long fehlschlaege;
+	private final long eintraegeGeschrieben;
+	private final long eintraege;
+
+	public CacheStatistik(String region, long treffer, long fehlschlaege, long eintraegeGeschrieben,
+			              long eintraege) {
+		this.region = region;
+		this.treffer = treffer;
+		this.fehlschlaege = fehlschlaege;
+		this.eintraegeGeschrieben = eintraegeGeschrieben;
+		this.eintraege = eintraege;
+	}
+
+	public String getRegion() {
+		return region;
+	}
+
+	public long getTreffer() {
+		return treffer;
+	}
+
+	public long getFehlschlaege() {
+		return fehlschlaege;
+	}
+
+	public long getEintraegeGeschrieben() {
+		return eintraegeGeschrieben;
+	}
+
+	public long getEintraege() {
+		return eintraege;
+	}
+
+	/**
+	 * Anteil der Treffer an allen Zugriffen; 0, falls es noch keinen Zugriff gab
+	 */
+	public double getTrefferquote() {
+		final long zugriffe = treffer + fehlschlaege;
+		return zugriffe == 0 ? 0 : (double) treffer / zugriffe;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistik [region=" + region + ", treffer=" + treffer + ", fehlschlaege=" + fehlschlaege
+			   + ", eintraegeGeschrieben=" + eintraegeGeschrieben + ", eintraege=" + eintraege + "]";
+	}
+}
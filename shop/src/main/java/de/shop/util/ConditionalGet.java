@@ -0,0 +1,99 @@
+package de.shop.util;
+
+import java.util.Date;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+
+/**
+ * ETag und Last-Modified aus dem Zeitstempel der letzten Aenderung sowie die Auswertung von
+ * If-None-Match und If-Modified-Since bzw. If-Match. Der Zeitstempel kann vorab ohne die Entity gelesen werden,
+ * so dass eine Anfrage mit 304 beantwortet wird, ohne die Entity zu laden.
+ */
+public final class ConditionalGet {
+	private static final long MILLIS_PRO_SEKUNDE = 1000L;
+
+	private ConditionalGet() {
+	}
+
+	/**
+	 * Der ETag hat im Gegensatz zu Last-Modified die volle Genauigkeit in Millisekunden
+	 */
+	public static EntityTag getEntityTag(Date aktualisiert) {
+		return new EntityTag(Long.toString(aktualisiert.getTime(), Character.MAX_RADIX));
+	}
+
+	/**
+	 * Last-Modified und If-Modified-Since haben nur die Genauigkeit von Sekunden
+	 */
+	public static Date getLastModified(Date aktualisiert) {
+		return new Date(aktualisiert.getTime() / MILLIS_PRO_SEKUNDE * MILLIS_PRO_SEKUNDE);
+	}
+
+	/**
+	 * Enthaelt der Request If-None-Match oder If-Modified-Since? Nur dann lohnt sich das Lesen des Zeitstempels.
+	 */
+	public static boolean isBedingt(HttpHeaders headers) {
+		return headers.getRequestHeaders().containsKey(HttpHeaders.IF_NONE_MATCH)
+			   || headers.getRequestHeaders().containsKey(HttpHeaders.IF_MODIFIED_SINCE);
+	}
+
+	/**
+	 * @param aktualisiert Zeitstempel der letzten Aenderung oder null, falls unbekannt
+	 * @return Response mit dem Statuscode 304, falls sich die Ressource laut If-None-Match bzw.
+	 *         If-Modified-Since nicht geaendert hat, sonst null
+	 */
+	public static Response nichtGeaendert(Request request, Date aktualisiert) {
+		if (aktualisiert == null) {
+			return null;
+		}
+		final EntityTag etag = getEntityTag(aktualisiert);
+		final ResponseBuilder rb = request.evaluatePreconditions(getLastModified(aktualisiert), etag);
+		return rb == null ? null : rb.tag(etag).build();
+	}
+
+	/**
+	 * If-Match bei PUT: wurde die Ressource seit dem GET des Clients geaendert, wird der Request mit
+	 * dem Statuscode 412 abgebrochen. Ohne If-Match gibt es keine Pruefung.
+	 * @param aktualisiert Zeitstempel der letzten Aenderung der vorhandenen Ressource
+	 */
+	public static void pruefenIfMatch(Request request, Date aktualisiert) {
+		if (aktualisiert == null) {
+			return;
+		}
+		final ResponseBuilder rb = request.evaluatePreconditions(getEntityTag(aktualisiert));
+		if (rb != null) {
+			throw new WebApplicationException(rb.build());
+		}
+	}
+
+	/**
+	 * @return Response mit dem Statuscode 200 und, falls aktualisiert bekannt ist, mit ETag und Last-Modified
+	 */
+	public static Response ok(Object entity, Date aktualisiert) {
+		final ResponseBuilder rb = Response.ok(entity);
+		if (aktualisiert != null) {
+			rb.tag(getEntityTag(aktualisiert))
+			  .lastModified(getLastModified(aktualisiert));
+		}
+		return rb.build();
+	}
+
+	/**
+	 * Juengster von mehreren Zeitstempeln, z.B. von Kunde und Adresse; null-Werte werden ignoriert
+	 */
+	public static Date juengster(Date... zeitstempel) {
+		Date juengster = null;
+		for (Date d : zeitstempel) {
+			if (d != null && (juengster == null || d.after(juengster))) {
+				juengster = d;
+			}
+		}
+		return juengster;
+	}
+}
@@ -27,11 +27,20 @@ public class Config implements Serializable {
 	@Resource(name = "locales")
 	private String localesStr;
 	
+	// Anteil der protokollierten Methodenaufrufe bei Level DEBUG, z.B. 0.01 fuer 1%
+	@Resource(name = "logAbtastrate")
+	private Double logAbtastrateWert;
+	
 	private List<Locale> locales;
 	private Locale defaultLocale = Locale.GERMAN;
+	private double logAbtastrate = 1.0;
 
 	@PostConstruct
 	private void init() {
+		if (logAbtastrateWert != null) {
+			logAbtastrate = Math.max(0.0, Math.min(1.0, logAbtastrateWert));
+		}
+		
 		if (Strings.isNullOrEmpty(localesStr)) {
 			locales = Lists.newArrayList(defaultLocale);
 			return;
@@ -67,6 +76,14 @@ public class Config implements Serializable {
 		this.defaultLocale = defaultLocale;
 	}
 
+	public double getLogAbtastrate() {
+		return logAbtastrate;
+	}
+
+	public void setLogAbtastrate(double logAbtastrate) {
+		this.logAbtastrate = logAbtastrate;
+	}
+
 	public String getAbsenderMail() {
 		return absenderMail;
 	}
@@ -86,6 +103,6 @@ public class Config implements Serializable {
 	@Override
 	public String toString() {
 		return "Config [locales=" + locales + ", defaultLocale=" + defaultLocale + ", absenderMail=" + absenderMail
-				+ ", absenderName=" + absenderName + "]";
+				+ ", absenderName=" + absenderName + ", logAbtastrate=" + logAbtastrate + "]";
 	}
 }
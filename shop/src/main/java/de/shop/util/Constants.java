@@ -4,6 +4,12 @@ public final class Constants {
 	// JPA
 	public static final Long KEINE_ID = null;
 	public static final long MIN_ID = 1L;
+	public static final int ERSTE_VERSION = 0;
+	
+	// Sequenzen: IDs werden blockweise im Speicher vergeben (Optimizer "pooled-lo").
+	// Die Blockgroessen muessen zu INCREMENT BY in sql/10_sequenz.sql passen.
+	public static final int ID_BLOCK_STAMMDATEN = 20;
+	public static final int ID_BLOCK_BEWEGUNGSDATEN = 100;
 	
 	// JNDI-NAME fuer UserTransaction
 	public static final String TRANSACTION_NAME = "java:jboss/UserTransaction";
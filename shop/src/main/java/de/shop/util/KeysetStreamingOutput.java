@@ -0,0 +1,69 @@
+package de.shop.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * JSON-Array, das seitenweise per Keyset-Pagination gelesen und inkrementell geschrieben wird.
+ * Es wird immer nur eine Seite im Speicher gehalten, d.h. der Heap-Bedarf ist unabhaengig
+ * von der Anzahl der Datensaetze.
+ */
+public abstract class KeysetStreamingOutput<T> implements StreamingOutput {
+	private final List<T> ersteSeite;
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * @param ersteSeite bereits gelesene erste Seite, damit z.B. eine leere Ergebnismenge
+	 *                   noch vor dem Schreiben der Response erkannt werden kann
+	 * @param objectMapper ObjectMapper aus ObjectMapperProvider
+	 */
+	public KeysetStreamingOutput(List<T> ersteSeite, ObjectMapper objectMapper) {
+		this.ersteSeite = ersteSeite;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Die naechste Seite nach dem letzten geschriebenen Element ermitteln.
+	 * @param letztes letztes Element der vorherigen Seite
+	 * @return naechste Seite; eine leere Liste beendet das Array
+	 */
+	protected abstract List<T> findNaechsteSeite(T letztes);
+
+	/**
+	 * Ein Element unmittelbar vor dem Serialisieren z.B. um URLs ergaenzen
+	 */
+	protected void vorbereiten(T element) {
+		// Default: nichts zu tun
+	}
+
+	@Override
+	public void write(OutputStream os) throws IOException, WebApplicationException {
+		final JsonGenerator generator = objectMapper.getJsonFactory().createJsonGenerator(os, JsonEncoding.UTF8);
+		// Den OutputStream schliesst der JAX-RS-Container
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+		generator.writeStartArray();
+		List<T> seite = ersteSeite;
+		while (seite != null && !seite.isEmpty()) {
+			T letztes = null;
+			for (T element : seite) {
+				vorbereiten(element);
+				generator.writeObject(element);
+				letztes = element;
+			}
+			// Seite an den Client uebertragen, bevor die naechste Seite gelesen wird
+			generator.flush();
+			seite = findNaechsteSeite(letztes);
+		}
+		generator.writeEndArray();
+		generator.close();
+	}
+}
@@ -0,0 +1,127 @@
+package de.shop.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Sperrfreies Histogramm fuer Dauern in Nanosekunden nach dem Vorbild von HdrHistogram:
+ * je Zweierpotenz gibt es 8 gleich breite Buckets, d.h. der relative Fehler der Quantile ist hoechstens 12,5%.
+ * Dauern ab 2^41 ns (ca. 36 Minuten) landen im letzten Bucket.
+ */
+public final class Latenzhistogramm {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_ANZAHL = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 40;
+	private static final int ANZAHL_BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_ANZAHL;
+
+	// Parallele Aufrufe zaehlen in getrennten Streifen, damit sie nicht um dieselben Zaehler konkurrieren
+	private static final int STREIFEN = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+	// Abstand der Zaehler fuer Summe und Exceptions: 8 long = 64 Byte = 1 Cache-Zeile
+	private static final int ABSTAND = 8;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(STREIFEN * ANZAHL_BUCKETS);
+	private final AtomicLongArray summen = new AtomicLongArray(STREIFEN * ABSTAND);
+	private final AtomicLongArray exceptions = new AtomicLongArray(STREIFEN * ABSTAND);
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Einen Aufruf erfassen
+	 * @param nanos Dauer in Nanosekunden
+	 * @param exception true, falls der Aufruf mit einer Exception beendet wurde
+	 */
+	public void aufzeichnen(long nanos, boolean exception) {
+		final int streifen = (int) Thread.currentThread().getId() & (STREIFEN - 1);
+		buckets.incrementAndGet(streifen * ANZAHL_BUCKETS + index(nanos));
+		summen.addAndGet(streifen * ABSTAND, nanos);
+		if (exception) {
+			exceptions.incrementAndGet(streifen * ABSTAND);
+		}
+
+		long bisher = max.get();
+		while (nanos > bisher && !max.compareAndSet(bisher, nanos)) {
+			bisher = max.get();
+		}
+	}
+
+	public long getAnzahl() {
+		long anzahl = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			anzahl += buckets.get(i);
+		}
+		return anzahl;
+	}
+
+	public long getExceptions() {
+		return summe(exceptions);
+	}
+
+	public long getSumme() {
+		return summe(summen);
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Quantile aus einer Momentaufnahme der Buckets ermitteln
+	 * @param quantile aufsteigend sortierte Quantile, z.B. 0.5, 0.95 und 0.99
+	 * @return Obergrenzen der Buckets in Nanosekunden, hoechstens jedoch das Maximum
+	 */
+	public long[] getQuantile(double... quantile) {
+		final long[] kopie = new long[ANZAHL_BUCKETS];
+		long gesamt = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			final long wert = buckets.get(i);
+			kopie[i % ANZAHL_BUCKETS] += wert;
+			gesamt += wert;
+		}
+
+		final long maxNanos = max.get();
+		final long[] werte = new long[quantile.length];
+		if (gesamt == 0) {
+			return werte;
+		}
+
+		int i = 0;
+		long kumuliert = kopie[0];
+		for (int q = 0; q < quantile.length; q++) {
+			final long rang = Math.max(1, (long) Math.ceil(quantile[q] * gesamt));
+			while (kumuliert < rang && i < ANZAHL_BUCKETS - 1) {
+				kumuliert += kopie[++i];
+			}
+			werte[q] = Math.min(obergrenze(i), maxNanos);
+		}
+		return werte;
+	}
+
+	private static long summe(AtomicLongArray zaehler) {
+		long summe = 0;
+		for (int i = 0; i < zaehler.length(); i += ABSTAND) {
+			summe += zaehler.get(i);
+		}
+		return summe;
+	}
+
+	static int index(long nanos) {
+		if (nanos < SUB_ANZAHL) {
+			return nanos < 0 ? 0 : (int) nanos;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT) {
+			return ANZAHL_BUCKETS - 1;
+		}
+		final int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_ANZAHL - 1);
+		return (exponent - SUB_BITS + 1) * SUB_ANZAHL + sub;
+	}
+
+	static long obergrenze(int index) {
+		if (index < SUB_ANZAHL) {
+			return index;
+		}
+		final int shift = index / SUB_ANZAHL - 1;
+		final long untergrenze = (long) (SUB_ANZAHL + index % SUB_ANZAHL) << shift;
+		return untergrenze + (1L << shift) - 1;
+	}
+}
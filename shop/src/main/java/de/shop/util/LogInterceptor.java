@@ -1,11 +1,19 @@
 package de.shop.util;
 
 import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
+import javax.inject.Inject;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
+import javax.persistence.Entity;
+import javax.persistence.Persistence;
 
 import org.jboss.logging.Logger;
 
@@ -14,298 +22,282 @@ import org.jboss.logging.Logger;
  * Interceptor zum Tracing von public-Methoden der CDI-faehigen Beans und der Session Beans.
  * Sowohl der Methodenaufruf als auch der Rueckgabewert (nicht: Exception) werden mit
  * Level DEBUG protokolliert.
+ * Ob eine Methode protokolliert wird, wird je Methode nur beim ersten Aufruf ermittelt, der Logger je Klasse
+ * des Beans. Wie bisher ist der Logger nach der Klasse des Beans benannt, auch bei geerbten Methoden.
+ * Parameter und Rueckgabewert werden erst in einen String konvertiert, wenn die Meldung tatsaechlich
+ * ausgegeben wird. Mit der Abtastrate aus Config wird nur ein Teil der Aufrufe protokolliert.
  */
 @Interceptor
 @Log
 public class LogInterceptor implements Serializable {
 	private static final long serialVersionUID = 6225006198548883927L;
-	
+
 	private static final String COUNT = "Anzahl = ";
 	private static final int MAX_ELEM = 4;  // bei Collections wird ab 5 Elementen nur die Anzahl ausgegeben
 	private static final int CHAR_POST_AFTER_GET_SET = 3; // getX..., setX...
 	private static final int CHAR_POST_AFTER_IS = 2; // isX...
 
-	@AroundInvoke
-	public Object log(InvocationContext ctx) throws Exception {
-		
-		final Object bean = ctx.getTarget();
-		final Class<?> clazz = bean.getClass();
-		final String classname = clazz.getName();
-		final Logger logger = Logger.getLogger(classname);
+	// Protokollierung je Methode
+	private static final ConcurrentMap<Method, Protokollierung> PROTOKOLLIERUNGEN = new ConcurrentHashMap<>();
 
-		if (!logger.isDebugEnabled()) {
-			return ctx.proceed();
+	// Logger je Klasse des Beans, d.h. nicht nach der deklarierenden Klasse einer geerbten Methode
+	private static final ClassValue<Logger> LOGGER = new ClassValue<Logger>() {
+		@Override
+		protected Logger computeValue(Class<?> clazz) {
+			return Logger.getLogger(clazz.getName());
 		}
+	};
 
-		final String methodName = ctx.getMethod().getName();
-
-		// getXy, setXy, isXy und toString nicht protokollieren
-		if ((methodName.startsWith("get") || methodName.startsWith("set"))
-			&& Character.isUpperCase(methodName.charAt(CHAR_POST_AFTER_GET_SET))) {
-			return ctx.proceed();
+	// Entities werden nur mit ihrer ID ausgegeben, damit toString() kein Nachladen ausloest
+	private static final ClassValue<Method> ID_GETTER = new ClassValue<Method>() {
+		@Override
+		protected Method computeValue(Class<?> clazz) {
+			return findIdGetter(clazz);
 		}
-		if ((methodName.startsWith("is")) && Character.isUpperCase(methodName.charAt(CHAR_POST_AFTER_IS))) {
+	};
+
+	@Inject
+	private Config config;
+
+	@AroundInvoke
+	public Object log(InvocationContext ctx) throws Exception {
+		final Protokollierung protokollierung = getProtokollierung(ctx.getMethod());
+		if (!protokollierung.protokolliert) {
 			return ctx.proceed();
 		}
-		if (("toString".equals(methodName)) && Character.isUpperCase(methodName.charAt(CHAR_POST_AFTER_IS))) {
+		final Logger logger = LOGGER.get(ctx.getTarget().getClass());
+		if (!logger.isDebugEnabled() || !abgetastet()) {
 			return ctx.proceed();
 		}
-		
-		final Object[] params = ctx.getParameters();
+
+		final String methodName = protokollierung.methodName;
 
 		// Methodenaufruf protokollieren
-		final StringBuilder sb = new StringBuilder();
-		if (params != null) {
-			final int anzahlParams = params.length;
-			sb.append(": ");
-			for (int i = 0; i < anzahlParams; i++) {
-				if (params[i] == null) {
-					sb.append("null");
-				}
-				else {
-					final String paramStr = toString(params[i]);
-					sb.append(paramStr);
-				}
-				sb.append(", ");
-			}
-			final int laenge = sb.length();
-			sb.delete(laenge - 2, laenge - 1);
-		}
-		logger.debug(methodName + " BEGINN" + sb);
-		
-		Object result = null;
-//		try {
-			// Eigentlicher Methodenaufruf
-			result = ctx.proceed();
-			
+		logger.debugf("%s BEGINN%s", methodName, new Parameter(ctx.getParameters()));
+
+		// Eigentlicher Methodenaufruf
+		final Object result = ctx.proceed();
+
 		// Keine Protokollierung der geworfenen Exception:
 		// 1) Stacktrace wuerde abgeschnitten werden
 		// 2) Exception wird an der Ursprungsstelle bereits protokolliert.
 		//    Wenn der LoggingInterceptor in ejb-jar.xml abgeklemmt wird,
 		//    muss naemlich immer noch eine Protokollierung stattfinden.
 
-//		}
-//		catch (Exception e) {
-//			// Methode hat eine Exception geworfen
-//			log.error(methodName + ": " + e.getMessage());
-//			throw e;
-//		}
-
 		if (result == null) {
 			// Methode vom Typ void oder Rueckgabewert null
-			logger.debug(methodName + " ENDE");
+			logger.debugf("%s ENDE", methodName);
 		}
 		else {
-			final String resultStr = toString(result);
-			logger.debug(methodName + " ENDE: " + resultStr);
+			logger.debugf("%s ENDE: %s", methodName, new Rueckgabewert(result));
 		}
-		
+
 		return result;
 	}
-	
+
+	/**
+	 * Wird der aktuelle Aufruf gemaess der Abtastrate protokolliert?
+	 */
+	private boolean abgetastet() {
+		final double abtastrate = config == null ? 1.0 : config.getLogAbtastrate();
+		return abtastrate >= 1.0 || ThreadLocalRandom.current().nextDouble() < abtastrate;
+	}
+
+	private static Protokollierung getProtokollierung(Method method) {
+		Protokollierung protokollierung = PROTOKOLLIERUNGEN.get(method);
+		if (protokollierung == null) {
+			protokollierung = new Protokollierung(method);
+			final Protokollierung vorhanden = PROTOKOLLIERUNGEN.putIfAbsent(method, protokollierung);
+			if (vorhanden != null) {
+				protokollierung = vorhanden;
+			}
+		}
+		return protokollierung;
+	}
+
+	/**
+	 * getXy, setXy, isXy und toString nicht protokollieren
+	 */
+	private static boolean isProtokolliert(String methodName) {
+		if ((methodName.startsWith("get") || methodName.startsWith("set"))
+			&& methodName.length() > CHAR_POST_AFTER_GET_SET
+			&& Character.isUpperCase(methodName.charAt(CHAR_POST_AFTER_GET_SET))) {
+			return false;
+		}
+		if (methodName.startsWith("is")
+			&& methodName.length() > CHAR_POST_AFTER_IS
+			&& Character.isUpperCase(methodName.charAt(CHAR_POST_AFTER_IS))) {
+			return false;
+		}
+		return !"toString".equals(methodName);
+	}
+
 	/**
 	 * Collection oder Array oder Objekt in einen String konvertieren
 	 */
 	private static String toString(Object obj) {
+		if (obj == null) {
+			return "null";
+		}
+
 		if (obj instanceof Collection<?>) {
+			// Nicht geladene Collection einer Entity: size() wuerde sie nachladen
+			if (!Persistence.getPersistenceUtil().isLoaded(obj)) {
+				return "<nicht geladen>";
+			}
+
 			// Collection: Elemente bei kleiner Anzahl ausgeben; sonst nur die Anzahl
 			final Collection<?> coll = (Collection<?>) obj;
 			final int anzahl = coll.size();
 			if (anzahl > MAX_ELEM) {
-				return COUNT + coll.size();
+				return COUNT + anzahl;
+			}
+
+			final StringBuilder sb = new StringBuilder("[");
+			for (Object elem : coll) {
+				if (sb.length() > 1) {
+					sb.append(", ");
+				}
+				sb.append(toString(elem));
 			}
+			return sb.append(']').toString();
+		}
 
-			return coll.toString();
+		final Class<?> clazz = obj.getClass();
+		if (clazz.isArray()) {
+			return arrayToString(obj);
 		}
-		
-		if (obj.getClass().isArray()) {
-			// Array in String konvertieren: Element fuer Element
-			final String str = arrayToString(obj);
-			return str;
+
+		final Method idGetter = ID_GETTER.get(clazz);
+		if (idGetter != null) {
+			return entityToString(obj, idGetter);
 		}
 
-		// Objekt, aber keine Collection und kein Array
+		// Objekt, aber keine Collection, kein Array und keine Entity
 		return obj.toString();
 	}
-	
+
 	/**
-	 * Array in einen String konvertieren
+	 * Array in einen String konvertieren: Element fuer Element
 	 */
 	private static String arrayToString(Object obj) {
-		final Class<?> componentClass = obj.getClass().getComponentType();
+		if (obj instanceof byte[]) {
+			return "<byte-array>";
+		}
 
-		if (!componentClass.isPrimitive()) {
-			// Array von Objekten
-			final Object[] arr = (Object[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
-			}
+		final int anzahl = Array.getLength(obj);
+		if (anzahl > MAX_ELEM) {
+			return COUNT + anzahl;
+		}
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				if (arr[i] == null) {
-					sbEnd.append("null");
-				}
-				else {
-					sbEnd.append(arr[i]);
-				}
-				sbEnd.append(", ");
-			}
-			if (anzahl > 0) {
-				final int laenge = sbEnd.length();
-				sbEnd.delete(laenge - 2, laenge - 1);
+		final boolean primitiv = obj.getClass().getComponentType().isPrimitive();
+		final StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < anzahl; i++) {
+			if (i > 0) {
+				sb.append(", ");
 			}
-			sbEnd.append(']');
-			return sbEnd.toString();
+			final Object elem = Array.get(obj, i);
+			sb.append(primitiv ? String.valueOf(elem) : toString(elem));
 		}
-		
-		// Array von primitiven Werten: byte, short, int, long, ..., float, double, boolean, char
-		
-		if ("short".equals(componentClass.getName())) {
-			final short[] arr = (short[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
-			}
+		return sb.append(']').toString();
+	}
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				sbEnd.append(arr[i]);
-				sbEnd.append(", ");
-			}
-			final int laenge = sbEnd.length();
-			if (anzahl > 0) {
-				sbEnd.delete(laenge - 2, laenge - 1);
-				sbEnd.append(']');
-			}
-			return sbEnd.toString();
+	/**
+	 * Entity nur mit Klassenname und ID ausgeben
+	 */
+	private static String entityToString(Object entity, Method idGetter) {
+		Object id;
+		try {
+			id = idGetter.invoke(entity);
 		}
-		
-		if ("int".equals(componentClass.getName())) {
-			final int[] arr = (int[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
-			}
+		catch (ReflectiveOperationException e) {
+			id = "?";
+		}
+		return entitySimpleName(entity.getClass()) + " [id=" + id + "]";
+	}
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				sbEnd.append(arr[i]);
-				sbEnd.append(", ");
-			}
-			final int laenge = sbEnd.length();
-			if (anzahl > 0) {
-				sbEnd.delete(laenge - 2, laenge - 1);
-				sbEnd.append(']');
-			}
-			return sbEnd.toString();
+	/**
+	 * Name der Entity-Klasse, auch bei einem Proxy von Hibernate
+	 */
+	private static String entitySimpleName(Class<?> clazz) {
+		Class<?> c = clazz;
+		while (c != null && !c.isAnnotationPresent(Entity.class)) {
+			c = c.getSuperclass();
 		}
-		
-		if ("long".equals(componentClass.getName())) {
-			final long[] arr = (long[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
-			}
+		return c == null ? clazz.getSimpleName() : c.getSimpleName();
+	}
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				sbEnd.append(arr[i]);
-				sbEnd.append(", ");
-			}
-			final int laenge = sbEnd.length();
-			if (anzahl > 0) {
-				sbEnd.delete(laenge - 2, laenge - 1);
-				sbEnd.append(']');
+	/**
+	 * Methode getId() fuer eine Entity-Klasse oder einen Proxy dafuer; null bei anderen Klassen
+	 */
+	private static Method findIdGetter(Class<?> clazz) {
+		for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+			if (c.isAnnotationPresent(Entity.class)) {
+				try {
+					return clazz.getMethod("getId");
+				}
+				catch (NoSuchMethodException e) {
+					return null;
+				}
 			}
-			return sbEnd.toString();
-		}
-		
-		if ("byte".equals(componentClass.getName())) {
-			return "<byte-array>";
 		}
+		return null;
+	}
 
-		if ("float".equals(componentClass.getName())) {
-			final float[] arr = (float[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
-			}
+	/**
+	 * Ergebnis der Pruefung beim ersten Aufruf einer Methode: protokolliert ist false z.B. fuer Getter und Setter;
+	 * methodName ist der Name fuer die Ausgabe, der Logger ergibt sich aus der Klasse des Beans (LOGGER)
+	 */
+	private static final class Protokollierung {
+		private final boolean protokolliert;
+		private final String methodName;
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				sbEnd.append(arr[i]);
-				sbEnd.append(", ");
-			}
-			if (anzahl > 0) {
-				final int laenge = sbEnd.length();
-				sbEnd.delete(laenge - 2, laenge - 1);
-			}
-			sbEnd.append(']');
-			return sbEnd.toString();
+		Protokollierung(Method method) {
+			methodName = method.getName();
+			protokolliert = isProtokolliert(methodName);
 		}
-		
-		if ("double".equals(componentClass.getName())) {
-			final double[] arr = (double[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
-			}
+	}
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				sbEnd.append(arr[i]);
-				sbEnd.append(", ");
-			}
-			if (anzahl > 0) {
-				final int laenge = sbEnd.length();
-				sbEnd.delete(laenge - 2, laenge - 1);
-			}
-			sbEnd.append(']');
-			return sbEnd.toString();
+	/**
+	 * Parameter werden erst durch toString() konvertiert, d.h. nur bei tatsaechlicher Ausgabe
+	 */
+	private static final class Parameter {
+		private final Object[] params;
+
+		Parameter(Object[] params) {
+			this.params = params;
 		}
 
-		if ("char".equals(componentClass.getName())) {
-			final char[] arr = (char[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
+		@Override
+		public String toString() {
+			if (params == null || params.length == 0) {
+				return "";
 			}
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				sbEnd.append(arr[i]);
-				sbEnd.append(", ");
-			}
-			if (anzahl > 0) {
-				final int laenge = sbEnd.length();
-				sbEnd.delete(laenge - 2, laenge - 1);
+			final StringBuilder sb = new StringBuilder(": ");
+			for (int i = 0; i < params.length; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(LogInterceptor.toString(params[i]));
 			}
-			sbEnd.append(']');
-			return sbEnd.toString();
+			return sb.toString();
 		}
+	}
 
-		if ("boolean".equals(componentClass.getName())) {
-			final boolean[] arr = (boolean[]) obj;
-			if (arr.length > MAX_ELEM) {
-				return COUNT + arr.length;
-			}
+	/**
+	 * Rueckgabewert wird erst durch toString() konvertiert, d.h. nur bei tatsaechlicher Ausgabe
+	 */
+	private static final class Rueckgabewert {
+		private final Object result;
 
-			final StringBuilder sbEnd = new StringBuilder("[");
-			final int anzahl = arr.length;
-			for (int i = 0; i < anzahl; i++) {
-				sbEnd.append(arr[i]);
-				sbEnd.append(", ");
-			}
-			if (anzahl > 0) {
-				final int laenge = sbEnd.length();
-				sbEnd.delete(laenge - 2, laenge - 1);
-			}
-			sbEnd.append(']');
-			return sbEnd.toString();
+		Rueckgabewert(Object result) {
+			this.result = result;
 		}
 
-		return "<<UNKNOWN ARRAY>>";
+		@Override
+		public String toString() {
+			return LogInterceptor.toString(result);
+		}
 	}
 }
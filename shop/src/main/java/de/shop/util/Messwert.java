@@ -0,0 +1,8 @@
+package de.shop.util;
+
+/**
+ * Aktueller Wert einer Metrik ausserhalb der Methodenaufrufe, z.B. die Laenge einer Warteschlange
+ */
+public interface Messwert {
+	long getWert();
+}
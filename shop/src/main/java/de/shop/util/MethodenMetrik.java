@@ -0,0 +1,79 @@
+package de.shop.util;
+
+import java.beans.ConstructorProperties;
+import java.io.Serializable;
+
+
+/**
+ * Unveraenderliche Momentaufnahme der Metriken einer Methode; Dauern in Nanosekunden
+ */
+public class MethodenMetrik implements Serializable {
+	private static final long serialVersionUID = 4861527032870641958L;
+
+	private final String bean;
+	private final String methode;
+	private final long anzahl;
+	private final long exceptions;
+	private final long summe;
+	private final long p50;
+	private final long p95;
+	private final long p99;
+	private final long max;
+
+	@ConstructorProperties({ "bean", "methode", "anzahl", "exceptions", "summe", "p50", "p95", "p99", "max" })
+	public MethodenMetrik(String bean, String methode, long anzahl, long exceptions, long summe,
+			              long p50, long p95, long p99, long max) {
+		this.bean = bean;
+		this.methode = methode;
+		this.anzahl = anzahl;
+		this.exceptions = exceptions;
+		this.summe = summe;
+		this.p50 = p50;
+		this.p95 = p95;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	public String getBean() {
+		return bean;
+	}
+
+	public String getMethode() {
+		return methode;
+	}
+
+	public long getAnzahl() {
+		return anzahl;
+	}
+
+	public long getExceptions() {
+		return exceptions;
+	}
+
+	public long getSumme() {
+		return summe;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP95() {
+		return p95;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "MethodenMetrik [bean=" + bean + ", methode=" + methode + ", anzahl=" + anzahl
+			   + ", exceptions=" + exceptions + ", summe=" + summe + ", p50=" + p50 + ", p95=" + p95
+			   + ", p99=" + p99 + ", max=" + max + "]";
+	}
+}
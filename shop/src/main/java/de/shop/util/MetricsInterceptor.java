@@ -0,0 +1,37 @@
+package de.shop.util;
+
+import java.io.Serializable;
+
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+
+/**
+ * Interceptor zur Messung der public-Methoden von Services und REST-Resources.
+ * Je Methode werden Dauer, Anzahl der Aufrufe und Anzahl der Exceptions in einem Latenzhistogramm erfasst.
+ */
+@Interceptor
+@Metrics
+public class MetricsInterceptor implements Serializable {
+	private static final long serialVersionUID = -2370528329546911632L;
+
+	@Inject
+	private MetricsRegistry metricsRegistry;
+
+	@AroundInvoke
+	public Object messen(InvocationContext ctx) throws Exception {
+		final Latenzhistogramm histogramm = metricsRegistry.getHistogramm(ctx.getMethod());
+		final long start = System.nanoTime();
+		boolean exception = true;
+		try {
+			final Object result = ctx.proceed();
+			exception = false;
+			return result;
+		}
+		finally {
+			histogramm.aufzeichnen(System.nanoTime() - start, exception);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package de.shop.util;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.jboss.logging.Logger;
+
+
+/**
+ * Latenzhistogramme je Bean und Methode. Ueberladene Methoden werden zusammengefasst.
+ */
+@ApplicationScoped
+public class MetricsRegistry implements MetricsRegistryMXBean, Serializable {
+	private static final long serialVersionUID = -1563093795327946157L;
+
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final String OBJECT_NAME = "de.shop:type=Metrics";
+	private static final String TRENNZEICHEN = ".";
+	private static final double[] QUANTILE = { 0.5, 0.95, 0.99 };
+
+	// Typen fuer registrierte Messwerte gemaess Prometheus
+	public static final String GAUGE = "gauge";
+	public static final String COUNTER = "counter";
+
+	// Schneller Zugriff fuer MetricsInterceptor
+	private transient ConcurrentMap<Method, Latenzhistogramm> histogrammeByMethod;
+
+	// Sortiert nach Bean und Methode fuer die Ausgabe
+	private transient ConcurrentMap<String, Latenzhistogramm> histogrammeByName;
+
+	// Registrierte Messwerte sortiert nach Name
+	private transient ConcurrentMap<String, MesswertEintrag> messwerte;
+
+	private transient ObjectName objectName;
+
+	@PostConstruct
+	private void postConstruct() {
+		histogrammeByMethod = new ConcurrentHashMap<>();
+		histogrammeByName = new ConcurrentSkipListMap<>();
+		messwerte = new ConcurrentSkipListMap<>();
+
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			objectName = new ObjectName(OBJECT_NAME);
+			if (!mbeanServer.isRegistered(objectName)) {
+				mbeanServer.registerMBean(this, objectName);
+			}
+		}
+		catch (JMException e) {
+			LOGGER.warnf(e, "Die Metriken sind nicht per JMX verfuegbar");
+			objectName = null;
+		}
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+
+	@PreDestroy
+	private void preDestroy() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			}
+			catch (JMException e) {
+				LOGGER.debugf("JMX: %s", e.getMessage());
+			}
+		}
+		LOGGER.debugf("CDI-faehiges Bean %s wird geloescht", this);
+	}
+
+	/**
+	 * Histogramm fuer eine Methode; wird beim ersten Aufruf angelegt
+	 */
+	public Latenzhistogramm getHistogramm(Method method) {
+		Latenzhistogramm histogramm = histogrammeByMethod.get(method);
+		if (histogramm != null) {
+			return histogramm;
+		}
+
+		final String name = method.getDeclaringClass().getSimpleName() + TRENNZEICHEN + method.getName();
+		histogramm = histogrammeByName.get(name);
+		if (histogramm == null) {
+			final Latenzhistogramm neu = new Latenzhistogramm();
+			histogramm = histogrammeByName.putIfAbsent(name, neu);
+			if (histogramm == null) {
+				histogramm = neu;
+			}
+		}
+		histogrammeByMethod.putIfAbsent(method, histogramm);
+		return histogramm;
+	}
+
+	/**
+	 * Einen Messwert registrieren, der bei jeder Abfrage der Metriken neu ermittelt wird
+	 * @param name Name gemaess Prometheus, z.B. shop_mail_warteschlange
+	 * @param beschreibung Beschreibung fuer # HELP
+	 * @param typ GAUGE oder COUNTER
+	 * @param messwert Ermittlung des aktuellen Werts
+	 */
+	public void registriereMesswert(String name, String beschreibung, String typ, Messwert messwert) {
+		messwerte.put(name, new MesswertEintrag(beschreibung, typ, messwert));
+	}
+
+	/**
+	 * Registrierte Messwerte sortiert nach Name
+	 */
+	public Map<String, MesswertEintrag> getMesswerte() {
+		return Collections.unmodifiableMap(messwerte);
+	}
+
+	@Override
+	public List<MethodenMetrik> getMethodenMetriken() {
+		final List<MethodenMetrik> metriken = new ArrayList<>(histogrammeByName.size());
+		for (Entry<String, Latenzhistogramm> entry : histogrammeByName.entrySet()) {
+			final String name = entry.getKey();
+			final int pos = name.indexOf(TRENNZEICHEN);
+			final Latenzhistogramm h = entry.getValue();
+			final long[] quantile = h.getQuantile(QUANTILE);
+			metriken.add(new MethodenMetrik(name.substring(0, pos), name.substring(pos + 1),
+					                        h.getAnzahl(), h.getExceptions(), h.getSumme(),
+					                        quantile[0], quantile[1], quantile[2], h.getMax()));
+		}
+		return metriken;
+	}
+
+	/**
+	 * Alle Histogramme verwerfen, z.B. nach einem Lasttest
+	 */
+	@Override
+	public void zuruecksetzen() {
+		histogrammeByMethod.clear();
+		histogrammeByName.clear();
+	}
+
+	public static final class MesswertEintrag {
+		private final String beschreibung;
+		private final String typ;
+		private final Messwert messwert;
+
+		MesswertEintrag(String beschreibung, String typ, Messwert messwert) {
+			this.beschreibung = beschreibung;
+			this.typ = typ;
+			this.messwert = messwert;
+		}
+
+		public String getBeschreibung() {
+			return beschreibung;
+		}
+
+		public String getTyp() {
+			return typ;
+		}
+
+		public long getWert() {
+			return messwert.getWert();
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package de.shop.util;
+
+import java.util.List;
+
+/**
+ * Metriken der Methodenaufrufe per JMX, z.B. mit jconsole unter de.shop:type=Metrics
+ */
+public interface MetricsRegistryMXBean {
+	List<MethodenMetrik> getMethodenMetriken();
+	
+	void zuruecksetzen();
+}
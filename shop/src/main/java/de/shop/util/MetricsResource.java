@@ -0,0 +1,84 @@
+package de.shop.util;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import de.shop.util.MetricsRegistry.MesswertEintrag;
+
+
+/**
+ * Metriken der Methodenaufrufe im Textformat von Prometheus
+ */
+@Path("/metrics")
+@Produces(MetricsResource.TEXT_PROMETHEUS)
+@RequestScoped
+public class MetricsResource {
+	public static final String TEXT_PROMETHEUS = "text/plain; version=0.0.4";
+
+	private static final String DAUER = "shop_methode_dauer_seconds";
+	private static final String DAUER_MAX = "shop_methode_dauer_max_seconds";
+	private static final String EXCEPTIONS = "shop_methode_exceptions_total";
+	private static final String[] QUANTILE = { "0.5", "0.95", "0.99" };
+	private static final double NANOS_PRO_SEKUNDE = 1e9;
+
+	@Inject
+	private MetricsRegistry metricsRegistry;
+
+	@GET
+	public String getMetriken() {
+		final List<MethodenMetrik> metriken = metricsRegistry.getMethodenMetriken();
+		final StringBuilder sb = new StringBuilder(metriken.size() * 512);
+
+		kopf(sb, DAUER, "Dauer der Methodenaufrufe", "summary");
+		for (MethodenMetrik m : metriken) {
+			final long[] quantile = { m.getP50(), m.getP95(), m.getP99() };
+			for (int i = 0; i < QUANTILE.length; i++) {
+				zeile(sb, DAUER, m, ",quantile=\"" + QUANTILE[i] + "\"", sekunden(quantile[i]));
+			}
+			zeile(sb, DAUER + "_sum", m, "", sekunden(m.getSumme()));
+			zeile(sb, DAUER + "_count", m, "", String.valueOf(m.getAnzahl()));
+		}
+
+		kopf(sb, DAUER_MAX, "Laengste Dauer eines Methodenaufrufs", "gauge");
+		for (MethodenMetrik m : metriken) {
+			zeile(sb, DAUER_MAX, m, "", sekunden(m.getMax()));
+		}
+
+		kopf(sb, EXCEPTIONS, "Methodenaufrufe mit Exception", "counter");
+		for (MethodenMetrik m : metriken) {
+			zeile(sb, EXCEPTIONS, m, "", String.valueOf(m.getExceptions()));
+		}
+
+		for (Entry<String, MesswertEintrag> entry : metricsRegistry.getMesswerte().entrySet()) {
+			final MesswertEintrag m = entry.getValue();
+			kopf(sb, entry.getKey(), m.getBeschreibung(), m.getTyp());
+			sb.append(entry.getKey()).append(' ').append(m.getWert()).append('\n');
+		}
+
+		return sb.toString();
+	}
+
+	private static void kopf(StringBuilder sb, String name, String hilfe, String typ) {
+		sb.append("# HELP ").append(name).append(' ').append(hilfe).append('\n')
+		  .append("# TYPE ").append(name).append(' ').append(typ).append('\n');
+	}
+
+	private static void zeile(StringBuilder sb, String name, MethodenMetrik m, String weitereLabels, String wert) {
+		sb.append(name)
+		  .append("{bean=\"").append(m.getBean())
+		  .append("\",methode=\"").append(m.getMethode()).append('"')
+		  .append(weitereLabels)
+		  .append("} ").append(wert).append('\n');
+	}
+
+	private static String sekunden(long nanos) {
+		return String.format(Locale.ROOT, "%.9f", nanos / NANOS_PRO_SEKUNDE);
+	}
+}
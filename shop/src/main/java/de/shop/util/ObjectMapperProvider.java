@@ -0,0 +1,28 @@
+package de.shop.util;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+
+/**
+ * Der eine konfigurierte ObjectMapper der Anwendung: fuer resteasy-jackson-provider als ContextResolver und
+ * per @Inject fuer StreamingOutput-Implementierungen und das inkrementelle Lesen von JSON.
+ * Ein ObjectMapper ist nach der Konfiguration threadsicher und haelt die Serializer im Cache.
+ */
+@Provider
+@ApplicationScoped
+public class ObjectMapperProvider implements ContextResolver<ObjectMapper> {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	
+	@Override
+	public ObjectMapper getContext(Class<?> type) {
+		return objectMapper;
+	}
+	
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+}
@@ -0,0 +1,30 @@
+package de.shop.util;
+
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.OptimisticLockException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+
+/**
+ * Konflikt beim Optimistic Locking: die Daten wurden zwischenzeitlich durch einen anderen Request geaendert
+ */
+@Provider
+@ApplicationScoped
+public class OptimisticLockExceptionMapper implements ExceptionMapper<OptimisticLockException> {
+	private static final String MSG = "Die Daten wurden zwischenzeitlich geaendert. Bitte neu laden.";
+
+	@Override
+	public Response toResponse(OptimisticLockException e) {
+		final Response response = Response.status(CONFLICT)
+		                                  .type(TEXT_PLAIN)
+		                                  .entity(MSG)
+		                                  .build();
+		return response;
+	}
+
+}
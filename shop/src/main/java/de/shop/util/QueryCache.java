@@ -0,0 +1,25 @@
+package de.shop.util;
+
+
+/**
+ * Hints und Regionen fuer den Query-Cache von Hibernate, z.B. in @NamedQuery:
+ * <code>hints = { @QueryHint(name = QueryCache.CACHEABLE, value = "true"),
+ *                 @QueryHint(name = QueryCache.REGION, value = QueryCache.REGION_ARTIKEL) }</code>
+ * Gecacht werden nur die IDs der Ergebnisse, d.h. die Entities sollten @Cacheable sein. Sobald eine
+ * beteiligte Tabelle durch Hibernate geaendert wird, verwirft Hibernate die gecachten Ergebnisse.
+ * Die Lebensdauer je Region ist in persistence.xml konfiguriert.
+ */
+public final class QueryCache {
+	public static final String CACHEABLE = "org.hibernate.cacheable";
+	public static final String REGION = "org.hibernate.cacheRegion";
+
+	// Praefix aller Regionen fuer Queries
+	public static final String REGION_QUERY = "query.";
+
+	public static final String REGION_ARTIKEL = REGION_QUERY + "artikel";
+	public static final String REGION_KUNDEN = REGION_QUERY + "kunden";
+	public static final String REGION_BESTELLUNGEN = REGION_QUERY + "bestellungen";
+
+	private QueryCache() {
+	}
+}
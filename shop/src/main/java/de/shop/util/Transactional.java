@@ -8,7 +8,14 @@ import java.lang.annotation.Inherited;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
+import javax.enterprise.util.Nonbinding;
 import javax.interceptor.InterceptorBinding;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PessimisticLockException;
+
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.LockAcquisitionException;
 
 @Inherited
 @InterceptorBinding
@@ -16,4 +23,42 @@ import javax.interceptor.InterceptorBinding;
 @Retention(RUNTIME)
 //TODO Bestandteil von javax.transaction ab JTA (= Java Transaction API) 1.2 (JavaEE 7)
 public @interface Transactional {
+	/**
+	 * Nur lesender Zugriff: die Entities werden ohne Snapshot fuer das Dirty Checking geladen
+	 * und beim Commit wird kein Flush durchgefuehrt. Eine Annotation an der Methode hat Vorrang
+	 * vor der Annotation an der Klasse.
+	 */
+	@Nonbinding
+	boolean readOnly() default false;
+	
+	/**
+	 * Maximale Anzahl Versuche, falls die Transaktion mit einer der Exceptions aus wiederholenBei scheitert,
+	 * z.B. bei einem Deadlock. Die Methode wird dann in einer neuen Transaktion nochmals aufgerufen und muss
+	 * deshalb wiederholbar sein. Default: 1, d.h. keine Wiederholung.
+	 */
+	@Nonbinding
+	int maxVersuche() default 1;
+	
+	/**
+	 * Wartezeit vor der 1. Wiederholung; sie verdoppelt sich bei jeder weiteren Wiederholung bis
+	 * maxWartezeitMillis. Tatsaechlich gewartet wird zufaellig zwischen der halben und der vollen Wartezeit.
+	 */
+	@Nonbinding
+	long wartezeitMillis() default 20;
+	
+	@Nonbinding
+	long maxWartezeitMillis() default 500;
+	
+	/**
+	 * Voruebergehende Fehler, bei denen wiederholt wird. Beruecksichtigt wird die gesamte Kette der Ursachen,
+	 * z.B. eine OptimisticLockException als Ursache der RollbackException beim Commit.
+	 */
+	@Nonbinding
+	Class<? extends Exception>[] wiederholenBei() default {
+		OptimisticLockException.class,
+		PessimisticLockException.class,
+		LockTimeoutException.class,
+		StaleStateException.class,
+		LockAcquisitionException.class
+	};
 }
@@ -5,21 +5,37 @@ import static javax.transaction.Status.STATUS_NO_TRANSACTION;
 
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.annotation.Resource;
 import javax.ejb.ApplicationException;
+import javax.inject.Inject;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
+import javax.persistence.EntityManager;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceContext;
 import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
 import javax.transaction.RollbackException;
 import javax.transaction.SystemException;
 import javax.transaction.UserTransaction;
 
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
 import org.jboss.logging.Logger;
 
 
+/**
+ * Transaktionssteuerung fuer Methoden mit @Transactional: Beginn, Commit bzw. Rollback und ggf. Wiederholung
+ * der gesamten Transaktion bei voruebergehenden Fehlern wie Deadlocks oder Konflikten beim Optimistic Locking.
+ * Ein gescheiterter Commit wird an den Aufrufer weitergereicht.
+ */
 @Transactional
 @Interceptor
 // TODO Entfaellt ab JTA 1.2 (Java EE 7)
@@ -28,16 +44,66 @@ public class TransactionalInterceptor implements Serializable {
 	
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
 	
+	// Attribute je Methode aus der Annotation an der Methode bzw. an der Klasse; nur beim ersten Aufruf ermittelt
+	private static final ConcurrentMap<Method, Attribute> ATTRIBUTE = new ConcurrentHashMap<>();
+	
+	// Obergrenze fuer den Exponenten beim Verdoppeln der Wartezeit
+	private static final int MAX_VERDOPPLUNGEN = 20;
+	
 	@Resource
 	private transient UserTransaction trans;
+	
+	@PersistenceContext
+	private transient EntityManager em;
+	
+	@Inject
+	private TransaktionsMetriken metriken;
 
 	@AroundInvoke
 	public Object manageTransaction(InvocationContext ctx) throws Exception {
-		boolean started = false;
-		if (trans.getStatus() != STATUS_ACTIVE) {
-			trans.begin();
-			LOGGER.trace("Transaktion gestartet >>>");
-			started = true;
+		if (trans.getStatus() == STATUS_ACTIVE) {
+			// Aufruf innerhalb einer bereits laufenden Transaktion: keine eigene Transaktion und keine Wiederholung
+			return ctx.proceed();
+		}
+		
+		final Attribute attribute = getAttribute(ctx.getMethod());
+		for (int versuch = 1;; versuch++) {
+			try {
+				return transaktion(ctx, attribute);
+			}
+			catch (Exception e) {
+				if (attribute.maxVersuche <= 1 || !attribute.isWiederholbar(e)) {
+					throw versionskonflikt(e);
+				}
+				if (versuch >= attribute.maxVersuche) {
+					metriken.aufgegeben();
+					LOGGER.warnf("%s: Transaktion nach %d Versuchen aufgegeben: %s", ctx.getMethod().getName(),
+							     versuch, e);
+					throw versionskonflikt(e);
+				}
+				
+				metriken.wiederholung();
+				LOGGER.debugf("%s: Wiederholung nach Versuch %d: %s", ctx.getMethod().getName(), versuch, e);
+				warten(attribute, versuch, e);
+			}
+		}
+	}
+
+	/**
+	 * Ein Versuch: Methodenaufruf in einer neuen Transaktion
+	 */
+	private Object transaktion(InvocationContext ctx, Attribute attribute) throws Exception {
+		trans.begin();
+		metriken.versuch();
+		LOGGER.trace("Transaktion gestartet >>>");
+		
+		if (attribute.readOnly) {
+			// Ohne Snapshots und ohne Flush beim Commit, d.h. ohne Dirty Checking der geladenen Entities.
+			// Der Persistenzkontext gehoert zur gerade gestarteten Transaktion und endet mit ihr.
+			final Session session = em.unwrap(Session.class);
+			session.setDefaultReadOnly(true);
+			session.setFlushMode(FlushMode.MANUAL);
+			LOGGER.trace("Transaktion nur lesend");
 		}
 		
 		Object result = null;
@@ -45,50 +111,146 @@ public class TransactionalInterceptor implements Serializable {
 			result = ctx.proceed();
 		}
 		catch (AbstractShopException e) {
-			if (started) {
-				final ApplicationException annotationApplicationException =
-		                   e.getClass().getAnnotation(ApplicationException.class);
-				if (annotationApplicationException != null && annotationApplicationException.rollback()) {
-					trans.rollback();
-					LOGGER.trace("<<< Rollback durchgefuehrt");
-				}
-				else {
-					endOfTransaction();
-				}
+			final ApplicationException annotationApplicationException =
+	                   e.getClass().getAnnotation(ApplicationException.class);
+			if (annotationApplicationException != null && annotationApplicationException.rollback()) {
+				rollback();
+			}
+			else {
+				endOfTransaction();
 			}
 			
 			throw e;
 		}
-		
-		if (started) {
-			endOfTransaction();
+		catch (Exception e) {
+			// Die Transaktion darf nicht am Thread haengen bleiben, erst recht nicht vor einer Wiederholung
+			rollback();
+			throw e;
 		}
-
+		
+		endOfTransaction();
 		return result;
 	}
 
-	private void endOfTransaction() throws SystemException {
+	/**
+	 * Ein gescheiterter Commit wird nicht mehr verschluckt, sondern als Exception weitergereicht,
+	 * damit er ggf. wiederholt wird bzw. der Client einen Fehler erhaelt
+	 */
+	private void endOfTransaction() throws SystemException, RollbackException, HeuristicMixedException,
+	                                       HeuristicRollbackException {
 		switch (trans.getStatus()) {
 			case STATUS_ACTIVE:
-				try {
-					LOGGER.trace(">>> Commit beginnt");
-					trans.commit();
-					LOGGER.trace("<<< Commit beendet");
-				}
-				catch (SystemException | HeuristicRollbackException | HeuristicMixedException
-					   | RollbackException e) {
-					trans.rollback();
-					LOGGER.trace("<<< Rollback durchgefuehrt");
-				}
+				LOGGER.trace(">>> Commit beginnt");
+				trans.commit();
+				LOGGER.trace("<<< Commit beendet");
 				break;
 				
 			case STATUS_NO_TRANSACTION:
 				break;
 				
 			default:
-				trans.rollback();
-				LOGGER.trace("<<< Rollback durchgefuehrt");
+				rollback();
 				break;
 		}
 	}
+
+	private void rollback() throws SystemException {
+		if (trans.getStatus() != STATUS_NO_TRANSACTION) {
+			trans.rollback();
+			LOGGER.trace("<<< Rollback durchgefuehrt");
+		}
+	}
+
+	/**
+	 * Ein Versionskonflikt beim Commit kommt z.B. als RollbackException mit der eigentlichen Ursache an.
+	 * Er wird als OptimisticLockException weitergereicht, damit der Client 409 statt 500 erhaelt.
+	 */
+	private static Exception versionskonflikt(Exception e) {
+		if (e instanceof OptimisticLockException) {
+			return e;
+		}
+		for (Throwable t = e.getCause(); t != null; t = t.getCause() == t ? null : t.getCause()) {
+			if (t instanceof OptimisticLockException) {
+				return (OptimisticLockException) t;
+			}
+			if (t instanceof StaleStateException) {
+				return new OptimisticLockException(t.getMessage(), t);
+			}
+		}
+		return e;
+	}
+
+	/**
+	 * Exponentieller Backoff mit Jitter, damit konkurrierende Requests nicht erneut gleichzeitig zugreifen
+	 */
+	private static void warten(Attribute attribute, int versuch, Exception e) throws Exception {
+		final long wartezeit = Math.min(attribute.maxWartezeitMillis,
+				                        attribute.wartezeitMillis << Math.min(versuch - 1, MAX_VERDOPPLUNGEN));
+		final long millis = wartezeit / 2 + ThreadLocalRandom.current().nextLong(wartezeit / 2 + 1);
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
+	private static Attribute getAttribute(Method method) {
+		Attribute attribute = ATTRIBUTE.get(method);
+		if (attribute == null) {
+			Transactional transactional = method.getAnnotation(Transactional.class);
+			if (transactional == null) {
+				transactional = method.getDeclaringClass().getAnnotation(Transactional.class);
+			}
+			attribute = new Attribute(transactional);
+			final Attribute vorhanden = ATTRIBUTE.putIfAbsent(method, attribute);
+			if (vorhanden != null) {
+				attribute = vorhanden;
+			}
+		}
+		return attribute;
+	}
+
+	/**
+	 * Attribute von @Transactional fuer eine Methode; ohne Annotation gelten die Defaults ohne Wiederholung
+	 */
+	private static final class Attribute {
+		private final boolean readOnly;
+		private final int maxVersuche;
+		private final long wartezeitMillis;
+		private final long maxWartezeitMillis;
+		private final Class<? extends Exception>[] wiederholenBei;
+
+		@SuppressWarnings("unchecked")
+		Attribute(Transactional transactional) {
+			if (transactional == null) {
+				readOnly = false;
+				maxVersuche = 1;
+				wartezeitMillis = 0;
+				maxWartezeitMillis = 0;
+				wiederholenBei = new Class[0];
+				return;
+			}
+			readOnly = transactional.readOnly();
+			maxVersuche = transactional.maxVersuche();
+			wartezeitMillis = Math.max(transactional.wartezeitMillis(), 0);
+			maxWartezeitMillis = Math.max(transactional.maxWartezeitMillis(), wartezeitMillis);
+			wiederholenBei = transactional.wiederholenBei();
+		}
+
+		/**
+		 * Ist die Exception oder eine ihrer Ursachen ein voruebergehender Fehler?
+		 */
+		boolean isWiederholbar(Throwable e) {
+			for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+				for (Class<? extends Exception> clazz : wiederholenBei) {
+					if (clazz.isInstance(t)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
 }
@@ -0,0 +1,55 @@
+package de.shop.util;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.jboss.logging.Logger;
+
+
+/**
+ * Zaehler des TransactionalInterceptor fuer gestartete Transaktionen, Wiederholungen und Abbrueche
+ * nach dem letzten Versuch
+ */
+@ApplicationScoped
+public class TransaktionsMetriken implements Serializable {
+	private static final long serialVersionUID = 3046911829437351725L;
+
+	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+
+	private final Zaehler versuche = new Zaehler();
+	private final Zaehler wiederholungen = new Zaehler();
+	private final Zaehler aufgegeben = new Zaehler();
+
+	@Inject
+	private MetricsRegistry metricsRegistry;
+
+	@PostConstruct
+	private void postConstruct() {
+		metricsRegistry.registriereMesswert("shop_transaktion_versuche_total",
+				                            "Gestartete Transaktionen einschliesslich Wiederholungen",
+				                            MetricsRegistry.COUNTER, versuche);
+		metricsRegistry.registriereMesswert("shop_transaktion_wiederholungen_total",
+				                            "Wiederholte Transaktionen nach einem voruebergehenden Fehler",
+				                            MetricsRegistry.COUNTER, wiederholungen);
+		metricsRegistry.registriereMesswert("shop_transaktion_aufgegeben_total",
+				                            "Transaktionen, die auch beim letzten Versuch gescheitert sind",
+				                            MetricsRegistry.COUNTER, aufgegeben);
+		LOGGER.debugf("CDI-faehiges Bean %s wurde erzeugt", this);
+	}
+
+	public void versuch() {
+		versuche.erhoehen();
+	}
+
+	public void wiederholung() {
+		wiederholungen.erhoehen();
+	}
+
+	public void aufgegeben() {
+		aufgegeben.erhoehen();
+	}
+}
@@ -0,0 +1,9 @@
+package de.shop.util;
+
+
+/**
+ * Unveraenderliche Projektion fuer Listen; die URL wird erst beim Serialisieren aus der ID erzeugt
+ */
+public interface Uebersicht {
+	Long getId();
+}
@@ -0,0 +1,73 @@
+package de.shop.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.annotate.JsonPropertyOrder;
+import org.codehaus.jackson.annotate.JsonUnwrapped;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * JSON-Array mit Projektionen, bei dem jedes Element beim Serialisieren um seine URL ergaenzt wird.
+ * Die Projektionen bleiben unveraenderlich; die URL entsteht durch Verketten mit der URL-Vorlage.
+ */
+public class UebersichtOutput<T extends Uebersicht> implements StreamingOutput {
+	private final List<T> liste;
+	private final UriVorlage uriVorlage;
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * @param liste Projektionen, z.B. durch eine JPQL-Abfrage mit SELECT NEW
+	 * @param uriVorlage URL-Vorlage mit dem Platzhalter fuer die ID
+	 * @param objectMapper ObjectMapper aus ObjectMapperProvider
+	 */
+	public UebersichtOutput(List<T> liste, UriVorlage uriVorlage, ObjectMapper objectMapper) {
+		this.liste = liste;
+		this.uriVorlage = uriVorlage;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public void write(OutputStream os) throws IOException, WebApplicationException {
+		final JsonGenerator generator = objectMapper.getJsonFactory().createJsonGenerator(os, JsonEncoding.UTF8);
+		// Den OutputStream schliesst der JAX-RS-Container
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+		generator.writeStartArray();
+		for (T element : liste) {
+			generator.writeObject(new MitUri<T>(element, uriVorlage.getUri(element.getId())));
+		}
+		generator.writeEndArray();
+		generator.close();
+	}
+
+	/**
+	 * Projektion und URL als 1 JSON-Objekt: die Properties der Projektion werden nicht verschachtelt
+	 */
+	@JsonPropertyOrder({ "uri" })
+	private static final class MitUri<T> {
+		private final T element;
+		private final URI uri;
+
+		MitUri(T element, URI uri) {
+			this.element = element;
+			this.uri = uri;
+		}
+
+		@JsonUnwrapped
+		public T getElement() {
+			return element;
+		}
+
+		public URI getUri() {
+			return uri;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package de.shop.util;
+
+import java.net.URI;
+
+import javax.ws.rs.core.UriBuilder;
+
+
+/**
+ * Aufgeloeste URL-Vorlage mit genau 1 Platzhalter, z.B. fuer die ID. Eine URL entsteht durch Verketten
+ * von Praefix, Wert und Suffix, d.h. ohne UriBuilder und ohne erneutes Auswerten der JAX-RS-Annotationen.
+ */
+public final class UriVorlage {
+	// Platzhalter beim einmaligen Aufbau durch den UriBuilder; wird von UriBuilder.build() nicht kodiert
+	private static final String PLATZHALTER = "UriVorlagePlatzhalter";
+
+	private final String praefix;
+	private final String suffix;
+
+	private UriVorlage(String praefix, String suffix) {
+		this.praefix = praefix;
+		this.suffix = suffix;
+	}
+
+	/**
+	 * @param ub UriBuilder fuer einen Pfad mit genau 1 Template-Parameter
+	 */
+	public static UriVorlage of(UriBuilder ub) {
+		final String uri = ub.build(PLATZHALTER).toString();
+		final int pos = uri.indexOf(PLATZHALTER);
+		if (pos < 0 || uri.indexOf(PLATZHALTER, pos + 1) >= 0) {
+			throw new IllegalArgumentException("Die URL " + uri + " hat nicht genau 1 Platzhalter");
+		}
+		return new UriVorlage(uri.substring(0, pos), uri.substring(pos + PLATZHALTER.length()));
+	}
+
+	/**
+	 * @param wert Wert fuer den Platzhalter, z.B. eine ID; wird nicht kodiert
+	 */
+	public URI getUri(Object wert) {
+		return URI.create(praefix + wert + suffix);
+	}
+
+	@Override
+	public String toString() {
+		return "UriVorlage [" + praefix + "{}" + suffix + "]";
+	}
+}
@@ -0,0 +1,47 @@
+package de.shop.util;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.core.UriInfo;
+
+
+/**
+ * URL-Vorlagen fuer eine Methode einer REST-Klasse, aufgeloest je Basis-URL. Die Basis-URL haengt z.B. vom
+ * Host-Header ab; deshalb wird nur eine begrenzte Anzahl Basis-URLs gepuffert.
+ */
+public final class UriVorlagen {
+	private static final int BASIS_URIS_MAX = 32;
+
+	private final Class<?> resourceClass;
+	private final String methode;
+	private final ConcurrentMap<URI, UriVorlage> vorlagen = new ConcurrentHashMap<>();
+
+	/**
+	 * @param resourceClass REST-Klasse mit @Path
+	 * @param methode Methode mit @Path, deren Pfad genau 1 Template-Parameter hat
+	 */
+	public UriVorlagen(Class<?> resourceClass, String methode) {
+		this.resourceClass = resourceClass;
+		this.methode = methode;
+	}
+
+	public UriVorlage getUriVorlage(UriInfo uriInfo) {
+		final URI baseUri = uriInfo.getBaseUri();
+		UriVorlage vorlage = vorlagen.get(baseUri);
+		if (vorlage != null) {
+			return vorlage;
+		}
+
+		vorlage = UriVorlage.of(uriInfo.getBaseUriBuilder().path(resourceClass).path(resourceClass, methode));
+		if (vorlagen.size() < BASIS_URIS_MAX) {
+			vorlagen.putIfAbsent(baseUri, vorlage);
+		}
+		return vorlage;
+	}
+
+	public URI getUri(UriInfo uriInfo, Object wert) {
+		return getUriVorlage(uriInfo).getUri(wert);
+	}
+}
@@ -5,6 +5,8 @@ import java.lang.invoke.MethodHandles;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -26,11 +28,17 @@ public class ValidatorProvider implements Serializable {
 	private static final long serialVersionUID = 7886864531128694923L;
 	
 	private static final Logger LOGGER = Logger.getLogger(MethodHandles.lookup().lookupClass());
+	
+	// Obergrenze fuer zwischengespeicherte Aufloesungen, weil die Locales aus Accept-Language stammen
+	private static final int AUFLOESUNGEN_MAX = 256;
 
 	@Inject
 	private Config config;
 	
 	private transient HashMap<Locale, Validator> validators;
+	
+	// Aufgeloester Validator je angefragter Locale einschliesslich Fallback, z.B. de_DE -> de oder fr -> default
+	private transient ConcurrentMap<Locale, Validator> aufloesungen;
 	private Locale defaultLocale;
 	
 	@PostConstruct
@@ -53,6 +61,7 @@ public class ValidatorProvider implements Serializable {
                                                         .getValidator();
 			validators.put(locale, validator);
 		}
+		aufloesungen = new ConcurrentHashMap<>(validators);
 
 		if (validators.keySet() == null || validators.keySet().isEmpty()) {
 			LOGGER.error("Es sind keine Sprachen eingetragen");
@@ -70,6 +79,19 @@ public class ValidatorProvider implements Serializable {
 			return validators.get(defaultLocale);
 		}
 		
+		Validator validator = aufloesungen.get(locale);
+		if (validator != null) {
+			return validator;
+		}
+		
+		validator = aufloesen(locale);
+		if (validator != null && aufloesungen.size() < AUFLOESUNGEN_MAX) {
+			aufloesungen.putIfAbsent(locale, validator);
+		}
+		return validator;
+	}
+	
+	private Validator aufloesen(Locale locale) {
 		Validator validator = validators.get(locale);
 		if (validator != null) {
 			return validator;
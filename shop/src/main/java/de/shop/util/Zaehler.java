@@ -0,0 +1,23 @@
+package de.shop.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zaehler als Messwert fuer die MetricsRegistry, z.B. die Anzahl versendeter Emails
+ */
+public final class Zaehler implements Messwert {
+	private final AtomicLong wert = new AtomicLong();
+
+	public void erhoehen() {
+		wert.incrementAndGet();
+	}
+
+	public void addieren(long anzahl) {
+		wert.addAndGet(anzahl);
+	}
+
+	@Override
+	public long getWert() {
+		return wert.get();
+	}
+}
@@ -12,3 +12,7 @@ CREATE INDEX kunde_hobby__kunde_index ON kunde_hobby(kunde_fk);
 CREATE INDEX bestellung__kunde_index ON bestellung(kunde_fk);
 CREATE INDEX bestpos__bestellung_index ON bestellposition(bestellung_fk);
 CREATE INDEX bestpos__artikel_index ON bestellposition(artikel_fk);
+CREATE INDEX mail_auftrag__status_index ON mail_auftrag(status, naechsterVersuch);
+CREATE INDEX outbox_ereignis__status_index ON outbox_ereignis(status, naechsterVersuch);
+CREATE INDEX artikel_absatz__tag_index ON artikel_absatz(tag);
+CREATE INDEX kunde__email_lower_index ON kunde(LOWER(email));
@@ -1,8 +0,0 @@
--- ===============================================================================
--- Jede SQL-Anweisung muss in genau 1 Zeile
--- Kommentare durch -- am Zeilenanfang
--- ===============================================================================
-
-
-DROP SEQUENCE hibernate_sequence;
-CREATE SEQUENCE hibernate_sequence START WITH 5000;
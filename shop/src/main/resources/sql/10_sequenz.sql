@@ -0,0 +1,21 @@
+-- ===============================================================================
+-- Jede SQL-Anweisung muss in genau 1 Zeile
+-- Kommentare durch -- am Zeilenanfang
+-- ===============================================================================
+
+
+-- INCREMENT BY = Blockgroesse fuer den Optimizer "pooled-lo", s. ID_BLOCK_STAMMDATEN und ID_BLOCK_BEWEGUNGSDATEN in Constants
+DROP SEQUENCE kunde_seq;
+CREATE SEQUENCE kunde_seq START WITH 5000 INCREMENT BY 20;
+DROP SEQUENCE adresse_seq;
+CREATE SEQUENCE adresse_seq START WITH 5000 INCREMENT BY 20;
+DROP SEQUENCE artikel_seq;
+CREATE SEQUENCE artikel_seq START WITH 5000 INCREMENT BY 20;
+DROP SEQUENCE bestellung_seq;
+CREATE SEQUENCE bestellung_seq START WITH 5000 INCREMENT BY 100;
+DROP SEQUENCE bestellposition_seq;
+CREATE SEQUENCE bestellposition_seq START WITH 5000 INCREMENT BY 100;
+DROP SEQUENCE outbox_ereignis_seq;
+CREATE SEQUENCE outbox_ereignis_seq START WITH 5000 INCREMENT BY 100;
+DROP SEQUENCE mail_auftrag_seq;
+CREATE SEQUENCE mail_auftrag_seq START WITH 5000 INCREMENT BY 100;
@@ -4,9 +4,9 @@
 -- ===============================================================================
 
 
-INSERT INTO kunde (id, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (1,'Admin','Admin','01.01.2001','F','admin@hska.de','01.08.2006 00:00:00','01.08.2006 00:00:00');
-INSERT INTO kunde (id, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (2,'Alpha','Adrian','31.01.2001','P','101@hska.de','01.08.2006 00:00:00','01.08.2006 00:00:00');
-INSERT INTO kunde (id, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (3,'Alpha','Alfred','28.02.2002','P','102@hska.de','02.08.2006 00:00:00','02.08.2006 00:00:00');
-INSERT INTO kunde (id, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (4,'Alpha','Anton','15.09.2003','F','103@hska.de','03.08.2006 00:00:00','03.08.2006 00:00:00');
-INSERT INTO kunde (id, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (5,'Delta','Dirk','30.04.2004','F','104@hska.de','04.08.2006 00:00:00','04.08.2006 00:00:00');
-INSERT INTO kunde (id, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (6,'Epsilon','Emil','31.03.2005','P','105@hska.de','05.08.2006 00:00:00','05.08.2006 00:00:00');
+INSERT INTO kunde (id, version, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (1,0,'Admin','Admin','01.01.2001','F','admin@hska.de','01.08.2006 00:00:00','01.08.2006 00:00:00');
+INSERT INTO kunde (id, version, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (2,0,'Alpha','Adrian','31.01.2001','P','101@hska.de','01.08.2006 00:00:00','01.08.2006 00:00:00');
+INSERT INTO kunde (id, version, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (3,0,'Alpha','Alfred','28.02.2002','P','102@hska.de','02.08.2006 00:00:00','02.08.2006 00:00:00');
+INSERT INTO kunde (id, version, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (4,0,'Alpha','Anton','15.09.2003','F','103@hska.de','03.08.2006 00:00:00','03.08.2006 00:00:00');
+INSERT INTO kunde (id, version, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (5,0,'Delta','Dirk','30.04.2004','F','104@hska.de','04.08.2006 00:00:00','04.08.2006 00:00:00');
+INSERT INTO kunde (id, version, nachname, vorname, seit, art, email, erzeugt, aktualisiert) VALUES (6,0,'Epsilon','Emil','31.03.2005','P','105@hska.de','05.08.2006 00:00:00','05.08.2006 00:00:00');
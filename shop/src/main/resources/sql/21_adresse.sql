@@ -4,9 +4,9 @@
 -- ===============================================================================
 
 
-INSERT INTO adresse (id, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (200,'76133','Karlsruhe',1,'01.08.2006 00:00:00','01.08.2006 00:00:00');
-INSERT INTO adresse (id, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (201,'76133','Karlsruhe',2,'02.08.2006 00:00:00','02.08.2006 00:00:00');
-INSERT INTO adresse (id, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (202,'76133','Karlsruhe',3,'03.08.2006 00:00:00','03.08.2006 00:00:00');
-INSERT INTO adresse (id, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (203,'76133','Karlsruhe',4,'04.08.2006 00:00:00','04.08.2006 00:00:00');
-INSERT INTO adresse (id, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (204,'76133','Karlsruhe',5,'05.08.2006 00:00:00','05.08.2006 00:00:00');
-INSERT INTO adresse (id, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (205,'76133','Karlsruhe',6,'06.08.2006 00:00:00','06.08.2006 00:00:00');
+INSERT INTO adresse (id, version, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (200,0,'76133','Karlsruhe',1,'01.08.2006 00:00:00','01.08.2006 00:00:00');
+INSERT INTO adresse (id, version, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (201,0,'76133','Karlsruhe',2,'02.08.2006 00:00:00','02.08.2006 00:00:00');
+INSERT INTO adresse (id, version, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (202,0,'76133','Karlsruhe',3,'03.08.2006 00:00:00','03.08.2006 00:00:00');
+INSERT INTO adresse (id, version, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (203,0,'76133','Karlsruhe',4,'04.08.2006 00:00:00','04.08.2006 00:00:00');
+INSERT INTO adresse (id, version, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (204,0,'76133','Karlsruhe',5,'05.08.2006 00:00:00','05.08.2006 00:00:00');
+INSERT INTO adresse (id, version, plz, ort, kunde_fk, erzeugt, aktualisiert) VALUES (205,0,'76133','Karlsruhe',6,'06.08.2006 00:00:00','06.08.2006 00:00:00');
@@ -4,10 +4,10 @@
 -- ===============================================================================
 
 
-INSERT INTO artikel (id, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (1,'Tisch ''Oval''',80,1,'01.08.2006 00:00:00','01.08.2006 00:00:00');
-INSERT INTO artikel (id, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (2,'Stuhl ''Sitz bequem''',10,1,'02.08.2006 00:00:00','02.08.2006 00:00:00');
-INSERT INTO artikel (id, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (3,'Tr ''Hoch und breit''',300,1,'03.08.2006 00:00:00','03.08.2006 00:00:00');
-INSERT INTO artikel (id, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (4,'Fenster ''Glasklar''',150,1,'04.08.2006 00:00:00','04.08.2006 00:00:00');
-INSERT INTO artikel (id, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (5,'Spiegel ''Mach mich schner''',60,0,'05.08.2006 00:00:00','05.08.2006 00:00:00');
-INSERT INTO artikel (id, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (6,'Kleiderschrank ''Viel Platz''',500,1,'06.08.2006 00:00:00','06.08.2006 00:00:00');
-INSERT INTO artikel (id, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (7,'Bett ''Mit Holzwurm''',600,1,'07.08.2006 00:00:00','07.08.2006 00:00:00');
+INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (1,0,'Tisch ''Oval''',80,1,'01.08.2006 00:00:00','01.08.2006 00:00:00');
+INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (2,0,'Stuhl ''Sitz bequem''',10,1,'02.08.2006 00:00:00','02.08.2006 00:00:00');
+INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (3,0,'Tr ''Hoch und breit''',300,1,'03.08.2006 00:00:00','03.08.2006 00:00:00');
+INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (4,0,'Fenster ''Glasklar''',150,1,'04.08.2006 00:00:00','04.08.2006 00:00:00');
+INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (5,0,'Spiegel ''Mach mich schner''',60,0,'05.08.2006 00:00:00','05.08.2006 00:00:00');
+INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (6,0,'Kleiderschrank ''Viel Platz''',500,1,'06.08.2006 00:00:00','06.08.2006 00:00:00');
+INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt, aktualisiert) VALUES (7,0,'Bett ''Mit Holzwurm''',600,1,'07.08.2006 00:00:00','07.08.2006 00:00:00');
@@ -4,8 +4,8 @@
 -- ===============================================================================
 
 
-INSERT INTO bestellung (id, kunde_fk, ausgeliefert, idx, erzeugt, aktualisiert) VALUES (1,2,0,1,'01.08.2006 00:00:00','01.08.2006 00:00:00');
-INSERT INTO bestellung (id, kunde_fk, ausgeliefert, idx, erzeugt, aktualisiert) VALUES (2,2,1,1,'02.08.2006 00:00:00','02.08.2006 00:00:00');
-INSERT INTO bestellung (id, kunde_fk, ausgeliefert, idx, erzeugt, aktualisiert) VALUES (3,3,0,0,'03.08.2006 00:00:00','03.08.2006 00:00:00');
-INSERT INTO bestellung (id, kunde_fk, ausgeliefert, idx, erzeugt, aktualisiert) VALUES (4,3,1,0,'04.08.2006 00:00:00','04.08.2006 00:00:00');
-INSERT INTO bestellung (id, kunde_fk, ausgeliefert, idx, erzeugt, aktualisiert) VALUES (5,5,0,1,'05.08.2006 00:00:00','05.08.2006 00:00:00');
+INSERT INTO bestellung (id, version, kunde_fk, ausgeliefert, erzeugt, aktualisiert) VALUES (1,0,2,0,'01.08.2006 00:00:00','01.08.2006 00:00:00');
+INSERT INTO bestellung (id, version, kunde_fk, ausgeliefert, erzeugt, aktualisiert) VALUES (2,0,2,1,'02.08.2006 00:00:00','02.08.2006 00:00:00');
+INSERT INTO bestellung (id, version, kunde_fk, ausgeliefert, erzeugt, aktualisiert) VALUES (3,0,3,0,'03.08.2006 00:00:00','03.08.2006 00:00:00');
+INSERT INTO bestellung (id, version, kunde_fk, ausgeliefert, erzeugt, aktualisiert) VALUES (4,0,3,1,'04.08.2006 00:00:00','04.08.2006 00:00:00');
+INSERT INTO bestellung (id, version, kunde_fk, ausgeliefert, erzeugt, aktualisiert) VALUES (5,0,5,0,'05.08.2006 00:00:00','05.08.2006 00:00:00');
@@ -0,0 +1,261 @@
+package de.shop.bestellverwaltung.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.hibernate.EmptyInterceptor;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
+import org.jboss.resteasy.specimpl.RequestImpl;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.shop.bestellverwaltung.domain.Bestellung;
+import de.shop.bestellverwaltung.rest.BestellungResource;
+import de.shop.kundenverwaltung.domain.AbstractKunde;
+import de.shop.kundenverwaltung.rest.KundeResource;
+
+
+/**
+ * Anzahl der SQL-Anweisungen fuer die Bestellhistorie eines Kunden und fuer eine einzelne Bestellung:
+ * aufgerufen werden KundeResource.findBestellungenByKundeId und BestellungResource.findBestellungById
+ * einschliesslich der URLs durch die UriHelper und der Serialisierung nach JSON durch RESTEasy.
+ * Gezaehlt wird nur im Thread des Tests (s. SqlZaehler); ein N+1-Problem laesst den Test und damit den Build
+ * scheitern. Die Testdaten werden per SQL angelegt, weil die SQL-Skripte in src/main/resources/sql fuer
+ * Oracle sind.
+ */
+@RunWith(Arquillian.class)
+public class BestellungSqlAnweisungenTest {
+	private static final Long KUNDE_ID = Long.valueOf(1);
+	private static final Long ADRESSE_ID = Long.valueOf(1);
+	private static final long ERSTE_ARTIKEL_ID = 1;
+	private static final long ERSTE_BESTELLUNG_ID = 1;
+	private static final long ERSTE_POSITION_ID = 1;
+	private static final int ANZAHL_ARTIKEL = 10;
+	private static final int ANZAHL_BESTELLUNGEN = 50;
+	private static final int ANZAHL_POSITIONEN = 3;
+	private static final URI BASE_URI = URI.create("http://localhost:8080/test/rest/");
+	
+	// Kunde und Bestellungen mit Bestellpositionen
+	private static final long MAX_SQL_BESTELLHISTORIE = 2;
+	// Bestellung mit Kunde, Bestellpositionen und Artikeln; dazu die Adresse des Kunden
+	private static final long MAX_SQL_BESTELLUNG = 2;
+	
+	@Inject
+	private KundeResource kundeResource;
+	
+	@Inject
+	private BestellungResource bestellungResource;
+	
+	@PersistenceContext
+	private EntityManager em;
+	
+	@Resource
+	private UserTransaction trans;
+	
+	@Deployment
+	public static WebArchive createDeployment() {
+		final File[] libs = Maven.resolver()
+				                 .loadPomFromFile("pom.xml")
+				                 .importRuntimeDependencies()
+				                 .asFile();
+		return ShrinkWrap.create(WebArchive.class, "test.war")
+				         .addPackages(true, "de.shop")
+				         .addAsLibraries(libs)
+				         .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
+				         .addAsResource("ValidationMessages_de.properties")
+				         .addAsResource("ValidationMessages_en.properties")
+				         .addAsWebInfResource(new File("src/main/webapp/WEB-INF/beans.xml"))
+				         .addAsWebInfResource("test-ds.xml");
+	}
+	
+	@Before
+	public void anlegen() throws Exception {
+		trans.begin();
+		final Timestamp jetzt = new Timestamp(System.currentTimeMillis());
+		em.createNativeQuery("INSERT INTO kunde (id, version, nachname, vorname, seit, art, email, erzeugt,"
+				             + " aktualisiert) VALUES (?1, 0, 'Alpha', 'Adrian', ?2, ?3, 'test@hska.de', ?2, ?2)")
+		  .setParameter(1, KUNDE_ID)
+		  .setParameter(2, jetzt)
+		  .setParameter(3, AbstractKunde.PRIVATKUNDE)
+		  .executeUpdate();
+		em.createNativeQuery("INSERT INTO adresse (id, version, plz, ort, kunde_fk, erzeugt, aktualisiert)"
+				             + " VALUES (?1, 0, '76133', 'Karlsruhe', ?2, ?3, ?3)")
+		  .setParameter(1, ADRESSE_ID)
+		  .setParameter(2, KUNDE_ID)
+		  .setParameter(3, jetzt)
+		  .executeUpdate();
+		for (int i = 0; i < ANZAHL_ARTIKEL; i++) {
+			em.createNativeQuery("INSERT INTO artikel (id, version, artikelBezeichnung, preis, verfuegbar, erzeugt,"
+					             + " aktualisiert) VALUES (?1, 0, ?2, 10, 1, ?3, ?3)")
+			  .setParameter(1, ERSTE_ARTIKEL_ID + i)
+			  .setParameter(2, "Artikel " + i)
+			  .setParameter(3, jetzt)
+			  .executeUpdate();
+		}
+		
+		long positionId = ERSTE_POSITION_ID;
+		for (int i = 0; i < ANZAHL_BESTELLUNGEN; i++) {
+			final long bestellungId = ERSTE_BESTELLUNG_ID + i;
+			em.createNativeQuery("INSERT INTO bestellung (id, version, kunde_fk, ausgeliefert, erzeugt, aktualisiert)"
+					             + " VALUES (?1, 0, ?2, 0, ?3, ?3)")
+			  .setParameter(1, bestellungId)
+			  .setParameter(2, KUNDE_ID)
+			  .setParameter(3, jetzt)
+			  .executeUpdate();
+			for (int j = 0; j < ANZAHL_POSITIONEN; j++) {
+				em.createNativeQuery("INSERT INTO bestellposition (positionId, bestellung_fk, artikel_fk, anzahl, idx)"
+						             + " VALUES (?1, ?2, ?3, 1, ?4)")
+				  .setParameter(1, positionId++)
+				  .setParameter(2, bestellungId)
+				  .setParameter(3, ERSTE_ARTIKEL_ID + (i + j) % ANZAHL_ARTIKEL)
+				  .setParameter(4, j)
+				  .executeUpdate();
+			}
+		}
+		trans.commit();
+	}
+	
+	@After
+	public void loeschen() throws Exception {
+		trans.begin();
+		for (String tabelle : new String[] { "bestellposition", "bestellung", "artikel", "adresse", "kunde" }) {
+			em.createNativeQuery("DELETE FROM " + tabelle).executeUpdate();
+		}
+		trans.commit();
+	}
+	
+	@Test
+	public void bestellhistorie() throws Exception {
+		final long anzahl = zaehlen("kunden/" + KUNDE_ID + "/bestellungen", new Callable<Object>() {
+			@Override
+			public Object call() {
+				final Collection<Bestellung> bestellungen = kundeResource.findBestellungenByKundeId(KUNDE_ID);
+				assertThat(bestellungen.size(), is(ANZAHL_BESTELLUNGEN));
+				return bestellungen;
+			}
+		});
+		pruefen("Bestellhistorie", anzahl, MAX_SQL_BESTELLHISTORIE);
+	}
+	
+	@Test
+	public void bestellung() throws Exception {
+		final Long id = Long.valueOf(ERSTE_BESTELLUNG_ID);
+		final long anzahl = zaehlen("bestellungen/" + id, new Callable<Object>() {
+			@Override
+			public Object call() {
+				final Response response = bestellungResource.findBestellungById(id);
+				assertThat(response.getEntity(), is(notNullValue()));
+				return response.getEntity();
+			}
+		});
+		pruefen("Bestellung", anzahl, MAX_SQL_BESTELLUNG);
+	}
+	
+	/**
+	 * Eine Methode einer REST-Resource wie bei einem GET-Request aufrufen und das Ergebnis nach JSON serialisieren.
+	 * Die Resource erhaelt UriInfo, HttpHeaders und Request ueber den Kontext von RESTEasy; die Transaktion
+	 * beginnt und endet wie bei einem Request durch @Transactional an der Resource.
+	 * @return Anzahl der SQL-Anweisungen im Thread des Tests
+	 */
+	private static long zaehlen(String pfad, Callable<Object> aufruf) throws Exception {
+		final MockHttpRequest httpRequest = MockHttpRequest.create("GET", BASE_URI.resolve(pfad), BASE_URI);
+		ResteasyProviderFactory.addContextDataLevel();
+		ResteasyProviderFactory.pushContext(UriInfo.class, httpRequest.getUri());
+		ResteasyProviderFactory.pushContext(HttpHeaders.class, httpRequest.getHttpHeaders());
+		ResteasyProviderFactory.pushContext(Request.class, new RequestImpl(httpRequest));
+		SqlZaehler.starten();
+		final long anzahl;
+		try {
+			final Object entity = aufruf.call();
+			final int bytes = serialisieren(entity);
+			assertTrue(pfad + ": kein JSON", bytes > 0);
+		}
+		finally {
+			ResteasyProviderFactory.removeContextDataLevel();
+			anzahl = SqlZaehler.beenden();
+		}
+		return anzahl;
+	}
+	
+	/**
+	 * Nach JSON serialisieren wie RESTEasy nach dem Aufruf der Resource, d.h. ausserhalb der Transaktion
+	 * @return Anzahl der geschriebenen Bytes
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int serialisieren(Object entity) throws IOException {
+		final Class type = entity.getClass();
+		final Annotation[] annotations = {};
+		final MessageBodyWriter writer = ResteasyProviderFactory.getInstance()
+				                                                .getMessageBodyWriter(type, type, annotations,
+				                                                                      MediaType.APPLICATION_JSON_TYPE);
+		assertThat(writer, is(notNullValue()));
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.writeTo(entity, type, type, annotations, MediaType.APPLICATION_JSON_TYPE,
+				       new MultivaluedMapImpl<String, Object>(), out);
+		return out.size();
+	}
+	
+	private static void pruefen(String anwendungsfall, long anzahl, long max) {
+		assertTrue(anwendungsfall + ": " + anzahl + " SQL-Anweisungen statt hoechstens " + max, anzahl <= max);
+	}
+	
+	/**
+	 * Zaehlt die SQL-Anweisungen der Sessions im aktuellen Thread, z.B. nicht die des OutboxPollers.
+	 * Registriert in test-persistence.xml als hibernate.ejb.interceptor.
+	 */
+	public static class SqlZaehler extends EmptyInterceptor {
+		private static final long serialVersionUID = 4181096612460342750L;
+		private static final ThreadLocal<long[]> ANZAHL = new ThreadLocal<>();
+		
+		static void starten() {
+			ANZAHL.set(new long[1]);
+		}
+		
+		static long beenden() {
+			final long anzahl = ANZAHL.get()[0];
+			ANZAHL.remove();
+			return anzahl;
+		}
+		
+		@Override
+		public String onPrepareStatement(String sql) {
+			final long[] anzahl = ANZAHL.get();
+			if (anzahl != null) {
+				anzahl[0]++;
+			}
+			return sql;
+		}
+	}
+}
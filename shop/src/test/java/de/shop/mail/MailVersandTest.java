@@ -0,0 +1,214 @@
+package de.shop.mail;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.shop.mail.domain.MailAuftrag;
+
+
+/**
+ * Versand ueber einen lokalen SMTP-Server, der die Emails nur entgegennimmt. Geprueft wird, dass alle Auftraege
+ * ueber eine einzige Verbindung versendet werden und ein abgelehnter Empfaenger die anderen nicht verhindert.
+ */
+public class MailVersandTest {
+	private static final String ABSENDER = "shop@hska.de";
+	private static final String EMPFAENGER = "kunde%d@hska.de";
+	private static final String ABGELEHNT = "abgelehnt@hska.de";
+	private static final int ANZAHL_AUFTRAEGE = 3;
+	private static final int TIMEOUT_MILLIS = 5000;
+	
+	private SmtpServer smtpServer;
+	
+	@Before
+	public void before() throws IOException {
+		smtpServer = new SmtpServer();
+		smtpServer.start();
+	}
+	
+	@After
+	public void after() throws IOException, InterruptedException {
+		smtpServer.beenden();
+	}
+	
+	@Test
+	public void versendenUeberEineVerbindung() throws Exception {
+		// Given
+		final List<MailAuftrag> mailAuftraege = new ArrayList<>(ANZAHL_AUFTRAEGE);
+		for (int i = 1; i <= ANZAHL_AUFTRAEGE; i++) {
+			mailAuftraege.add(createMailAuftrag(Long.valueOf(i), String.format(Locale.GERMAN, EMPFAENGER, i)));
+		}
+		
+		// When
+		final Map<Long, String> fehler = createMailVersand(smtpServer.getPort()).versenden(mailAuftraege);
+		
+		// Then
+		assertTrue("Fehler: " + fehler, fehler.isEmpty());
+		assertThat(smtpServer.getVerbindungen(), is(1));
+		assertThat(smtpServer.getEmpfaenger().size(), is(ANZAHL_AUFTRAEGE));
+	}
+	
+	@Test
+	public void versendenMitAbgelehntemEmpfaenger() throws Exception {
+		// Given
+		final MailAuftrag ok1 = createMailAuftrag(Long.valueOf(1), String.format(Locale.GERMAN, EMPFAENGER, 1));
+		final MailAuftrag abgelehnt = createMailAuftrag(Long.valueOf(2), ABGELEHNT);
+		final MailAuftrag ok2 = createMailAuftrag(Long.valueOf(3), String.format(Locale.GERMAN, EMPFAENGER, 3));
+		
+		// When
+		final Map<Long, String> fehler = createMailVersand(smtpServer.getPort())
+		                                 .versenden(Arrays.asList(ok1, abgelehnt, ok2));
+		
+		// Then
+		assertThat(fehler.keySet(), is(Collections.singleton(abgelehnt.getId())));
+		assertThat(smtpServer.getEmpfaenger(), is(Arrays.asList(ok1.getEmpfaenger(), ok2.getEmpfaenger())));
+	}
+	
+	@Test
+	public void versendenOhneMailserver() throws Exception {
+		// Given
+		final MailAuftrag mailAuftrag = createMailAuftrag(Long.valueOf(1), String.format(Locale.GERMAN, EMPFAENGER, 1));
+		final int port = smtpServer.getPort();
+		smtpServer.beenden();
+		
+		// When
+		final Map<Long, String> fehler = createMailVersand(port).versenden(Arrays.asList(mailAuftrag));
+		
+		// Then
+		assertThat(fehler.keySet(), is(Collections.singleton(mailAuftrag.getId())));
+	}
+	
+	private static MailVersand createMailVersand(int port) throws IOException {
+		final Properties props = new Properties();
+		props.setProperty("mail.transport.protocol", "smtp");
+		props.setProperty("mail.smtp.host", "localhost");
+		props.setProperty("mail.smtp.port", String.valueOf(port));
+		props.setProperty("mail.smtp.connectiontimeout", String.valueOf(TIMEOUT_MILLIS));
+		props.setProperty("mail.smtp.timeout", String.valueOf(TIMEOUT_MILLIS));
+		return new MailVersand(Session.getInstance(props), new InternetAddress(ABSENDER, "Shop"));
+	}
+	
+	private static MailAuftrag createMailAuftrag(Long id, String empfaenger) {
+		final MailAuftrag mailAuftrag = new MailAuftrag(empfaenger, "Kunde", "Neue Bestellung", "Text");
+		mailAuftrag.setId(id);
+		return mailAuftrag;
+	}
+	
+	/**
+	 * SMTP-Server fuer den Test: nimmt Emails an, lehnt den Empfaenger ABGELEHNT ab und merkt sich die Anzahl
+	 * der Verbindungen sowie die Empfaenger der angenommenen Emails
+	 */
+	private static final class SmtpServer extends Thread {
+		private final ServerSocket serverSocket = new ServerSocket(0);
+		private final AtomicInteger verbindungen = new AtomicInteger();
+		private final List<String> empfaenger = Collections.synchronizedList(new ArrayList<String>());
+		
+		SmtpServer() throws IOException {
+			super("smtp-server");
+			setDaemon(true);
+		}
+		
+		int getPort() {
+			return serverSocket.getLocalPort();
+		}
+		
+		int getVerbindungen() {
+			return verbindungen.get();
+		}
+		
+		List<String> getEmpfaenger() {
+			return new ArrayList<>(empfaenger);
+		}
+		
+		void beenden() throws IOException, InterruptedException {
+			serverSocket.close();
+			join(TIMEOUT_MILLIS);
+		}
+		
+		@Override
+		public void run() {
+			while (!serverSocket.isClosed()) {
+				try (Socket socket = serverSocket.accept()) {
+					verbindungen.incrementAndGet();
+					dialog(socket);
+				}
+				catch (IOException e) {
+					// Server beendet oder Verbindung abgebrochen
+				}
+			}
+		}
+		
+		private void dialog(Socket socket) throws IOException {
+			final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					                                                           StandardCharsets.US_ASCII));
+			final Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+			antworten(out, "220 localhost");
+			
+			final List<String> rcpt = new ArrayList<>();
+			for (String zeile = in.readLine(); zeile != null; zeile = in.readLine()) {
+				final String befehl = zeile.toUpperCase(Locale.ENGLISH);
+				if (befehl.startsWith("QUIT")) {
+					antworten(out, "221 Bye");
+					return;
+				}
+				if (befehl.startsWith("RCPT TO:")) {
+					final String adresse = zeile.substring(zeile.indexOf('<') + 1, zeile.lastIndexOf('>'));
+					if (ABGELEHNT.equals(adresse)) {
+						antworten(out, "550 Mailbox unavailable");
+					}
+					else {
+						rcpt.add(adresse);
+						antworten(out, "250 OK");
+					}
+				}
+				else if (befehl.startsWith("DATA")) {
+					antworten(out, "354 End data with <CR><LF>.<CR><LF>");
+					// Inhalt der Email bis zur Zeile mit "." ueberlesen
+					String daten = in.readLine();
+					while (daten != null && !".".equals(daten)) {
+						daten = in.readLine();
+					}
+					empfaenger.addAll(rcpt);
+					rcpt.clear();
+					antworten(out, "250 OK");
+				}
+				else {
+					// EHLO, MAIL FROM, RSET, NOOP
+					if (befehl.startsWith("RSET") || befehl.startsWith("MAIL FROM:")) {
+						rcpt.clear();
+					}
+					antworten(out, "250 OK");
+				}
+			}
+		}
+		
+		private static void antworten(Writer out, String antwort) throws IOException {
+			out.write(antwort + "\r\n");
+			out.flush();
+		}
+	}
+}